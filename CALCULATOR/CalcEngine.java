@@ -0,0 +1,269 @@
+import java.awt.event.KeyEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+/**
+ * The standard keypad's state and arithmetic with no Swing in it: the
+ * number being typed, the pending operator, the error latch and memory.
+ * {@link Calculator} feeds it button labels and paints what it reports;
+ * {@link SessionReplay} drives a fresh one headlessly from a recorded
+ * session, so both run exactly the same code for every key.
+ */
+final class CalcEngine {
+
+    /** Side effects the window shows and a replay just counts. */
+    interface Listener {
+        void history(String entry);
+        /** "=" in statistics mode with nothing pending: the value on display joins the data. */
+        void dataPoint(double value);
+    }
+
+    final InputBuffer input = new InputBuffer();   // the number being typed
+    String  expression = "";
+    double  operand1;
+    String  operator   = "";
+    boolean freshResult;
+    double  memory;
+    boolean collecting;                            // statistics mode
+    private String error;                          // shown instead of input, or null
+
+    private final DecimalFormat df = new DecimalFormat("#.##########");
+    private final Listener listener;
+
+    CalcEngine(Listener listener) { this.listener = listener; }
+
+    /**
+     * Everything {@link #press} reads, taken at one moment: a recording
+     * starts with one so its replay begins mid-calculation exactly where
+     * the window was, rather than from a cleared keypad.
+     */
+    static final class State {
+        final String text, expression, operator, error;   // error is null when there is none
+        final double value, operand1, memory;
+        final boolean freshResult, collecting;
+
+        private State(String text, double value, String expression, double operand1, String operator,
+                      boolean freshResult, double memory, boolean collecting, String error) {
+            this.text = text;
+            this.value = value;
+            this.expression = expression;
+            this.operand1 = operand1;
+            this.operator = operator;
+            this.freshResult = freshResult;
+            this.memory = memory;
+            this.collecting = collecting;
+            this.error = error;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(text);
+            out.writeDouble(value);
+            out.writeUTF(expression);
+            out.writeDouble(operand1);
+            out.writeUTF(operator);
+            out.writeBoolean(freshResult);
+            out.writeDouble(memory);
+            out.writeBoolean(collecting);
+            out.writeUTF(error == null ? "" : error);
+        }
+
+        static State read(DataInput in) throws IOException {
+            String text = in.readUTF();
+            double value = in.readDouble();
+            String expression = in.readUTF();
+            double operand1 = in.readDouble();
+            String operator = in.readUTF();
+            boolean freshResult = in.readBoolean();
+            double memory = in.readDouble();
+            boolean collecting = in.readBoolean();
+            String error = in.readUTF();
+            return new State(text, value, expression, operand1, operator, freshResult, memory, collecting,
+                             error.isEmpty() ? null : error);
+        }
+    }
+
+    State state() {
+        return new State(input.toString(), input.value(), expression, operand1, operator,
+                         freshResult, memory, collecting, error);
+    }
+
+    /** Puts the engine back into {@code s}, exact value of the display included. */
+    void restore(State s) {
+        if (!input.set(s.value, s.text)) input.clear();
+        expression  = s.expression;
+        operand1    = s.operand1;
+        operator    = s.operator;
+        freshResult = s.freshResult;
+        memory      = s.memory;
+        collecting  = s.collecting;
+        error       = s.error;
+    }
+
+    // ── Keys ───────────────────────────────────────────────
+    /** The keypad label a standard-mode key stands for, or null. */
+    static String keyAction(int code, char ch) {
+        if (ch >= '0' && ch <= '9') return String.valueOf(ch);
+        switch (ch) {
+            case '+':            return "+";
+            case '-':            return "−";
+            case '*':            return "×";
+            case '/':            return "÷";
+            case '.':            return ".";
+            case '%':            return "%";
+            case '\n': case '=': return "=";
+        }
+        switch (code) {
+            case KeyEvent.VK_BACK_SPACE: return "⌫";
+            case KeyEvent.VK_DELETE:     return "⌦";
+            case KeyEvent.VK_LEFT:       return "←";
+            case KeyEvent.VK_RIGHT:      return "→";
+            case KeyEvent.VK_HOME:       return "Home";
+            case KeyEvent.VK_END:        return "End";
+            case KeyEvent.VK_ESCAPE:     return "AC";
+        }
+        return null;
+    }
+
+    /** Applies one keypad label; unknown labels are ignored. */
+    void press(String label) {
+        if (error != null && !label.equals("AC")) return;
+
+        switch (label) {
+            // ── Digits & Decimal ──────────────────────────
+            case "0": case "1": case "2": case "3": case "4":
+            case "5": case "6": case "7": case "8": case "9":
+                if (freshResult) { input.clear(); freshResult = false; }
+                input.insertDigit(label.charAt(0));
+                break;
+
+            case ".":
+                if (freshResult) { input.clear(); freshResult = false; }
+                input.insertPoint();
+                break;
+
+            // ── Operators ────────────────────────────────
+            case "+": case "−": case "×": case "÷":
+                if (!operator.isEmpty() && !freshResult) calculate();
+                if (error != null) break;
+                operand1    = input.value();
+                operator    = label;
+                expression  = format(operand1) + " " + label;
+                freshResult = true;
+                break;
+
+            // ── Equals ───────────────────────────────────
+            case "=":
+                if (operator.isEmpty()) {
+                    if (collecting) addDataPoint();
+                    break;
+                }
+                String fullExpr = expression + " " + input;
+                calculate();
+                if (error != null) break;
+                listener.history(fullExpr + "  =  " + input);
+                operator    = "";
+                expression  = "";
+                freshResult = true;
+                if (collecting) addDataPoint();
+                break;
+
+            // ── Clear ────────────────────────────────────
+            case "AC":
+                input.clear();
+                expression  = "";
+                operator    = "";
+                operand1    = 0;
+                freshResult = false;
+                error       = null;
+                break;
+
+            case "±":
+                input.negate();
+                break;
+
+            case "%":
+                setResult(input.value() / 100);
+                break;
+
+            case "√":
+                double sqVal = input.value();
+                if (sqVal < 0) { fail("Error: √negative"); break; }
+                String sqExpr = "√(" + input + ")";
+                setResult(Math.sqrt(sqVal));
+                listener.history(sqExpr + "  =  " + input);
+                freshResult = true;
+                break;
+
+            // ── Memory ───────────────────────────────────
+            case "MC": memory = 0; break;
+            case "MR":
+                setResult(memory);
+                freshResult = true;
+                break;
+            case "M+": memory += input.value(); break;
+            case "M−": memory -= input.value(); break;
+
+            // ── Editing (keyboard only) ──────────────────
+            case "⌫":
+                if (freshResult) { input.clear(); freshResult = false; }
+                else input.backspace();
+                break;
+            case "⌦":   freshResult = false; input.delete(); break;
+            case "←":   freshResult = false; input.moveCursor(-1); break;
+            case "→":   freshResult = false; input.moveCursor(1); break;
+            case "Home": freshResult = false; input.cursorHome(); break;
+            case "End":  freshResult = false; input.cursorEnd(); break;
+        }
+    }
+
+    private void calculate() {
+        double operand2 = input.value();
+        double result;
+        switch (operator) {
+            case "+": result = operand1 + operand2; break;
+            case "−": result = operand1 - operand2; break;
+            case "×": result = operand1 * operand2; break;
+            case "÷":
+                if (operand2 == 0) { fail("Error: ÷ by 0"); return; }
+                result = operand1 / operand2;
+                break;
+            default: return;
+        }
+        if (Double.isNaN(result) || Double.isInfinite(result)) { fail("Error"); return; }
+        setResult(result);
+    }
+
+    private void addDataPoint() {
+        listener.dataPoint(input.value());
+        freshResult = true;
+    }
+
+    // ── Results & errors ───────────────────────────────────
+    /** Shows a computed value; later reads get the exact double back. */
+    void setResult(double v) {
+        input.set(v, format(v));
+    }
+
+    /** Latches an error message; only AC (or {@link #clearError}) gets out of it. */
+    void fail(String msg) {
+        input.clear();
+        error = msg;
+    }
+
+    void clearError()  { error = null; }
+    boolean hasError() { return error != null; }
+
+    /** What the main display shows: the error, or the number being typed. */
+    String displayText() { return error != null ? error : input.toString(); }
+
+    /** Caret position in the display text, or -1 when it sits at the end. */
+    int caret() { return error != null || input.cursorAtEnd() ? -1 : input.cursor(); }
+
+    String format(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return "Error";
+        if (v == Math.floor(v) && Math.abs(v) < 1e15) return String.valueOf((long) v);
+        return df.format(v);
+    }
+}
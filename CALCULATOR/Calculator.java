@@ -4,8 +4,15 @@ import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
-import java.text.DecimalFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * ╔═══════════════════════════════════════════════════════════════╗
@@ -46,29 +53,27 @@ import java.util.ArrayList;
  *    0–9, +, -, *, /  →  Type directly
  *    Enter / =        →  Evaluate
  *    Backspace        →  Delete last character
+ *    ← → Home End     →  Move the cursor inside the number
  *    Escape           →  Clear (AC)
  *    Ctrl+C           →  Copy result
  */
 public class Calculator extends JFrame {
 
-    // ── Theme Colors (Dark Mode) ────────────────────────────
-    private static Color BG_APP       = new Color(18, 18, 24);
-    private static Color BG_DISPLAY   = new Color(10, 10, 15);
-    private static Color BG_CALC      = new Color(26, 26, 36);
-    private static Color BG_BTN_NUM   = new Color(40, 40, 58);
-    private static Color BG_BTN_OP    = new Color(60, 60, 88);
-    private static Color BG_BTN_FUNC  = new Color(34, 34, 50);
-    private static Color COLOR_EQUALS = new Color(255, 107, 53);   // warm orange
-    private static Color COLOR_ACCENT = new Color(100, 200, 255);  // ice blue
-    private static Color BG_HISTORY   = new Color(22, 22, 32);
-    private static Color BG_HIST_ITEM = new Color(32, 32, 46);
-    private static Color BG_HIST_SEL  = new Color(50, 50, 75);
-    private static Color TEXT_PRIMARY = new Color(240, 240, 255);
-    private static Color TEXT_MUTED   = new Color(130, 130, 165);
-    private static Color TEXT_EXPR    = new Color(160, 160, 200);
-    private static Color BORDER_COL   = new Color(50, 50, 72);
-
-    private boolean isDarkMode = true;
+    // ── Theme ───────────────────────────────────────────────
+    // Components register a recolour callback with onTheme(); switching
+    // runs the callbacks on the live tree and repaints once.
+    private Theme theme = Theme.DARK;
+    private final ArrayList<Consumer<Theme>> themeListeners = new ArrayList<>();
+    private final KeySprites keySprites = new KeySprites();
+
+    // ── Instrumentation ─────────────────────────────────────
+    // Handler latencies and EDT stalls, published over JMX (domain
+    // "Calculator") and summarised into calculator-data/logs/edt.log;
+    // the startup timeline goes to startup.log alongside
+    private static final Path LOG_DIR = Paths.get(System.getProperty("calculator.home", "calculator-data"), "logs");
+    private final EdtMonitor monitor = EdtMonitor.install("Calculator", LOG_DIR);
+    private final EdtMonitor.Histogram buttonLatency = monitor.histogram("handleButton");
+    private final EdtMonitor.Histogram themeLatency  = monitor.histogram("toggleTheme");
 
     // ── Fonts ───────────────────────────────────────────────
     private static final Font FONT_DISPLAY  = new Font("Segoe UI", Font.BOLD,  36);
@@ -80,19 +85,82 @@ public class Calculator extends JFrame {
     private static final Font FONT_HIST_RES = new Font("Courier New", Font.BOLD,  13);
 
     // ── Calculator State ────────────────────────────────────
-    private String currentInput  = "0";
-    private String expression    = "";
-    private double operand1      = 0;
-    private String operator      = "";
-    private boolean freshResult  = false;
-    private boolean hasError     = false;
+    // Standard and statistics keys run in the engine; the window paints it
+    private final CalcEngine engine = new CalcEngine(new CalcEngine.Listener() {
+        public void history(String entry)  { addHistory(entry); }
+        public void dataPoint(double value) { addDataPoint(value); }
+    });
+    private final InputBuffer input = engine.input;          // the number being typed
+
+    // ── Modes ───────────────────────────────────────────────
+    private enum Mode { STANDARD, STATISTICS, PROGRAMMER, MATRIX, GRAPH }
+    private Mode mode = Mode.STANDARD;
+
+    // ── Statistics ──────────────────────────────────────────
+    private final Stats stats = new Stats();
+    private DataListModel dataModel;
+    private JList<String> dataList;
+    private JLabel[] statLabels;
+
+    // ── Programmer ──────────────────────────────────────────
+    private final Programmer prog = new Programmer();
+    private long    progEntry, progAcc;
+    private String  progOp = "";
+    private boolean progFresh;
+    private JPanel  keypadPanel;               // standard or programmer keys
+    private CardLayout keypadCards;
+    private JButton[] baseRows;
+    private JButton wordButton;
+    private final java.util.Map<String, JButton> progDigitKeys = new java.util.HashMap<>();
+
+    // ── Matrix ──────────────────────────────────────────────
+    // Editors A and B are the source of truth; each parse is cached until
+    // that editor is next edited, so repeated operations skip re-parsing
+    private final JTextArea[] matrixEditors = new JTextArea[2];
+    private final Matrix[] matrixParsed = new Matrix[2];
+    private final int[]    matrixEdits  = new int[2];
+    private int     matrixFocus;               // editor that paste goes to
+    private Matrix  matrixAns;                 // last matrix result
+    private String  matrixValue = "0";         // display: scalar or size
+    private String  matrixExpr  = "";
+    private JTextArea matrixResult;
+    private SwingWorker<?, Void> matrixWorker;
+
+    // ── Graph ───────────────────────────────────────────────
+    private PlotView   plotView;
+    private JTextField graphField;
+    private String     graphValue = "0";       // display: f₁ at the hovered x
+    private String     graphExpr  = "";
+
+    // ── Definitions ─────────────────────────────────────────
+    // User variables and functions, shared by the graph and the
+    // definitions panel; created here, so its cache belongs to the EDT
+    private final Workspace workspace = new Workspace();
+    private JTextArea defsEditor;
+    private final DefaultListModel<String> defsModel = new DefaultListModel<>();
+    private JLabel  cacheLabel;
+    private boolean showingDefs;
+
+    // ── Session recording ───────────────────────────────────
+    private SessionLog recorder;               // non-null while recording
+    private JMenuItem  recordItem;
+
+    // ── Toasts ──────────────────────────────────────────────
+    private ToastLayer toasts;
+
+    // ── Staged startup ──────────────────────────────────────
+    // The first frame has the display, the standard keypad and the
+    // history; the other cards are built one per EDT turn after it paints,
+    // or on the spot when a mode or the definitions need one sooner
+    private final StartupTrace startup;
+    private final LinkedHashMap<String, Runnable> pendingCards = new LinkedHashMap<>();
 
     // ── History ─────────────────────────────────────────────
     private ArrayList<String> historyData = new ArrayList<>();
     private DefaultListModel<String> listModel = new DefaultListModel<>();
 
     // ── UI Components ───────────────────────────────────────
-    private JLabel  displayLabel;
+    private DisplayView displayView;
     private JLabel  expressionLabel;
     private JLabel  memLabel;
     private JList<String>  historyList;
@@ -100,25 +168,58 @@ public class Calculator extends JFrame {
     private JToggleButton themeToggle;
     private JPanel  calcPanel;
     private JPanel  historyPanel;
-    private double  memory = 0;
-    private DecimalFormat df = new DecimalFormat("#.##########");
+    private JPanel  sidePanel;                 // history or statistics, by mode
+    private CardLayout sideCards;
 
     // ═══════════════════════════════════════════════════════
     //  CONSTRUCTOR
     // ═══════════════════════════════════════════════════════
-    public Calculator() {
+    public Calculator(StartupTrace startup) {
+        this.startup = startup;
         setTitle("Calculator  ·  with History");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(720, 580);
         setMinimumSize(new Dimension(520, 500));
         setLocationRelativeTo(null);
-        setBackground(BG_APP);
+        onTheme(t -> setBackground(t.app));
 
-        buildMenuBar();
-        buildUI();
+        startup.span("menus", this::buildMenuBar);
+        startup.span("skeleton", this::buildUI);
         addKeyboardListener();
+        toasts = ToastLayer.install(getRootPane(), FONT_EXPR, monitor.histogram("toast"));
 
-        setVisible(true);
+        startup.span("show", () -> setVisible(true));
+    }
+
+    /** Swing paints through the root pane, so that's where the first frame is seen. */
+    @Override
+    protected JRootPane createRootPane() {
+        JRootPane root = new JRootPane() {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                if (startup.painted()) SwingUtilities.invokeLater(Calculator.this::buildDeferred);
+            }
+        };
+        root.setOpaque(true);
+        return root;
+    }
+
+    /** Builds the next pending card, then yields the EDT before the one after. */
+    private void buildDeferred() {
+        Iterator<String> next = pendingCards.keySet().iterator();
+        if (!next.hasNext()) {
+            startup.finish(LOG_DIR.resolve("startup.log"));
+            return;
+        }
+        ensureCard(next.next());
+        SwingUtilities.invokeLater(this::buildDeferred);
+    }
+
+    /** Builds a keypad or side card now if it hasn't been built yet. */
+    private void ensureCard(String name) {
+        Runnable build = pendingCards.remove(name);
+        if (build != null) startup.span("card " + name, build);
     }
 
     // ═══════════════════════════════════════════════════════
@@ -126,8 +227,10 @@ public class Calculator extends JFrame {
     // ═══════════════════════════════════════════════════════
     private void buildMenuBar() {
         JMenuBar menuBar = new JMenuBar();
-        menuBar.setBackground(BG_APP);
-        menuBar.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, BORDER_COL));
+        onTheme(t -> {
+            menuBar.setBackground(t.app);
+            menuBar.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, t.border));
+        });
 
         // ── Edit Menu
         JMenu editMenu = styledMenu("Edit");
@@ -147,10 +250,36 @@ public class Calculator extends JFrame {
         JMenu viewMenu = styledMenu("View");
         JMenuItem toggleHist = styledMenuItem("📜  Toggle History Panel");
         JMenuItem themeItem  = styledMenuItem("🌙  Toggle Dark / Light");
+        JMenuItem defsItem   = styledMenuItem("𝑓  Variables & Functions");
+        recordItem           = styledMenuItem("⏺  Record Session…");
+        JMenuItem replayItem = styledMenuItem("▶  Replay Session…");
         toggleHist.addActionListener(e -> toggleHistoryPanel());
         themeItem.addActionListener(e -> toggleTheme());
+        defsItem.addActionListener(e -> toggleDefinitions());
+        recordItem.addActionListener(e -> toggleRecording());
+        replayItem.addActionListener(e -> replaySession());
         viewMenu.add(toggleHist);
         viewMenu.add(themeItem);
+        viewMenu.add(defsItem);
+        viewMenu.addSeparator();
+        viewMenu.add(recordItem);
+        viewMenu.add(replayItem);
+        viewMenu.addSeparator();
+        ButtonGroup modes = new ButtonGroup();
+        for (Mode m : Mode.values()) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(
+                m == Mode.STANDARD ? "🧮  Standard" : m == Mode.STATISTICS ? "📊  Statistics"
+                    : m == Mode.PROGRAMMER ? "💻  Programmer" : m == Mode.MATRIX ? "▦  Matrix" : "📈  Graph",
+                m == mode);
+            item.setFont(FONT_EXPR);
+            onTheme(t -> {
+                item.setForeground(t.text);
+                item.setBackground(t.btnFunc);
+            });
+            item.addActionListener(e -> setMode(m));
+            modes.add(item);
+            viewMenu.add(item);
+        }
 
         // ── Help Menu
         JMenu helpMenu = styledMenu("Help");
@@ -168,33 +297,45 @@ public class Calculator extends JFrame {
     private JMenu styledMenu(String text) {
         JMenu m = new JMenu(text);
         m.setFont(FONT_BTN_SM);
-        m.setForeground(TEXT_PRIMARY);
-        m.setBackground(BG_APP);
+        onTheme(t -> {
+            m.setForeground(t.text);
+            m.setBackground(t.app);
+        });
         return m;
     }
 
     private JMenuItem styledMenuItem(String text) {
         JMenuItem item = new JMenuItem(text);
         item.setFont(FONT_EXPR);
-        item.setForeground(TEXT_PRIMARY);
-        item.setBackground(BG_BTN_FUNC);
+        onTheme(t -> {
+            item.setForeground(t.text);
+            item.setBackground(t.btnFunc);
+        });
         return item;
     }    
     // ═══════════════════════════════════════════════════════
     //  MAIN UI BUILD
     // ═══════════════════════════════════════════════════════
     private void buildUI() {
-        getContentPane().setBackground(BG_APP);
+        onTheme(t -> getContentPane().setBackground(t.app));
         setLayout(new BorderLayout());
 
         // ── JSplitPane dividing calc | history ─────────────
         calcPanel    = buildCalculatorPanel();
         historyPanel = buildHistoryPanel();
 
-        splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, calcPanel, historyPanel);
+        // CardLayout — the side shows history, or the data set in statistics mode
+        sideCards = new CardLayout();
+        sidePanel = new JPanel(sideCards);
+        sidePanel.setPreferredSize(new Dimension(240, 0));
+        sidePanel.add(historyPanel,        Mode.STANDARD.name());
+        deferCard(sidePanel, Mode.STATISTICS.name(), this::buildStatsPanel);
+        deferCard(sidePanel, "DEFS",                 this::buildDefsPanel);
+
+        splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, calcPanel, sidePanel);
         splitPane.setResizeWeight(0.6);
         splitPane.setDividerSize(4);
-        splitPane.setBackground(BG_APP);
+        onTheme(t -> splitPane.setBackground(t.app));
         splitPane.setBorder(null);
         splitPane.setContinuousLayout(true);
 
@@ -205,38 +346,50 @@ public class Calculator extends JFrame {
     // ═══════════════════════════════════════════════════════
     private JPanel buildCalculatorPanel() {
         JPanel panel = new JPanel(new BorderLayout(0, 0));
-        panel.setBackground(BG_CALC);
+        onTheme(t -> panel.setBackground(t.calc));
 
-        panel.add(buildDisplay(),    BorderLayout.NORTH);
-        panel.add(buildButtonGrid(), BorderLayout.CENTER);
+        // CardLayout — the programmer, matrix and graph views sit alongside the standard keypad
+        keypadCards = new CardLayout();
+        keypadPanel = new JPanel(keypadCards);
+        keypadPanel.add(buildButtonGrid(),      Mode.STANDARD.name());
+        deferCard(keypadPanel, Mode.PROGRAMMER.name(), this::buildProgrammerPanel);
+        deferCard(keypadPanel, Mode.MATRIX.name(),     this::buildMatrixPanel);
+        deferCard(keypadPanel, Mode.GRAPH.name(),      this::buildGraphPanel);
+
+        panel.add(buildDisplay(), BorderLayout.NORTH);
+        panel.add(keypadPanel,    BorderLayout.CENTER);
 
         return panel;
     }
 
+    /** Registers a card for {@link #ensureCard}; CardLayout keeps a card added later hidden. */
+    private void deferCard(JPanel deck, String name, Supplier<JPanel> build) {
+        pendingCards.put(name, () -> {
+            deck.add(build.get(), name);
+            deck.revalidate();
+        });
+    }
+
     // ── Display ────────────────────────────────────────────
     private JPanel buildDisplay() {
         JPanel display = new JPanel();
         display.setLayout(new BoxLayout(display, BoxLayout.Y_AXIS));
-        display.setBackground(BG_DISPLAY);
         display.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createMatteBorder(0, 0, 2, 0, COLOR_EQUALS),
+            BorderFactory.createMatteBorder(0, 0, 2, 0, Theme.EQUALS),
             BorderFactory.createEmptyBorder(18, 22, 14, 22)
         ));
 
         // Top row: MEM indicator + theme toggle
         JPanel topRow = new JPanel(new BorderLayout());
-        topRow.setBackground(BG_DISPLAY);
         topRow.setMaximumSize(new Dimension(Integer.MAX_VALUE, 24));
 
         memLabel = new JLabel("M: 0");
         memLabel.setFont(FONT_EXPR);
-        memLabel.setForeground(COLOR_ACCENT);
+        memLabel.setForeground(Theme.ACCENT);
 
         // JToggleButton — Learn: toggle button
         themeToggle = new JToggleButton("☀");
         themeToggle.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 13));
-        themeToggle.setForeground(TEXT_MUTED);
-        themeToggle.setBackground(BG_DISPLAY);
         themeToggle.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 8));
         themeToggle.setFocusPainted(false);
         themeToggle.addActionListener(e -> toggleTheme());
@@ -247,21 +400,27 @@ public class Calculator extends JFrame {
         // Expression label (shows e.g. "12 + 34 =")
         expressionLabel = new JLabel(" ");
         expressionLabel.setFont(FONT_EXPR);
-        expressionLabel.setForeground(TEXT_EXPR);
         expressionLabel.setAlignmentX(Component.RIGHT_ALIGNMENT);
 
-        // Main display number
-        displayLabel = new JLabel("0");
-        displayLabel.setFont(FONT_DISPLAY);
-        displayLabel.setForeground(TEXT_PRIMARY);
-        displayLabel.setHorizontalAlignment(SwingConstants.RIGHT);
-        displayLabel.setAlignmentX(Component.RIGHT_ALIGNMENT);
+        // Main display number — auto-fits its font to the width (see DisplayView)
+        displayView = new DisplayView(FONT_DISPLAY);
+        displayView.setAlignmentX(Component.RIGHT_ALIGNMENT);
+
+        onTheme(t -> {
+            display.setBackground(t.display);
+            topRow.setBackground(t.display);
+            themeToggle.setText(t.isDark() ? "☀" : "🌙");
+            themeToggle.setForeground(t.textMuted);
+            themeToggle.setBackground(t.display);
+            expressionLabel.setForeground(t.textExpr);
+            if (!engine.hasError()) displayView.setForeground(t.text);
+        });
 
         display.add(topRow);
         display.add(Box.createVerticalStrut(4));
         display.add(expressionLabel);
         display.add(Box.createVerticalStrut(2));
-        display.add(displayLabel);
+        display.add(displayView);
 
         return display;
     }
@@ -269,7 +428,14 @@ public class Calculator extends JFrame {
     // ── Button Grid ────────────────────────────────────────
     private JPanel buildButtonGrid() {
         JPanel grid = new JPanel(new GridLayout(6, 4, 6, 6));
-        grid.setBackground(BG_CALC);
+        onTheme(t -> {
+            grid.setBackground(t.calc);
+            keySprites.clear();
+        });
+        // Key sprites are sized to the buttons; drop them when the grid resizes
+        grid.addComponentListener(new ComponentAdapter() {
+            public void componentResized(ComponentEvent e) { keySprites.clear(); }
+        });
         grid.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
 
         // Button layout:
@@ -301,82 +467,283 @@ public class Calculator extends JFrame {
     private JButton makeButton(String label) {
         JButton btn = new JButton(label);
 
-        // Choose color category
-        Color bg, fg;
-        if (label.equals("=")) {
-            bg = COLOR_EQUALS;
-            fg = Color.WHITE;
-        } else if ("÷×−+".contains(label)) {
-            bg = BG_BTN_OP;
-            fg = COLOR_ACCENT;
-        } else if ("AC±%√".contains(label) || label.startsWith("M")) {
-            bg = BG_BTN_FUNC;
-            fg = new Color(255, 200, 100);
-        } else {
-            bg = BG_BTN_NUM;
-            fg = TEXT_PRIMARY;
-        }
-
         btn.setFont(label.length() > 1 ? FONT_BTN_SM : FONT_BTN);
-        btn.setForeground(fg);
-        btn.setBackground(bg);
         btn.setFocusPainted(false);
         btn.setBorderPainted(false);
         btn.setOpaque(true);
         btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
 
-        // Rounded look via custom painting
-        final Color normalBg  = bg;
-        final Color hoverBg   = brighten(bg, 30);
-        final Color pressedBg = darken(bg, 20);
+        // Colors for the current theme: normal, hover, pressed background + text
+        final Color[] look = new Color[4];
+        onTheme(t -> {
+            Color bg, fg;
+            if (label.equals("=")) {
+                bg = Theme.EQUALS;
+                fg = Color.WHITE;
+            } else if ("÷×−+".contains(label)) {
+                bg = t.btnOp;
+                fg = Theme.ACCENT;
+            } else if (label.length() > 1 || "±%√⌫".contains(label)) {
+                bg = t.btnFunc;
+                fg = Theme.FUNC_KEY;
+            } else {
+                bg = t.btnNum;
+                fg = t.text;
+            }
+            look[0] = bg;
+            look[1] = brighten(bg, 30);
+            look[2] = darken(bg, 20);
+            look[3] = fg;
+            btn.setBackground(bg);
+            btn.setForeground(btn.getModel().isRollover() ? Color.WHITE : fg);
+        });
 
+        // Rounded look via cached sprites (see KeySprites). The sprite is
+        // opaque and covers the whole button, so update() skips the fill.
         btn.setUI(new javax.swing.plaf.basic.BasicButtonUI() {
+            @Override
+            public void update(Graphics g, JComponent c) { paint(g, c); }
+
             @Override
             public void paint(Graphics g, JComponent c) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 ButtonModel model = ((JButton) c).getModel();
-                Color drawBg = model.isPressed() ? pressedBg : model.isRollover() ? hoverBg : normalBg;
-                g2.setColor(drawBg);
-                g2.fillRoundRect(0, 0, c.getWidth(), c.getHeight(), 14, 14);
-                g2.dispose();
+                Color drawBg = model.isPressed() ? look[2] : model.isRollover() ? look[1] : look[0];
+                keySprites.paint(g, look[0], drawBg, c.getWidth(), c.getHeight());
                 super.paint(g, c);
             }
         });
 
-        final Color origFg = fg;
         btn.addMouseListener(new MouseAdapter() {
-            public void mouseEntered(MouseEvent e) { btn.setForeground(label.equals("=") ? Color.WHITE : Color.WHITE); }
-            public void mouseExited(MouseEvent e)  { btn.setForeground(origFg); }
+            public void mouseEntered(MouseEvent e) { btn.setForeground(Color.WHITE); }
+            public void mouseExited(MouseEvent e)  { btn.setForeground(look[3]); }
         });
 
-        btn.addActionListener(e -> handleButton(label));
+        btn.addActionListener(e -> {
+            if (recorder != null) recorder.button(label);
+            handleButton(label);
+        });
         return btn;
     }
+    // ═══════════════════════════════════════════════════════
+    //  PROGRAMMER KEYPAD  — integer bases, bitwise ops, word size
+    // ═══════════════════════════════════════════════════════
+    private static final String[] BASE_NAMES = { "HEX", "DEC", "OCT", "BIN" };
+    private static final int[]    BASES      = { 16, 10, 8, 2 };
+
+    private JPanel buildProgrammerPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 0));
+
+        // Base rows: the value in every base; click one to type in it
+        JPanel bases = new JPanel(new GridLayout(BASES.length, 1, 0, 0));
+        bases.setBorder(BorderFactory.createEmptyBorder(8, 14, 0, 14));
+        baseRows = new JButton[BASES.length];
+        for (int i = 0; i < BASES.length; i++) {
+            final int base = BASES[i];
+            JButton row = new JButton();
+            row.setFont(FONT_HIST);
+            row.setHorizontalAlignment(SwingConstants.LEFT);
+            row.setBorder(BorderFactory.createEmptyBorder(1, 4, 1, 4));
+            row.setContentAreaFilled(false);
+            row.setFocusPainted(false);
+            row.setFocusable(false);
+            row.addActionListener(e -> setRadix(base));
+            baseRows[i] = row;
+            bases.add(row);
+        }
+
+        // Key grid
+        //   AND  OR   XOR  NOT  AC   ⌫
+        //   <<   >>   ROL  ROR  MOD  ÷
+        //   A    B    7    8    9    ×
+        //   C    D    4    5    6    −
+        //   E    F    1    2    3    +
+        //   NAND NOR  WORD 0    ±    =
+        String[][] labels = {
+            { "AND",  "OR",  "XOR",  "NOT", "AC",  "⌫" },
+            { "<<",   ">>",  "ROL",  "ROR", "MOD", "÷" },
+            { "A",    "B",   "7",    "8",   "9",   "×" },
+            { "C",    "D",   "4",    "5",   "6",   "−" },
+            { "E",    "F",   "1",    "2",   "3",   "+" },
+            { "NAND", "NOR", "WORD", "0",   "±",   "=" },
+        };
+        JPanel grid = new JPanel(new GridLayout(6, 6, 5, 5));
+        grid.setBorder(BorderFactory.createEmptyBorder(8, 12, 12, 12));
+        for (String[] row : labels) {
+            for (String label : row) {
+                JButton key = makeButton(label);
+                if (Programmer.digit(label.charAt(0), 16) >= 0 && label.length() == 1) {
+                    progDigitKeys.put(label, key);
+                }
+                if (label.equals("WORD")) wordButton = key;
+                grid.add(key);
+            }
+        }
+
+        panel.add(bases, BorderLayout.NORTH);
+        panel.add(grid,  BorderLayout.CENTER);
+
+        onTheme(t -> {
+            panel.setBackground(t.calc);
+            bases.setBackground(t.calc);
+            grid.setBackground(t.calc);
+            updateBaseRows();
+        });
+        return panel;
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  MATRIX KEYPAD  — editors for A and B, operations, result
+    // ═══════════════════════════════════════════════════════
+    private static final String[] MATRIX_OPS = {
+        "A + B", "A − B", "A × B", "Aᵀ",
+        "det A", "A⁻¹",   "Solve A·x = B", "ANS → A",
+    };
+
+    private JPanel buildMatrixPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 12, 12, 12));
+
+        // Editors: rows on lines (or split by ';'), values by spaces or commas
+        JPanel editors = new JPanel(new GridLayout(1, 2, 8, 0));
+        String[] names = { "A", "B" };
+        String[] samples = { "2 1\n1 3", "3\n5" };
+        JLabel[] heads = new JLabel[2];
+        JScrollPane[] scrolls = new JScrollPane[3];
+        for (int i = 0; i < 2; i++) {
+            final int which = i;
+            JTextArea area = new JTextArea(samples[i]);
+            area.setFont(FONT_HIST);
+            area.getDocument().addDocumentListener(new DocumentListener() {
+                public void insertUpdate(DocumentEvent e)  { edited(); }
+                public void removeUpdate(DocumentEvent e)  { edited(); }
+                public void changedUpdate(DocumentEvent e) { }
+                private void edited() {
+                    matrixParsed[which] = null;
+                    matrixEdits[which]++;
+                }
+            });
+            area.addFocusListener(new FocusAdapter() {
+                public void focusGained(FocusEvent e) { matrixFocus = which; }
+            });
+            matrixEditors[i] = area;
+
+            heads[i] = new JLabel(names[i]);
+            heads[i].setFont(FONT_HEAD);
+            scrolls[i] = new JScrollPane(area);
+            JPanel box = new JPanel(new BorderLayout(0, 2));
+            box.setOpaque(false);
+            box.add(heads[i],   BorderLayout.NORTH);
+            box.add(scrolls[i], BorderLayout.CENTER);
+            editors.add(box);
+        }
+
+        matrixResult = new JTextArea();
+        matrixResult.setFont(FONT_HIST);
+        matrixResult.setEditable(false);
+        scrolls[2] = new JScrollPane(matrixResult);
+
+        JPanel work = new JPanel(new GridLayout(2, 1, 0, 8));
+        work.setOpaque(false);
+        work.add(editors);
+        work.add(scrolls[2]);
+
+        JPanel ops = new JPanel(new GridLayout(2, 4, 5, 5));
+        ops.setPreferredSize(new Dimension(0, 90));
+        for (String label : MATRIX_OPS) ops.add(makeButton(label));
+
+        panel.add(work, BorderLayout.CENTER);
+        panel.add(ops,  BorderLayout.SOUTH);
+
+        onTheme(t -> {
+            panel.setBackground(t.calc);
+            editors.setBackground(t.calc);
+            ops.setBackground(t.calc);
+            for (JLabel h : heads) h.setForeground(t.textMuted);
+            for (JScrollPane sp : scrolls) {
+                sp.setBorder(BorderFactory.createLineBorder(t.border));
+                sp.getViewport().setBackground(t.histItem);
+            }
+            for (JTextArea area : new JTextArea[] { matrixEditors[0], matrixEditors[1], matrixResult }) {
+                area.setBackground(t.histItem);
+                area.setForeground(t.text);
+                area.setCaretColor(t.text);
+                area.setSelectionColor(t.histSel);
+            }
+        });
+        return panel;
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  GRAPH VIEW  — functions of x, sampled and cached by PlotView
+    // ═══════════════════════════════════════════════════════
+    private JPanel buildGraphPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 12, 12, 12));
+
+        // Entry row: one or more functions of x, separated by ';'
+        JPanel entry = new JPanel(new BorderLayout(6, 0));
+        entry.setOpaque(false);
+        JLabel fx = new JLabel("f(x) =");
+        fx.setFont(FONT_HEAD);
+        graphField = new JTextField("sin(x); x^2/4");
+        graphField.setFont(FONT_HIST);
+        graphField.addActionListener(e -> plotFunctions());
+        JButton plotBtn = new JButton("Plot");
+        plotBtn.setFont(FONT_BTN_SM);
+        plotBtn.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 4));
+        plotBtn.setFocusPainted(false);
+        plotBtn.setContentAreaFilled(false);
+        plotBtn.addActionListener(e -> plotFunctions());
+        entry.add(fx,         BorderLayout.WEST);
+        entry.add(graphField, BorderLayout.CENTER);
+        entry.add(plotBtn,    BorderLayout.EAST);
+
+        plotView = new PlotView();
+        plotView.setFont(FONT_EXPR);
+        plotView.onHover = this::graphHover;
+
+        JLabel hint = new JLabel("drag to pan · wheel to zoom · double-click to reset");
+        hint.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        hint.setHorizontalAlignment(SwingConstants.CENTER);
+
+        panel.add(entry,    BorderLayout.NORTH);
+        panel.add(plotView, BorderLayout.CENTER);
+        panel.add(hint,     BorderLayout.SOUTH);
+        plotFunctions();
+
+        onTheme(t -> {
+            panel.setBackground(t.calc);
+            fx.setForeground(t.textMuted);
+            plotBtn.setForeground(Theme.ACCENT);
+            graphField.setBackground(t.histItem);
+            graphField.setForeground(t.text);
+            graphField.setCaretColor(t.text);
+            graphField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(t.border),
+                BorderFactory.createEmptyBorder(3, 6, 3, 6)
+            ));
+            plotView.setBorder(BorderFactory.createLineBorder(t.border));
+            plotView.setTheme(t);
+            hint.setForeground(t.textMuted);
+        });
+        return panel;
+    }
+
     // ═══════════════════════════════════════════════════════
     //  HISTORY PANEL (right side)
     //  Learn: JList, DefaultListModel, JScrollPane
     // ═══════════════════════════════════════════════════════
     private JPanel buildHistoryPanel() {
         JPanel panel = new JPanel(new BorderLayout(0, 0));
-        panel.setBackground(BG_HISTORY);
         panel.setPreferredSize(new Dimension(240, 0));
 
         // Header
         JPanel header = new JPanel(new BorderLayout());
-        header.setBackground(BG_HISTORY);
-        header.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createMatteBorder(0, 1, 2, 0, BORDER_COL),
-            BorderFactory.createEmptyBorder(12, 14, 10, 10)
-        ));
         JLabel title = new JLabel("📜  History");
         title.setFont(FONT_HEAD);
-        title.setForeground(TEXT_MUTED);
 
         JButton clearBtn = new JButton("✕");
         clearBtn.setFont(FONT_BTN_SM);
-        clearBtn.setForeground(TEXT_MUTED);
-        clearBtn.setBackground(BG_HISTORY);
         clearBtn.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 4));
         clearBtn.setFocusPainted(false);
         clearBtn.setContentAreaFilled(false);
@@ -388,45 +755,42 @@ public class Calculator extends JFrame {
 
         // JList — Learn: DefaultListModel + JList
         historyList = new JList<>(listModel);
-        historyList.setBackground(BG_HISTORY);
-        historyList.setForeground(TEXT_PRIMARY);
         historyList.setFont(FONT_HIST);
         historyList.setFixedCellHeight(52);
         historyList.setBorder(BorderFactory.createEmptyBorder(4, 0, 4, 0));
-        historyList.setSelectionBackground(BG_HIST_SEL);
         historyList.setSelectionForeground(Color.WHITE);
 
-        // Custom cell renderer for history items
-        historyList.setCellRenderer(new DefaultListCellRenderer() {
-            @Override
-            public Component getListCellRendererComponent(JList<?> list, Object value,
-                    int index, boolean isSelected, boolean cellHasFocus) {
-
-                JPanel cell = new JPanel();
+        // Custom cell renderer for history items — one cell panel is reused
+        // for every row; colours come from the current theme on each paint
+        historyList.setCellRenderer(new ListCellRenderer<String>() {
+            private final JPanel cell    = new JPanel();
+            private final JLabel exprLbl = new JLabel();
+            private final JLabel resLbl  = new JLabel();
+            {
                 cell.setLayout(new BoxLayout(cell, BoxLayout.Y_AXIS));
-                cell.setBackground(isSelected ? BG_HIST_SEL : (index % 2 == 0 ? BG_HIST_ITEM : BG_HISTORY));
-                cell.setBorder(BorderFactory.createCompoundBorder(
-                    BorderFactory.createMatteBorder(0, 3, 0, 0, isSelected ? COLOR_EQUALS : BG_HISTORY),
-                    BorderFactory.createEmptyBorder(7, 10, 7, 10)
-                ));
-
-                String entry = value.toString();
-                String[] parts = entry.split("=");
-                String expr = parts[0].trim();
-                String res  = parts.length > 1 ? "= " + parts[1].trim() : "";
-
-                JLabel exprLbl = new JLabel(expr);
                 exprLbl.setFont(FONT_HIST);
-                exprLbl.setForeground(isSelected ? TEXT_EXPR : TEXT_MUTED);
                 exprLbl.setAlignmentX(LEFT_ALIGNMENT);
-
-                JLabel resLbl = new JLabel(res);
                 resLbl.setFont(FONT_HIST_RES);
-                resLbl.setForeground(isSelected ? Color.WHITE : TEXT_PRIMARY);
                 resLbl.setAlignmentX(LEFT_ALIGNMENT);
-
                 cell.add(exprLbl);
                 cell.add(resLbl);
+            }
+
+            @Override
+            public Component getListCellRendererComponent(JList<? extends String> list, String value,
+                    int index, boolean isSelected, boolean cellHasFocus) {
+                Theme t = theme;
+                cell.setBackground(isSelected ? t.histSel : (index % 2 == 0 ? t.histItem : t.history));
+                cell.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createMatteBorder(0, 3, 0, 0, isSelected ? Theme.EQUALS : t.history),
+                    BorderFactory.createEmptyBorder(7, 10, 7, 10)
+                ));
+
+                String[] parts = value.split("=");
+                exprLbl.setText(parts[0].trim());
+                exprLbl.setForeground(isSelected ? t.textExpr : t.textMuted);
+                resLbl.setText(parts.length > 1 ? "= " + parts[1].trim() : "");
+                resLbl.setForeground(isSelected ? Color.WHITE : t.text);
                 return cell;
             }
         });
@@ -438,8 +802,8 @@ public class Calculator extends JFrame {
                     String selected = historyList.getSelectedValue();
                     if (selected != null) {
                         String[] parts = selected.split("=");
-                        if (parts.length > 1) {
-                            currentInput = parts[1].trim();
+                        if (parts.length > 1 && !engine.hasError() && input.load(parts[1].trim())) {
+                            engine.freshResult = true;
                             updateDisplay();
                         }
                     }
@@ -449,29 +813,366 @@ public class Calculator extends JFrame {
 
         // JScrollPane wrapping the JList
         JScrollPane scroll = new JScrollPane(historyList);
-        scroll.setBorder(BorderFactory.createMatteBorder(0, 1, 0, 0, BORDER_COL));
-        scroll.setBackground(BG_HISTORY);
-        scroll.getViewport().setBackground(BG_HISTORY);
-        scroll.getVerticalScrollBar().setBackground(BG_HISTORY);
 
         // Footer hint
         JLabel hint = new JLabel("Double-click to restore result");
         hint.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-        hint.setForeground(TEXT_MUTED);
         hint.setHorizontalAlignment(SwingConstants.CENTER);
-        hint.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createMatteBorder(1, 1, 0, 0, BORDER_COL),
-            BorderFactory.createEmptyBorder(5, 0, 5, 0)
-        ));
-        hint.setBackground(BG_HISTORY);
         hint.setOpaque(true);
 
+        onTheme(t -> {
+            panel.setBackground(t.history);
+            header.setBackground(t.history);
+            header.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 1, 2, 0, t.border),
+                BorderFactory.createEmptyBorder(12, 14, 10, 10)
+            ));
+            title.setForeground(t.textMuted);
+            clearBtn.setForeground(t.textMuted);
+            clearBtn.setBackground(t.history);
+            historyList.setBackground(t.history);
+            historyList.setForeground(t.text);
+            historyList.setSelectionBackground(t.histSel);
+            scroll.setBorder(BorderFactory.createMatteBorder(0, 1, 0, 0, t.border));
+            scroll.setBackground(t.history);
+            scroll.getViewport().setBackground(t.history);
+            scroll.getVerticalScrollBar().setBackground(t.history);
+            hint.setForeground(t.textMuted);
+            hint.setBackground(t.history);
+            hint.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 1, 0, 0, t.border),
+                BorderFactory.createEmptyBorder(5, 0, 5, 0)
+            ));
+        });
+
         panel.add(header, BorderLayout.NORTH);
         panel.add(scroll,  BorderLayout.CENTER);
         panel.add(hint,    BorderLayout.SOUTH);
 
         return panel;
     }
+    // ═══════════════════════════════════════════════════════
+    //  STATISTICS PANEL (right side in statistics mode)
+    //  Learn: AbstractListModel over a primitive array
+    // ═══════════════════════════════════════════════════════
+    private static final String[] STAT_NAMES = {
+        "n", "Σ", "Mean", "Std dev", "Min", "Max", "Median ≈", "P90 ≈", "P99 ≈"
+    };
+
+    private JPanel buildStatsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 0));
+
+        // Header
+        JPanel header = new JPanel(new BorderLayout());
+        JLabel title = new JLabel("📊  Statistics");
+        title.setFont(FONT_HEAD);
+
+        JButton undoBtn = new JButton("↶");
+        undoBtn.setToolTipText("Remove last value");
+        undoBtn.addActionListener(e -> removeDataPoint());
+        JButton clearBtn = new JButton("✕");
+        clearBtn.setToolTipText("Clear data");
+        clearBtn.addActionListener(e -> clearData());
+        JPanel actions = new JPanel(new GridLayout(1, 2, 2, 0));
+        actions.setOpaque(false);
+        for (JButton b : new JButton[] { undoBtn, clearBtn }) {
+            b.setFont(FONT_BTN_SM);
+            b.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 4));
+            b.setFocusPainted(false);
+            b.setContentAreaFilled(false);
+            actions.add(b);
+        }
+        header.add(title,   BorderLayout.WEST);
+        header.add(actions, BorderLayout.EAST);
+
+        // Summary — one label pair per aggregate
+        JPanel summary = new JPanel(new GridLayout(STAT_NAMES.length, 2, 6, 2));
+        summary.setBorder(BorderFactory.createEmptyBorder(8, 14, 8, 14));
+        JLabel[] names = new JLabel[STAT_NAMES.length];
+        statLabels = new JLabel[STAT_NAMES.length];
+        for (int i = 0; i < STAT_NAMES.length; i++) {
+            names[i] = new JLabel(STAT_NAMES[i]);
+            names[i].setFont(FONT_HIST);
+            statLabels[i] = new JLabel("—", SwingConstants.RIGHT);
+            statLabels[i].setFont(FONT_HIST_RES);
+            summary.add(names[i]);
+            summary.add(statLabels[i]);
+        }
+
+        // Data list — rows are formatted only when painted
+        dataModel = new DataListModel();
+        dataList = new JList<>(dataModel);
+        dataList.setFont(FONT_HIST);
+        dataList.setFixedCellHeight(20);
+        dataList.setPrototypeCellValue("00000000000000");
+        JScrollPane scroll = new JScrollPane(dataList);
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(header,  BorderLayout.NORTH);
+        top.add(summary, BorderLayout.CENTER);
+
+        JLabel hint = new JLabel("= / Enter adds the value · paste adds a column");
+        hint.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        hint.setHorizontalAlignment(SwingConstants.CENTER);
+        hint.setOpaque(true);
+
+        panel.add(top,    BorderLayout.NORTH);
+        panel.add(scroll, BorderLayout.CENTER);
+        panel.add(hint,   BorderLayout.SOUTH);
+
+        onTheme(t -> {
+            panel.setBackground(t.history);
+            top.setBackground(t.history);
+            header.setBackground(t.history);
+            header.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 1, 2, 0, t.border),
+                BorderFactory.createEmptyBorder(12, 14, 10, 10)
+            ));
+            title.setForeground(t.textMuted);
+            undoBtn.setForeground(t.textMuted);
+            clearBtn.setForeground(t.textMuted);
+            summary.setBackground(t.history);
+            for (int i = 0; i < names.length; i++) {
+                names[i].setForeground(t.textMuted);
+                statLabels[i].setForeground(t.text);
+            }
+            dataList.setBackground(t.histItem);
+            dataList.setForeground(t.text);
+            dataList.setSelectionBackground(t.histSel);
+            scroll.setBorder(BorderFactory.createMatteBorder(1, 1, 0, 0, t.border));
+            scroll.getViewport().setBackground(t.histItem);
+            hint.setForeground(t.textMuted);
+            hint.setBackground(t.history);
+            hint.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 1, 0, 0, t.border),
+                BorderFactory.createEmptyBorder(5, 0, 5, 0)
+            ));
+        });
+        return panel;
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  DEFINITIONS PANEL (right side, any mode)
+    //  Learn: a dependency graph behind a plain JTextArea
+    // ═══════════════════════════════════════════════════════
+    private JPanel buildDefsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 0));
+
+        // Header
+        JPanel header = new JPanel(new BorderLayout());
+        JLabel title = new JLabel("𝑓  Definitions");
+        title.setFont(FONT_HEAD);
+        JButton applyBtn = new JButton("▶");
+        applyBtn.setFont(FONT_BTN_SM);
+        applyBtn.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 4));
+        applyBtn.setFocusPainted(false);
+        applyBtn.setContentAreaFilled(false);
+        applyBtn.setToolTipText("Apply definitions (Ctrl+Enter)");
+        applyBtn.addActionListener(e -> applyDefinitions());
+        header.add(title,    BorderLayout.WEST);
+        header.add(applyBtn, BorderLayout.EAST);
+
+        // Editor: one definition per line; only what changed is recomputed
+        defsEditor = new JTextArea(
+            "rate = 0.18\n"
+            + "tax(x) = x*rate\n"
+            + "qty = 3\n"
+            + "price = 250\n"
+            + "subtotal = qty*price\n"
+            + "total = subtotal + tax(subtotal)\n");
+        defsEditor.setFont(FONT_HIST);
+        defsEditor.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, InputEvent.CTRL_DOWN_MASK), "apply");
+        defsEditor.getActionMap().put("apply", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) { applyDefinitions(); }
+        });
+        JScrollPane editorScroll = new JScrollPane(defsEditor);
+
+        // Current values
+        JList<String> values = new JList<>(defsModel);
+        values.setFont(FONT_HIST);
+        values.setFixedCellHeight(20);
+        JScrollPane valuesScroll = new JScrollPane(values);
+
+        JPanel body = new JPanel(new GridLayout(2, 1, 0, 0));
+        body.add(editorScroll);
+        body.add(valuesScroll);
+
+        // Evaluate an expression over the definitions
+        JTextField evalField = new JTextField();
+        evalField.setFont(FONT_HIST);
+        evalField.setToolTipText("Expression using the definitions, e.g. total / qty");
+        evalField.addActionListener(e -> evaluateDefinition(evalField.getText()));
+
+        cacheLabel = new JLabel(" ");
+        cacheLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        cacheLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        cacheLabel.setOpaque(true);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(evalField,  BorderLayout.NORTH);
+        bottom.add(cacheLabel, BorderLayout.SOUTH);
+
+        panel.add(header, BorderLayout.NORTH);
+        panel.add(body,   BorderLayout.CENTER);
+        panel.add(bottom, BorderLayout.SOUTH);
+        applyDefinitions();
+
+        onTheme(t -> {
+            panel.setBackground(t.history);
+            header.setBackground(t.history);
+            header.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 1, 2, 0, t.border),
+                BorderFactory.createEmptyBorder(12, 14, 10, 10)
+            ));
+            title.setForeground(t.textMuted);
+            applyBtn.setForeground(Theme.ACCENT);
+            for (JComponent c : new JComponent[] { defsEditor, values, evalField }) {
+                c.setBackground(t.histItem);
+                c.setForeground(t.text);
+            }
+            defsEditor.setCaretColor(t.text);
+            evalField.setCaretColor(t.text);
+            evalField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 1, 0, 0, t.border),
+                BorderFactory.createEmptyBorder(5, 8, 5, 8)
+            ));
+            values.setSelectionBackground(t.histSel);
+            editorScroll.setBorder(BorderFactory.createMatteBorder(0, 1, 0, 0, t.border));
+            valuesScroll.setBorder(BorderFactory.createMatteBorder(1, 1, 0, 0, t.border));
+            cacheLabel.setForeground(t.textMuted);
+            cacheLabel.setBackground(t.history);
+            cacheLabel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 1, 0, 0, t.border),
+                BorderFactory.createEmptyBorder(5, 0, 5, 0)
+            ));
+        });
+        return panel;
+    }
+
+    private void toggleDefinitions() {
+        ensureCard("DEFS");
+        showingDefs = !showingDefs;
+        sideCards.show(sidePanel, showingDefs ? "DEFS" : sideCardFor(mode));
+        if (!sidePanel.isVisible()) toggleHistoryPanel();
+    }
+
+    private static String sideCardFor(Mode m) {
+        return m == Mode.STATISTICS ? m.name() : Mode.STANDARD.name();
+    }
+
+    private void applyDefinitions() {
+        try {
+            workspace.apply(defsEditor.getText());
+        } catch (IllegalArgumentException ex) {
+            if (displayView != null) showToast(ex.getMessage());
+        }
+        defsModel.clear();
+        for (Workspace.Definition d : workspace.definitions()) {
+            defsModel.addElement(d.isFunction() ? d.toString() : d.name + " = " + formatNum(d.value));
+        }
+        // Plots may call these functions; replot against the new definitions
+        if (plotView != null) plotFunctions();
+        updateCacheLabel();
+    }
+
+    private void evaluateDefinition(String expr) {
+        if (expr.isBlank()) return;
+        double v;
+        try {
+            v = workspace.evaluate(expr);
+        } catch (IllegalArgumentException ex) {
+            showToast(ex.getMessage());
+            return;
+        }
+        addHistory(expr.trim() + "  =  " + formatNum(v));
+        if ((mode == Mode.STANDARD || mode == Mode.STATISTICS) && Double.isFinite(v)) {
+            clearError();
+            setResult(v);
+            engine.freshResult = true;
+            updateDisplay();
+        }
+        updateCacheLabel();
+    }
+
+    private void updateCacheLabel() {
+        MemoCache c = workspace.cache;
+        cacheLabel.setText(String.format("cache %,d hits · %,d misses · %.0f%% · %,d recomputed",
+                                         c.hits, c.misses, c.hitRate() * 100, workspace.recomputed));
+    }
+
+    /** JList model over the Stats array; nothing is copied or boxed up front. */
+    private final class DataListModel extends AbstractListModel<String> {
+        @Override public int getSize() { return stats.count(); }
+
+        @Override
+        public String getElementAt(int i) {
+            return String.format("%,d.  %s", i + 1, formatNum(stats.get(i)));
+        }
+
+        void added(int from, int to) { if (to >= from) fireIntervalAdded(this, from, to); }
+        void removed(int from, int to) { if (to >= from) fireIntervalRemoved(this, from, to); }
+    }
+
+    private void setMode(Mode m) {
+        if (m == mode) return;
+        // The value on display carries across: truncated to an integer
+        // entering programmer mode, exact leaving it
+        if (m == Mode.PROGRAMMER && !engine.hasError()) {
+            double v = input.value();
+            progEntry = prog.fit(Double.isFinite(v) ? (long) v : 0);
+            progAcc = 0;
+            progOp = "";
+            progFresh = true;
+        } else if (mode == Mode.PROGRAMMER && !engine.hasError()) {
+            setResult(progEntry);
+            engine.operator = "";
+            engine.expression = "";
+            engine.freshResult = true;
+        }
+        ensureCard(m.name());
+        mode = m;
+        if (recorder != null) recorder.mode(m.name());
+        keypadCards.show(keypadPanel, m == Mode.STANDARD || m == Mode.STATISTICS ? Mode.STANDARD.name() : m.name());
+        showingDefs = false;
+        sideCards.show(sidePanel, sideCardFor(m));
+        if (!sidePanel.isVisible()) toggleHistoryPanel();
+        if (m == Mode.STATISTICS) updateStats();
+        if (m == Mode.PROGRAMMER) setRadix(prog.radix);
+        updateDisplay();
+    }
+
+    private void addDataPoint(double value) {
+        stats.add(value);
+        int last = stats.count() - 1;
+        dataModel.added(last, last);
+        dataList.ensureIndexIsVisible(last);
+        updateStats();
+    }
+
+    private void removeDataPoint() {
+        if (stats.count() == 0) return;
+        stats.removeLast();
+        dataModel.removed(stats.count(), stats.count());
+        updateStats();
+    }
+
+    private void clearData() {
+        int n = stats.count();
+        stats.clear();
+        dataModel.removed(0, n - 1);
+        updateStats();
+    }
+
+    private void updateStats() {
+        double[] v = {
+            stats.count(), stats.sum(), stats.mean(), stats.stdDev(), stats.min(), stats.max(),
+            stats.quantile(0.5), stats.quantile(0.9), stats.quantile(0.99)
+        };
+        for (int i = 0; i < v.length; i++) {
+            statLabels[i].setText(Double.isNaN(v[i]) ? "—" : formatNum(v[i]));
+        }
+    }
+
     // ═══════════════════════════════════════════════════════
     //  KEYBOARD LISTENER — Learn: KeyAdapter
     // ═══════════════════════════════════════════════════════
@@ -480,17 +1181,14 @@ public class Calculator extends JFrame {
             public void keyPressed(KeyEvent e) {
                 int code = e.getKeyCode();
                 char ch  = e.getKeyChar();
-
-                if (ch >= '0' && ch <= '9')            handleButton(String.valueOf(ch));
-                else if (ch == '+')                    handleButton("+");
-                else if (ch == '-')                    handleButton("−");
-                else if (ch == '*')                    handleButton("×");
-                else if (ch == '/')                    handleButton("÷");
-                else if (ch == '.')                    handleButton(".");
-                else if (ch == '%')                    handleButton("%");
-                else if (ch == '\n' || ch == '=')      handleButton("=");
-                else if (code == KeyEvent.VK_BACK_SPACE) backspace();
-                else if (code == KeyEvent.VK_ESCAPE)   handleButton("AC");
+                if (recorder != null) recorder.key(code, ch, e.getModifiersEx());
+                if (mode == Mode.PROGRAMMER && programmerKey(ch, code)) return;
+                // Matrix and graph modes are typed into their fields; only Esc and Ctrl keys reach here
+                if ((mode == Mode.MATRIX || mode == Mode.GRAPH)
+                        && !e.isControlDown() && code != KeyEvent.VK_ESCAPE) return;
+
+                String action = e.isControlDown() ? null : CalcEngine.keyAction(code, ch);
+                if (action != null)                    handleButton(action);
                 else if (e.isControlDown() && code == KeyEvent.VK_C) copyToClipboard();
                 else if (e.isControlDown() && code == KeyEvent.VK_V) pasteFromClipboard();
             }
@@ -498,144 +1196,419 @@ public class Calculator extends JFrame {
         setFocusable(true);
     }
 
+    /** Programmer-mode keys: hex digits and & | ^ ~ % < > as operators. */
+    private boolean programmerKey(char ch, int code) {
+        String label;
+        if (Programmer.digit(ch, 16) >= 0)      label = String.valueOf(Character.toUpperCase(ch));
+        else if (code == KeyEvent.VK_BACK_SPACE) label = "⌫";
+        else if (code == KeyEvent.VK_ESCAPE)     label = "AC";
+        else switch (ch) {
+            case '&':  label = "AND"; break;
+            case '|':  label = "OR";  break;
+            case '^':  label = "XOR"; break;
+            case '~':  label = "NOT"; break;
+            case '%':  label = "MOD"; break;
+            case '<':  label = "<<";  break;
+            case '>':  label = ">>";  break;
+            case '+':  label = "+";   break;
+            case '-':  label = "−";   break;
+            case '*':  label = "×";   break;
+            case '/':  label = "÷";   break;
+            case '\n': case '=': label = "="; break;
+            default:   return false;
+        }
+        handleButton(label);
+        return true;
+    }
+
     // ═══════════════════════════════════════════════════════
     //  BUTTON HANDLER — Core Logic
     // ═══════════════════════════════════════════════════════
     private void handleButton(String label) {
-        if (hasError && !label.equals("AC")) return;
+        long start = System.nanoTime();
+        try {
+            if (mode == Mode.MATRIX) { handleMatrix(label); return; }
+            if (mode == Mode.GRAPH) {
+                if (label.equals("AC")) { clearError(); plotView.resetView(); updateDisplay(); }
+                return;
+            }
+            if (engine.hasError() && !label.equals("AC")) return;
+            if (mode == Mode.PROGRAMMER) { handleProgrammer(label); return; }
+
+            engine.press(label);
+            updateDisplay();
+            if (label.startsWith("M")) updateMemLabel();
+        } finally {
+            buttonLatency.since(start);
+        }
+    }
 
+    // ── Programmer keys — pure long arithmetic, no double ─
+    private void handleProgrammer(String label) {
+        int d = label.length() == 1 ? Programmer.digit(label.charAt(0), prog.radix) : -1;
+        if (d >= 0) {
+            if (progFresh) { progEntry = 0; progFresh = false; }
+            progEntry = prog.appendDigit(progEntry, d);
+            updateDisplay();
+            return;
+        }
         switch (label) {
-            // ── Digits & Decimal ──────────────────────────
-            case "0": case "1": case "2": case "3": case "4":
-            case "5": case "6": case "7": case "8": case "9":
-                if (freshResult) { currentInput = label; freshResult = false; }
-                else currentInput = currentInput.equals("0") ? label : currentInput + label;
-                updateDisplay();
+            case "+": case "−": case "×": case "÷": case "MOD":
+            case "AND": case "OR": case "XOR": case "NAND": case "NOR":
+            case "<<": case ">>": case "ROL": case "ROR":
+                if (!progOp.isEmpty() && !progFresh && !progCalculate()) return;
+                progAcc   = progEntry;
+                progOp    = label;
+                progFresh = true;
                 break;
 
-            case ".":
-                if (freshResult) { currentInput = "0."; freshResult = false; }
-                else if (!currentInput.contains(".")) currentInput += ".";
-                updateDisplay();
+            case "=":
+                if (progOp.isEmpty()) return;
+                String expr = prog.tagged(progAcc) + " " + progOp + " " + prog.tagged(progEntry);
+                if (!progCalculate()) return;
+                addHistory(expr + "  =  " + prog.tagged(progEntry));
+                progOp    = "";
+                progFresh = true;
                 break;
 
-            // ── Operators ────────────────────────────────
-            case "+": case "−": case "×": case "÷":
-                if (!operator.isEmpty() && !freshResult) {
-                    calculate();
-                }
-                operand1    = parseDouble(currentInput);
-                operator    = label;
-                expression  = formatNum(operand1) + " " + label;
-                freshResult = true;
-                updateDisplay();
+            case "NOT":
+                progEntry = prog.not(progEntry);
+                progFresh = true;
                 break;
-
-            // ── Equals ───────────────────────────────────
-            case "=":
-                if (operator.isEmpty()) break;
-                String fullExpr = expression + " " + currentInput;
-                calculate();
-                addHistory(fullExpr + "  =  " + currentInput);
-                operator    = "";
-                expression  = "";
-                freshResult = true;
-                updateDisplay();
+            case "±":
+                progEntry = prog.fit(-progEntry);
+                break;
+            case "⌫":
+                progEntry = progFresh ? 0 : prog.dropDigit(progEntry);
+                progFresh = false;
                 break;
-
-            // ── Clear ────────────────────────────────────
             case "AC":
-                currentInput = "0";
-                expression   = "";
-                operator     = "";
-                operand1     = 0;
-                freshResult  = false;
-                hasError     = false;
-                updateDisplay();
+                progEntry = progAcc = 0;
+                progOp    = "";
+                progFresh = false;
+                engine.clearError();
+                displayView.setForeground(theme.text);
                 break;
-
-            // ── Sign Toggle ───────────────────────────────
-            case "±":
-                double val = parseDouble(currentInput);
-                currentInput = formatNum(-val);
-                updateDisplay();
+            case "WORD":
+                prog.nextWordSize();
+                progEntry = prog.fit(progEntry);
+                progAcc   = prog.fit(progAcc);
                 break;
+            default:
+                return;
+        }
+        updateDisplay();
+    }
 
-            // ── Percentage ────────────────────────────────
-            case "%":
-                currentInput = formatNum(parseDouble(currentInput) / 100);
-                updateDisplay();
-                break;
+    /** Applies the pending programmer operation into progEntry; false on error. */
+    private boolean progCalculate() {
+        try {
+            progEntry = prog.apply(progOp, progAcc, progEntry);
+            return true;
+        } catch (ArithmeticException ex) {
+            showError("Error: ÷ by 0");
+            progEntry = progAcc = 0;
+            progOp = "";
+            return false;
+        }
+    }
 
-            // ── Square Root ───────────────────────────────
-            case "√":
-                double sqVal = parseDouble(currentInput);
-                if (sqVal < 0) { showError("Error: √negative"); break; }
-                String sqExpr = "√(" + currentInput + ")";
-                currentInput = formatNum(Math.sqrt(sqVal));
-                addHistory(sqExpr + "  =  " + currentInput);
-                freshResult = true;
-                updateDisplay();
-                break;
+    // ── Matrix keys — parsed and computed off the EDT ─────
+    private void handleMatrix(String label) {
+        if (label.equals("AC")) {
+            matrixAns   = null;
+            matrixValue = "0";
+            matrixExpr  = "";
+            matrixResult.setText("");
+            clearError();
+            updateDisplay();
+            return;
+        }
+        if (label.equals("ANS → A")) {
+            if (matrixAns == null) return;
+            matrixEditors[0].setText(matrixText(matrixAns));
+            matrixParsed[0] = matrixAns;           // exact values, no re-parse
+            return;
+        }
+        if (matrixWorker != null || !java.util.Arrays.asList(MATRIX_OPS).contains(label)) return;
+        boolean binary = label.startsWith("A ") || label.startsWith("Solve");
+
+        // Snapshot on the EDT: cached matrices, else the editor text
+        Matrix a0 = matrixParsed[0], b0 = binary ? matrixParsed[1] : null;
+        String aText = a0 == null ? matrixEditors[0].getText() : null;
+        String bText = binary && b0 == null ? matrixEditors[1].getText() : null;
+        int aEdits = matrixEdits[0], bEdits = matrixEdits[1];
+        Matrix[] operands = new Matrix[2];
+        long[] nanos = new long[1];
+        expressionLabel.setText(label + "  …");
+
+        matrixWorker = new SwingWorker<Object, Void>() {
+            @Override
+            protected Object doInBackground() {
+                Matrix a = operands[0] = a0 != null ? a0 : Matrix.parse(aText);
+                Matrix b = operands[1] = !binary ? null : b0 != null ? b0 : Matrix.parse(bText);
+                long start = System.nanoTime();
+                Object r;
+                switch (label) {
+                    case "A + B": r = a.plus(b);        break;
+                    case "A − B": r = a.minus(b);       break;
+                    case "A × B": r = a.times(b);       break;
+                    case "Aᵀ":    r = a.transpose();    break;
+                    case "det A": r = a.determinant();  break;
+                    case "A⁻¹":   r = a.inverse();      break;
+                    default:      r = a.solve(b);       break;
+                }
+                nanos[0] = System.nanoTime() - start;
+                return r;
+            }
 
-            // ── Memory ───────────────────────────────────
-            case "MC": memory = 0; updateMemLabel(); break;
-            case "MR":
-                currentInput = formatNum(memory);
-                freshResult  = true;
+            @Override
+            protected void done() {
+                matrixWorker = null;
+                if (mode != Mode.MATRIX) return;
+                clearError();
+                // Keep what was parsed unless the editor changed meanwhile
+                if (operands[0] != null && matrixEdits[0] == aEdits) matrixParsed[0] = operands[0];
+                if (operands[1] != null && matrixEdits[1] == bEdits) matrixParsed[1] = operands[1];
+                Object r;
+                try {
+                    r = get();
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    matrixExpr = label;
+                    showError(cause instanceof OutOfMemoryError ? "Error: too large" : "Error: " + cause.getMessage());
+                    expressionLabel.setText(label);
+                    return;
+                }
+                String took = String.format("%.1f ms", nanos[0] / 1e6);
+                matrixExpr = label + "  ·  " + took;
+                Matrix a = operands[0];
+                if (r instanceof Double) {
+                    double det = (Double) r;
+                    matrixAns = null;
+                    matrixValue = formatNum(det);
+                    matrixResult.setText("det A (" + a.size() + ")  =  " + matrixValue);
+                    addHistory("det " + matrixInline(a) + "  =  " + matrixValue);
+                    if (Double.isFinite(det)) setResult(det);
+                } else {
+                    Matrix m = (Matrix) r;
+                    matrixAns = m;
+                    matrixValue = m.rows * m.cols == 1 ? formatNum(m.a[0]) : m.size();
+                    matrixResult.setText(matrixGrid(m));
+                    matrixResult.setCaretPosition(0);
+                    addHistory(label.replace("A", matrixInline(a))
+                                    .replace("B", binary ? matrixInline(operands[1]) : "")
+                               + "  =  " + matrixInline(m));
+                    if (m.rows * m.cols == 1) setResult(m.a[0]);
+                }
+                engine.freshResult = true;
                 updateDisplay();
-                break;
-            case "M+": memory += parseDouble(currentInput); updateMemLabel(); break;
-            case "M−": memory -= parseDouble(currentInput); updateMemLabel(); break;
-        }
+            }
+        };
+        matrixWorker.execute();
     }
 
-    // ── Perform the pending calculation ───────────────────
-    private void calculate() {
-        double operand2 = parseDouble(currentInput);
-        double result;
+    private void clearError() {
+        if (!engine.hasError()) return;
+        engine.clearError();
+        displayView.setForeground(theme.text);
+    }
+
+    // ── Graph — compile the entry, then PlotView samples it ─
+    private void plotFunctions() {
+        String[] parts = graphField.getText().split(";");
+        ArrayList<Formula> fs = new ArrayList<>();
         try {
-            switch (operator) {
-                case "+": result = operand1 + operand2; break;
-                case "−": result = operand1 - operand2; break;
-                case "×": result = operand1 * operand2; break;
-                case "÷":
-                    if (operand2 == 0) { showError("Error: ÷ by 0"); return; }
-                    result = operand1 / operand2;
-                    break;
-                default: return;
+            for (String part : parts) {
+                if (!part.isBlank()) fs.add(Formula.compile(part.trim(), workspace, "x"));
+            }
+            if (fs.size() > PlotView.MAX_FUNCTIONS) {
+                throw new IllegalArgumentException("At most " + PlotView.MAX_FUNCTIONS + " functions");
             }
-            currentInput = formatNum(result);
-        } catch (Exception e) {
-            showError("Error");
+        } catch (IllegalArgumentException ex) {
+            // the old curves may read definitions that are gone; don't leave them up
+            plotView.setFunctions(new Formula[0]);
+            if (mode == Mode.GRAPH) showError("Error: " + ex.getMessage());
+            return;
         }
+        if (mode == Mode.GRAPH) clearError();
+        plotView.setFunctions(fs.toArray(new Formula[0]));
+        graphValue = "0";
+        graphExpr  = fs.isEmpty() ? "" : "f(x) = " + fs.get(0);
+        if (mode == Mode.GRAPH) updateDisplay();
     }
 
-    // ── Backspace ─────────────────────────────────────────
-    private void backspace() {
-        if (freshResult || currentInput.length() <= 1) {
-            currentInput = "0";
+    /** Shows the first function's value under the mouse; NaN x means it left. */
+    private void graphHover(double x) {
+        if (engine.hasError() || plotView.functionCount() == 0) return;
+        if (Double.isNaN(x)) {
+            graphValue = "0";
+            graphExpr  = "f(x) = " + graphField.getText().split(";")[0].trim();
         } else {
-            currentInput = currentInput.substring(0, currentInput.length() - 1);
-            if (currentInput.equals("-")) currentInput = "0";
+            // round x to about a pixel's worth of digits
+            double x3 = Math.round(x * 1000) / 1000.0;
+            graphValue = formatNum(plotView.valueAt(0, x3));
+            graphExpr  = "f(" + formatNum(x3) + ")";
+        }
+        updateDisplay();
+    }
+
+    /** Compact form for history: the values when small, the size otherwise. */
+    private String matrixInline(Matrix m) {
+        if (m.rows * m.cols > 12) return "[" + m.size() + "]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < m.rows; i++) {
+            if (i > 0) sb.append("; ");
+            for (int j = 0; j < m.cols; j++) {
+                if (j > 0) sb.append(' ');
+                sb.append(formatNum(m.get(i, j)));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Every value, one row per line — what the editors parse and Ctrl+C copies. */
+    private String matrixText(Matrix m) {
+        StringBuilder sb = new StringBuilder(m.a.length * 8);
+        for (int i = 0; i < m.rows; i++) {
+            for (int j = 0; j < m.cols; j++) {
+                if (j > 0) sb.append(' ');
+                sb.append(formatNum(m.get(i, j)));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Aligned columns for the result view, cut to the first 20 rows × 8 columns. */
+    private String matrixGrid(Matrix m) {
+        int rows = Math.min(m.rows, 20), cols = Math.min(m.cols, 8);
+        String[] cells = new String[rows * cols];
+        int width = 1;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                String c = formatNum(m.get(i, j));
+                cells[i * cols + j] = c;
+                width = Math.max(width, c.length());
+            }
+        }
+        StringBuilder sb = new StringBuilder(m.size()).append('\n');
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                String c = cells[i * cols + j];
+                for (int pad = width - c.length() + 2; pad > 0; pad--) sb.append(' ');
+                sb.append(c);
+            }
+            if (cols < m.cols) sb.append("  …");
+            sb.append('\n');
+        }
+        if (rows < m.rows) sb.append("  ⋮\n");
+        return sb.toString();
+    }
+
+    private void setRadix(int radix) {
+        prog.radix = radix;
+        for (java.util.Map.Entry<String, JButton> e : progDigitKeys.entrySet()) {
+            e.getValue().setEnabled(Programmer.digit(e.getKey().charAt(0), radix) >= 0);
         }
+        progFresh = true;
         updateDisplay();
     }
 
+    private void updateBaseRows() {
+        if (baseRows == null) return;
+        for (int i = 0; i < BASES.length; i++) {
+            boolean current = BASES[i] == prog.radix;
+            baseRows[i].setText(BASE_NAMES[i] + "   " + prog.toString(progEntry, BASES[i]));
+            baseRows[i].setForeground(current ? Theme.ACCENT : theme.textMuted);
+        }
+        wordButton.setText(prog.wordName());
+    }
+
+    /** Shows a computed value; later reads get the exact double back. */
+    private void setResult(double v) {
+        engine.setResult(v);
+    }
+
+    // ── Session recording & replay ────────────────────────
+    private void toggleRecording() {
+        if (recorder != null) {
+            SessionLog log = recorder;
+            recorder = null;
+            recordItem.setText("⏺  Record Session…");
+            try {
+                log.close();
+                showToast(String.format("Recorded %,d events", log.events()));
+            } catch (IOException ex) {
+                showToast("Recording failed: " + ex.getMessage());
+            }
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("session.csl"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            recorder = new SessionLog(chooser.getSelectedFile().toPath(), engine.state());
+            recorder.mode(mode.name());
+            recordItem.setText("⏹  Stop Recording");
+        } catch (IOException ex) {
+            showToast("Can't record: " + ex.getMessage());
+        }
+    }
+
+    /** Replays a recording headlessly against a fresh engine and shows the report. */
+    private void replaySession() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        new SwingWorker<SessionReplay.Report, Void>() {
+            @Override
+            protected SessionReplay.Report doInBackground() throws IOException {
+                SessionReplay replay = SessionReplay.load(file);
+                replay.run();                       // warm-up pass
+                return replay.run();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    JTextArea text = new JTextArea(get().toString());
+                    text.setFont(FONT_HIST);
+                    text.setEditable(false);
+                    JOptionPane.showMessageDialog(Calculator.this, text,
+                        "▶  Replay of " + file.getFileName(), JOptionPane.PLAIN_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showToast("Can't replay: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
     // ═══════════════════════════════════════════════════════
     //  DISPLAY & HISTORY UPDATES
     // ═══════════════════════════════════════════════════════
     private void updateDisplay() {
-        // Shrink font if number is long
-        String text = currentInput;
-        int len = text.length();
-        if (len > 14)      displayLabel.setFont(new Font("Segoe UI", Font.BOLD, 18));
-        else if (len > 10) displayLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
-        else if (len > 7)  displayLabel.setFont(new Font("Segoe UI", Font.BOLD, 30));
-        else               displayLabel.setFont(FONT_DISPLAY);
-
-        displayLabel.setText(currentInput);
-        expressionLabel.setText(expression.isEmpty() ? " " : expression);
+        if (mode == Mode.MATRIX || mode == Mode.GRAPH) {
+            if (engine.hasError()) return;
+            String expr = mode == Mode.MATRIX ? matrixExpr : graphExpr;
+            displayView.setText(mode == Mode.MATRIX ? matrixValue : graphValue);
+            displayView.setCaret(-1);
+            expressionLabel.setText(expr.isEmpty() ? " " : expr);
+            return;
+        }
+        if (mode == Mode.PROGRAMMER) {
+            displayView.setText(prog.toString(progEntry, prog.radix));
+            displayView.setCaret(-1);
+            expressionLabel.setText(progOp.isEmpty() ? " "
+                : prog.toString(progAcc, prog.radix) + " " + progOp);
+            updateBaseRows();
+            return;
+        }
+        displayView.setForeground(engine.hasError() ? Theme.ERROR : theme.text);
+        displayView.setText(engine.displayText());
+        displayView.setCaret(engine.caret());
+        expressionLabel.setText(engine.expression.isEmpty() ? " " : engine.expression);
     }
 
     private void addHistory(String entry) {
@@ -653,66 +1626,41 @@ public class Calculator extends JFrame {
     }
 
     private void updateMemLabel() {
-        memLabel.setText("M: " + formatNum(memory));
+        memLabel.setText("M: " + formatNum(engine.memory));
     }
 
     private void showError(String msg) {
-        currentInput = msg;
-        hasError     = true;
-        displayLabel.setForeground(new Color(255, 100, 100));
-        displayLabel.setText(msg);
+        engine.fail(msg);
+        displayView.setCaret(-1);
+        displayView.setForeground(Theme.ERROR);
+        displayView.setText(msg);
     }
 
     // ═══════════════════════════════════════════════════════
     //  THEME TOGGLE — Light / Dark  (Learn: dynamic recoloring)
     // ═══════════════════════════════════════════════════════
     private void toggleTheme() {
-        isDarkMode = !isDarkMode;
-        themeToggle.setText(isDarkMode ? "☀" : "🌙");
-
-        if (isDarkMode) {
-            BG_APP       = new Color(18, 18, 24);
-            BG_DISPLAY   = new Color(10, 10, 15);
-            BG_CALC      = new Color(26, 26, 36);
-            BG_BTN_NUM   = new Color(40, 40, 58);
-            BG_BTN_OP    = new Color(60, 60, 88);
-            BG_BTN_FUNC  = new Color(34, 34, 50);
-            BG_HISTORY   = new Color(22, 22, 32);
-            BG_HIST_ITEM = new Color(32, 32, 46);
-            BG_HIST_SEL  = new Color(50, 50, 75);
-            TEXT_PRIMARY = new Color(240, 240, 255);
-            TEXT_MUTED   = new Color(130, 130, 165);
-            TEXT_EXPR    = new Color(160, 160, 200);
-            BORDER_COL   = new Color(50, 50, 72);
-        } else {
-            BG_APP       = new Color(240, 240, 248);
-            BG_DISPLAY   = new Color(255, 255, 255);
-            BG_CALC      = new Color(230, 230, 242);
-            BG_BTN_NUM   = new Color(210, 210, 228);
-            BG_BTN_OP    = new Color(190, 190, 215);
-            BG_BTN_FUNC  = new Color(220, 220, 236);
-            BG_HISTORY   = new Color(248, 248, 255);
-            BG_HIST_ITEM = new Color(235, 235, 248);
-            BG_HIST_SEL  = new Color(200, 200, 230);
-            TEXT_PRIMARY = new Color(20,  20,  40);
-            TEXT_MUTED   = new Color(90,  90, 120);
-            TEXT_EXPR    = new Color(70,  70, 110);
-            BORDER_COL   = new Color(190, 190, 215);
-        }
-
-        // Rebuild UI with new colors
-        getContentPane().removeAll();
-        buildUI();
-        revalidate();
-        repaint();
+        long start = System.nanoTime();
+        theme = theme.isDark() ? Theme.LIGHT : Theme.DARK;
+        for (Consumer<Theme> l : themeListeners) l.accept(theme);
+        getRootPane().repaint();
+
+        // The repaint is queued ahead of this, so it measures recolour + paint
+        SwingUtilities.invokeLater(() -> themeLatency.since(start));
+    }
+
+    /** Applies {@code apply} now and again on every theme switch. */
+    private void onTheme(Consumer<Theme> apply) {
+        apply.accept(theme);
+        themeListeners.add(apply);
     }
 
     // ═══════════════════════════════════════════════════════
     //  TOGGLE HISTORY PANEL VISIBILITY
     // ═══════════════════════════════════════════════════════
     private void toggleHistoryPanel() {
-        boolean visible = historyPanel.isVisible();
-        historyPanel.setVisible(!visible);
+        boolean visible = sidePanel.isVisible();
+        sidePanel.setVisible(!visible);
         splitPane.setDividerSize(visible ? 0 : 4);
         if (!visible) splitPane.setDividerLocation(0.6);
         revalidate();
@@ -722,51 +1670,159 @@ public class Calculator extends JFrame {
     //  CLIPBOARD — Learn: Toolkit.getDefaultToolkit().getSystemClipboard()
     // ═══════════════════════════════════════════════════════
     private void copyToClipboard() {
-        java.awt.datatransfer.StringSelection sel =
-            new java.awt.datatransfer.StringSelection(currentInput);
-        Toolkit.getDefaultToolkit().getSystemClipboard()
-            .setContents(sel, null);
-        showToast("Copied: " + currentInput);
+        String text = engine.hasError() || mode == Mode.PROGRAMMER || mode == Mode.GRAPH ? displayView.getText()
+                    : mode == Mode.MATRIX ? (matrixAns != null ? matrixText(matrixAns) : matrixValue)
+                    : input.toString();
+        String shown = mode == Mode.MATRIX && matrixAns != null ? matrixAns.size() + " matrix" : text;
+        services.copy(text, () -> showToast("Copied: " + shown), msg -> showToast("Copy failed: " + msg));
     }
 
+    // Clipboard calls can block for seconds under X11 clipboard managers, so
+    // they run on the services worker with a timeout, never on the EDT
+    private final SystemServices services = new SystemServices(SystemServices.SYSTEM_CLIPBOARD, 2000);
+
+    // Paste accepts a number, an expression or whole columns of numbers;
+    // the text is streamed through PasteEvaluator on a background thread
+    private SwingWorker<?, Long> pasteWorker;
+
     private void pasteFromClipboard() {
-        try {
-            String pasted = (String) Toolkit.getDefaultToolkit()
-                .getSystemClipboard().getData(java.awt.datatransfer.DataFlavor.stringFlavor);
-            if (pasted != null) {
-                pasted = pasted.trim();
-                Double.parseDouble(pasted); // validate it's a number
-                currentInput = pasted;
-                freshResult  = true;
+        if (engine.hasError() || pasteWorker != null) return;
+        if (mode == Mode.PROGRAMMER) { pasteIntegers(); return; }
+        if (mode == Mode.MATRIX) { matrixEditors[matrixFocus].paste(); return; }
+        if (mode == Mode.GRAPH)  { graphField.paste(); return; }
+        // In statistics mode every pasted item is collected off the EDT,
+        // then merged into the data set in one step
+        Stats pasted = mode == Mode.STATISTICS ? new Stats() : null;
+        pasteWorker = new SwingWorker<PasteEvaluator, Long>() {
+            @Override
+            protected PasteEvaluator doInBackground() throws Exception {
+                PasteEvaluator ev = new PasteEvaluator();
+                if (pasted != null) ev.sink = pasted::add;
+                try (java.io.Reader in = services.clipboardText()) {
+                    if (in == null) return null;
+                    ev.run(in, n -> publish(n));
+                }
+                return ev;
+            }
+
+            @Override
+            protected void process(java.util.List<Long> counts) {
+                long n = counts.get(counts.size() - 1);
+                if (n > 0) expressionLabel.setText(String.format("Pasting…  %,d values", n));
+            }
+
+            @Override
+            protected void done() {
+                pasteWorker = null;
+                PasteEvaluator ev;
+                try {
+                    ev = get();
+                } catch (Exception ex) {
+                    if (clipboardFailed(ex)) return;
+                    ev = null;
+                }
+                if (pasted != null && ev != null && ev.items > 0) addDataSet(pasted, ev.skipped);
+                else applyPaste(ev);
+            }
+        };
+        pasteWorker.execute();
+    }
+
+    /** Says why a paste worker failed when the clipboard, not its content, was the problem. */
+    private boolean clipboardFailed(Exception ex) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        if (!(cause instanceof java.util.concurrent.TimeoutException)) return false;
+        updateDisplay();
+        showToast(cause.getMessage());
+        return true;
+    }
+
+    // Programmer mode: a dump of integers in the current base; one value is
+    // loaded, several are summed and XOR-ed (handy as checksums)
+    private void pasteIntegers() {
+        Programmer snapshot = prog.copy();
+        pasteWorker = new SwingWorker<Programmer.Totals, Long>() {
+            @Override
+            protected Programmer.Totals doInBackground() throws Exception {
+                try (java.io.Reader in = services.clipboardText()) {
+                    return in == null ? null : snapshot.scan(in, n -> publish(n));
+                }
+            }
+
+            @Override
+            protected void process(java.util.List<Long> counts) {
+                long n = counts.get(counts.size() - 1);
+                if (n > 0) expressionLabel.setText(String.format("Pasting…  %,d values", n));
+            }
+
+            @Override
+            protected void done() {
+                pasteWorker = null;
+                Programmer.Totals t;
+                try {
+                    t = get();
+                } catch (Exception ex) {
+                    if (clipboardFailed(ex)) return;
+                    t = null;
+                }
+                if (t == null || t.count == 0 || mode != Mode.PROGRAMMER) {
+                    updateDisplay();
+                    if (t == null || t.count == 0) showToast("Clipboard doesn't contain any " + snapshot.wordName() + " values");
+                    return;
+                }
+                if (t.count == 1) {
+                    progEntry = prog.fit(t.last);
+                } else {
+                    addHistory(String.format("Σ %,d values", t.count) + "  =  " + prog.tagged(prog.fit(t.sum)));
+                    addHistory(String.format("XOR %,d values", t.count) + "  =  " + prog.tagged(prog.fit(t.xor)));
+                    progEntry = prog.fit(t.sum);
+                }
+                progFresh = true;
                 updateDisplay();
+                if (t.skipped > 0) showToast(String.format("Skipped %,d entries", t.skipped));
             }
-        } catch (Exception ex) {
-            showToast("Clipboard doesn't contain a valid number");
+        };
+        pasteWorker.execute();
+    }
+
+    private void addDataSet(Stats pasted, long skipped) {
+        int from = stats.count();
+        stats.merge(pasted);
+        dataModel.added(from, stats.count() - 1);
+        dataList.ensureIndexIsVisible(stats.count() - 1);
+        updateStats();
+        updateDisplay();
+        showToast(String.format("Added %,d values", pasted.count())
+                  + (skipped > 0 ? String.format(" · skipped %,d", skipped) : ""));
+    }
+
+    private void applyPaste(PasteEvaluator ev) {
+        if (ev == null || ev.items == 0) {
+            updateDisplay();
+            showToast("Clipboard doesn't contain a number or expression");
+            return;
+        }
+        double value;
+        if (ev.plainNumber) {
+            value = ev.last;
+        } else if (ev.items == 1) {
+            value = ev.last;
+            String expr = ev.head.toString().replace("=", " ").replaceAll("\\s+", " ").trim();
+            if (expr.length() >= 40) expr = expr.substring(0, 40) + "…";
+            addHistory(expr + "  =  " + formatNum(value));
+        } else {
+            value = ev.sum;
+            addHistory(String.format("Σ %,d values", ev.items) + "  =  " + formatNum(value));
         }
+        setResult(value);
+        engine.freshResult = true;
+        updateDisplay();
+        if (ev.skipped > 0) showToast(String.format("Skipped %,d entries that weren't numbers", ev.skipped));
     }
 
-    // ── Simple toast notification (JWindow) ───────────────
+    // ── Toast notification (overlay, no window per toast) ─
     private void showToast(String message) {
-        JWindow toast = new JWindow(this);
-        JLabel lbl = new JLabel("  " + message + "  ");
-        lbl.setFont(FONT_EXPR);
-        lbl.setForeground(Color.WHITE);
-        lbl.setBackground(new Color(40, 40, 60, 220));
-        lbl.setOpaque(true);
-        lbl.setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
-        toast.add(lbl);
-        toast.pack();
-
-        Point loc = getLocationOnScreen();
-        toast.setLocation(loc.x + getWidth() / 2 - toast.getWidth() / 2,
-                          loc.y + getHeight() - 60);
-        toast.setVisible(true);
-
-        // Auto-hide after 1.5s using javax.swing.Timer — Learn: Timer
-        new javax.swing.Timer(1500, ev -> toast.dispose()) {{
-            setRepeats(false);
-            start();
-        }};
+        toasts.show(message);
     }
     // ═══════════════════════════════════════════════════════
     //  SHORTCUTS DIALOG — Learn: JOptionPane with custom panel
@@ -777,24 +1833,31 @@ public class Calculator extends JFrame {
             {"+ - * /",  "Operators"},
             {"Enter / =","Calculate"},
             {"Backspace", "Delete last digit"},
+            {"← → Home End", "Move cursor"},
+            {"Delete",   "Delete at cursor"},
             {"Escape",   "Clear (AC)"},
             {"Ctrl+C",   "Copy result"},
-            {"Ctrl+V",   "Paste number"},
+            {"Ctrl+V",   "Paste number, expression or column"},
             {"Dbl-click history", "Restore value"},
+            {"Enter (Statistics)", "Add value to data set"},
+            {"A–F & | ^ ~ < > (Programmer)", "Hex digits, bitwise ops, shifts"},
+            {"Ctrl+C (Matrix)", "Copy result matrix"},
+            {"Wheel / drag (Graph)", "Zoom and pan the plot"},
+            {"Ctrl+Enter (Definitions)", "Apply variables & functions"},
         };
 
         JPanel panel = new JPanel(new GridLayout(shortcuts.length, 2, 6, 4));
-        panel.setBackground(BG_CALC);
+        panel.setBackground(theme.calc);
         panel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
 
         for (String[] row : shortcuts) {
             JLabel key = new JLabel(row[0]);
             key.setFont(FONT_HIST_RES);
-            key.setForeground(COLOR_ACCENT);
+            key.setForeground(Theme.ACCENT);
 
             JLabel desc = new JLabel(row[1]);
             desc.setFont(FONT_HIST);
-            desc.setForeground(TEXT_MUTED);
+            desc.setForeground(theme.textMuted);
 
             panel.add(key);
             panel.add(desc);
@@ -806,16 +1869,8 @@ public class Calculator extends JFrame {
 // ═══════════════════════════════════════════════════════
     //  UTILITY HELPERS
     // ═══════════════════════════════════════════════════════
-    private double parseDouble(String s) {
-        try { return Double.parseDouble(s); }
-        catch (NumberFormatException e) { return 0; }
-    }
-
     private String formatNum(double v) {
-        if (Double.isNaN(v) || Double.isInfinite(v)) return "Error";
-        if (v == Math.floor(v) && !Double.isInfinite(v) && Math.abs(v) < 1e15)
-            return String.valueOf((long) v);
-        return df.format(v);
+        return engine.format(v);
     }
 
     private Color brighten(Color c, int amt) {
@@ -838,12 +1893,15 @@ public class Calculator extends JFrame {
     //  MAIN — Entry point
     // ══════════════════════════════════════════════════════
     public static void main(String[] args) {
+        StartupTrace startup = StartupTrace.begin("Calculator");
         // SwingUtilities.invokeLater — always launch Swing on the EDT
         SwingUtilities.invokeLater(() -> {
-            try {
-                UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());
-            } catch (Exception ignored) {}
-            new Calculator();
+            startup.span("look and feel", () -> {
+                try {
+                    UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());
+                } catch (Exception ignored) {}
+            });
+            startup.span("frame", () -> { new Calculator(startup); });
         });
     }
 }        
\ No newline at end of file
@@ -0,0 +1,130 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * The calculator's main number display. Text is drawn right-aligned in the
+ * largest font size that fits the component's real width, found by binary
+ * search over derived fonts and metrics that are created once per size and
+ * kept. Changing the text never revalidates the layout, and repaints are
+ * held to one per frame however fast updates arrive.
+ */
+final class DisplayView extends JComponent {
+
+    private static final int MIN_SIZE = 12;
+    private static final long FRAME_NANOS = 16_666_667;
+
+    private final int maxSize;
+    private final Font[] fonts;
+    private final FontMetrics[] metrics;
+
+    private String text = "0";
+    private int caret = -1;          // index in text, or -1 for none
+
+    // last fit, reused until the text or the width changes
+    private int fitWidth = -1;
+    private int fitSize;
+
+    private long lastPaintNanos;
+    private boolean framePending;
+    private final Timer frameTimer = new Timer(0, e -> {
+        framePending = false;
+        repaint();
+    });
+
+    DisplayView(Font base) {
+        maxSize = base.getSize();
+        fonts   = new Font[maxSize - MIN_SIZE + 1];
+        metrics = new FontMetrics[fonts.length];
+        fonts[fonts.length - 1] = base;
+        setFont(base);
+        frameTimer.setRepeats(false);
+    }
+
+    void setText(String text) {
+        if (text.equals(this.text)) return;
+        this.text = text;
+        fitWidth = -1;
+        requestFrame();
+    }
+
+    String getText() { return text; }
+
+    /** Shows an editing caret before character {@code index}; -1 hides it. */
+    void setCaret(int index) {
+        if (index == caret) return;
+        caret = index;
+        requestFrame();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics fm = metricsFor(maxSize);
+        Insets in = getInsets();
+        return new Dimension(fm.stringWidth("0") * 8 + in.left + in.right,
+                             fm.getHeight() + in.top + in.bottom);
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        lastPaintNanos = System.nanoTime();
+        Insets in = getInsets();
+        int avail = getWidth() - in.left - in.right;
+        if (avail != fitWidth) {
+            fitSize  = fit(avail);
+            fitWidth = avail;
+        }
+        FontMetrics fm = metricsFor(fitSize);
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(fm.getFont());
+        g2.setColor(getForeground());
+        int x = getWidth() - in.right - fm.stringWidth(text);
+        int y = in.top + (getHeight() - in.top - in.bottom - fm.getHeight()) / 2 + fm.getAscent();
+        g2.drawString(text, x, y);
+        if (caret >= 0 && caret <= text.length()) {
+            int cx = x + fm.stringWidth(text.substring(0, caret));
+            g2.fillRect(cx, y - fm.getAscent() + 2, 2, fm.getAscent());
+        }
+        g2.dispose();
+    }
+
+    /** Largest size whose rendering of the text fits in {@code avail} pixels. */
+    private int fit(int avail) {
+        int lo = MIN_SIZE, hi = maxSize;
+        if (metricsFor(hi).stringWidth(text) <= avail) return hi;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (metricsFor(mid).stringWidth(text) <= avail) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private FontMetrics metricsFor(int size) {
+        int i = size - MIN_SIZE;
+        if (metrics[i] == null) {
+            if (fonts[i] == null) fonts[i] = fonts[fonts.length - 1].deriveFont((float) size);
+            metrics[i] = getFontMetrics(fonts[i]);
+        }
+        return metrics[i];
+    }
+
+    /** Repaints now, or at the next frame boundary if one was just painted. */
+    private void requestFrame() {
+        if (framePending) return;
+        long since = System.nanoTime() - lastPaintNanos;
+        if (since >= FRAME_NANOS) {
+            repaint();
+        } else {
+            framePending = true;
+            frameTimer.setInitialDelay((int) ((FRAME_NANOS - since) / 1_000_000) + 1);
+            frameTimer.restart();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+import java.util.Arrays;
+
+/**
+ * A formula such as {@code 2x^2 - sin(x)/3} compiled once into postfix
+ * code over a flat {@code int[]}, with constants folded at compile time.
+ * Evaluating walks that code with a caller-supplied {@code double[]} stack,
+ * so sampling a function thousands of times allocates nothing and a
+ * compiled formula can be shared between threads. Names that aren't
+ * parameters or built-ins are looked up in a {@link Scope}; the slots and
+ * ids they resolve to are recorded as the formula's dependencies.
+ */
+final class Formula {
+
+    /** User-defined names (see {@link Workspace}). */
+    interface Scope {
+        /** Slot of variable {@code name}, or -1. */
+        int variable(String name);
+        boolean isFunction(String name);
+        /** Id of function {@code name}; IllegalArgumentException if it doesn't take {@code arity} arguments. */
+        int function(String name, int arity);
+        double value(int slot);
+        /** The function applied to {@code args[from ..]}; must not write to {@code args}. */
+        double call(int fn, double[] args, int from);
+    }
+
+    // ── Instructions ───────────────────────────────────────
+    private static final int CONST = 0, PARAM = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5,
+                             POW = 6, NEG = 7, CALL1 = 8, CALL2 = 9, VAR = 10, CALLN = 11;
+
+    private static final String[] FUNCS1 = {
+        "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+        "sqrt", "cbrt", "abs", "ln", "log", "log2", "exp", "floor", "ceil", "round", "sign",
+    };
+    private static final String[] FUNCS2 = { "min", "max", "atan2", "hypot", "mod" };
+
+    final String text;
+    private final String[] params;
+    private final Scope scope;
+    private int[] variables = new int[0], functions = new int[0];
+    private int[] code = new int[16];
+    private int codeLen;
+    private double[] consts = new double[8];
+    private int constLen;
+    private int depth, maxDepth;
+    private int constRun;            // trailing CONST instructions, candidates for folding
+
+    // parser state, only used while compiling
+    private int pos;
+
+    private Formula(String text, Scope scope, String[] params) {
+        this.text = text;
+        this.scope = scope;
+        this.params = params;
+    }
+
+    /** Compiles {@code text} over the given parameter names; IllegalArgumentException if malformed. */
+    static Formula compile(String text, String... params) {
+        return compile(text, null, params);
+    }
+
+    /** As {@link #compile(String, String...)}, resolving other names in {@code scope}. */
+    static Formula compile(String text, Scope scope, String... params) {
+        Formula f = new Formula(text, scope, params);
+        f.skipSpace();
+        if (f.pos == text.length()) throw new IllegalArgumentException("Empty formula");
+        f.expr();
+        f.skipSpace();
+        if (f.pos < text.length()) throw f.error("Unexpected '" + text.charAt(f.pos) + "'");
+        f.code = Arrays.copyOf(f.code, f.codeLen);
+        f.consts = Arrays.copyOf(f.consts, f.constLen);
+        return f;
+    }
+
+    /** True for names the parser treats as built-in: constants and functions. */
+    static boolean isReserved(String name) {
+        return name.equals("pi") || name.equals("e") || indexOf(FUNCS1, name) >= 0 || indexOf(FUNCS2, name) >= 0;
+    }
+
+    /** Stack size {@link #eval(double[], double[])} needs. */
+    int stackSize() { return maxDepth; }
+
+    /** Scope variable slots read, each once. */
+    int[] variables() { return variables; }
+
+    /** Scope function ids called, each once. */
+    int[] functions() { return functions; }
+
+    /** Value at a single parameter; allocates its stack, so prefer the other overload in loops. */
+    double eval(double x) {
+        return eval(new double[] { x }, new double[maxDepth]);
+    }
+
+    double eval(double[] args, double[] stack) {
+        int sp = -1;
+        int[] c = code;
+        for (int pc = 0; pc < c.length; pc++) {
+            switch (c[pc]) {
+                case CONST: stack[++sp] = consts[c[++pc]];  break;
+                case PARAM: stack[++sp] = args[c[++pc]];    break;
+                case ADD:   sp--; stack[sp] += stack[sp + 1]; break;
+                case SUB:   sp--; stack[sp] -= stack[sp + 1]; break;
+                case MUL:   sp--; stack[sp] *= stack[sp + 1]; break;
+                case DIV:   sp--; stack[sp] /= stack[sp + 1]; break;
+                case POW:   sp--; stack[sp] = Math.pow(stack[sp], stack[sp + 1]); break;
+                case NEG:   stack[sp] = -stack[sp]; break;
+                case CALL1: stack[sp] = call1(c[++pc], stack[sp]); break;
+                case CALL2: sp--; stack[sp] = call2(c[++pc], stack[sp], stack[sp + 1]); break;
+                case VAR:   stack[++sp] = scope.value(c[++pc]); break;
+                case CALLN: {
+                    int fn = c[++pc];
+                    sp -= c[++pc] - 1;
+                    stack[sp] = scope.call(fn, stack, sp);
+                    break;
+                }
+                default:    throw new IllegalStateException();
+            }
+        }
+        return stack[0];
+    }
+
+    private static double call1(int fn, double v) {
+        switch (fn) {
+            case 0:  return Math.sin(v);
+            case 1:  return Math.cos(v);
+            case 2:  return Math.tan(v);
+            case 3:  return Math.asin(v);
+            case 4:  return Math.acos(v);
+            case 5:  return Math.atan(v);
+            case 6:  return Math.sinh(v);
+            case 7:  return Math.cosh(v);
+            case 8:  return Math.tanh(v);
+            case 9:  return Math.sqrt(v);
+            case 10: return Math.cbrt(v);
+            case 11: return Math.abs(v);
+            case 12: return Math.log(v);
+            case 13: return Math.log10(v);
+            case 14: return Math.log(v) / Math.log(2);
+            case 15: return Math.exp(v);
+            case 16: return Math.floor(v);
+            case 17: return Math.ceil(v);
+            case 18: return Math.rint(v);
+            default: return Math.signum(v);
+        }
+    }
+
+    private static double call2(int fn, double a, double b) {
+        switch (fn) {
+            case 0:  return Math.min(a, b);
+            case 1:  return Math.max(a, b);
+            case 2:  return Math.atan2(a, b);
+            case 3:  return Math.hypot(a, b);
+            default: return a - b * Math.floor(a / b);
+        }
+    }
+
+    // ── Parser: recursive descent straight to postfix ──────
+    //   expr  := term (('+' | '-') term)*
+    //   term  := unary (('*' | '/') unary | implicit unary)*
+    //   unary := ('-' | '+') unary | power
+    //   power := atom ('^' unary)?
+    //   atom  := number | name | name '(' expr (',' expr)? ')' | '(' expr ')'
+    private void expr() {
+        term();
+        for (char c; (c = peek()) == '+' || c == '-' || c == '−'; ) {
+            pos++;
+            term();
+            emit(c == '+' ? ADD : SUB);
+        }
+    }
+
+    private void term() {
+        unary();
+        while (true) {
+            char c = peek();
+            if (c == '*' || c == '×' || c == '·' || c == '/' || c == '÷') {
+                pos++;
+                unary();
+                emit(c == '/' || c == '÷' ? DIV : MUL);
+            } else if (c == '(' || Character.isLetterOrDigit(c) || c == '.' || c == 'π') {
+                unary();                        // implicit: 2x, 3(x+1), x sin(x)
+                emit(MUL);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void unary() {
+        char c = peek();
+        if (c == '-' || c == '−') { pos++; unary(); emit(NEG); }
+        else if (c == '+')        { pos++; unary(); }
+        else                      power();
+    }
+
+    private void power() {
+        atom();
+        if (peek() == '^') {
+            pos++;
+            unary();                            // right-associative: 2^3^2 = 2^9
+            emit(POW);
+        }
+    }
+
+    private void atom() {
+        char c = peek();
+        if (c == '(') {
+            pos++;
+            expr();
+            expect(')');
+        } else if (Character.isDigit(c) || c == '.') {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) pos++;
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')
+                    && pos + 1 < text.length() && (Character.isDigit(text.charAt(pos + 1))
+                        || (text.charAt(pos + 1) == '-' && pos + 2 < text.length() && Character.isDigit(text.charAt(pos + 2))))) {
+                pos += 2;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+            }
+            try {
+                pushConst(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException ex) {
+                throw error("Bad number '" + text.substring(start, pos) + "'");
+            }
+        } else if (c == 'π') {
+            pos++;
+            pushConst(Math.PI);
+        } else if (Character.isLetter(c)) {
+            name();
+        } else {
+            throw error(pos < text.length() ? "Unexpected '" + c + "'" : "Formula ends early");
+        }
+    }
+
+    private void name() {
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) pos++;
+        String name = text.substring(start, pos);
+        for (int i = 0; i < params.length; i++) {
+            if (params[i].equals(name)) { emit(PARAM, i); return; }
+        }
+        if (name.equals("pi")) { pushConst(Math.PI); return; }
+        if (name.equals("e"))  { pushConst(Math.E);  return; }
+
+        int f1 = indexOf(FUNCS1, name), f2 = indexOf(FUNCS2, name);
+        if (f1 < 0 && f2 < 0) {
+            userName(name);
+            return;
+        }
+        expect('(');
+        expr();
+        if (f2 >= 0) {
+            expect(',');
+            expr();
+        }
+        expect(')');
+        if (f2 >= 0) emit(CALL2, f2);
+        else         emit(CALL1, f1);
+    }
+
+    private void userName(String name) {
+        if (scope != null && scope.isFunction(name) && peek() == '(') {
+            pos++;
+            int argc = 0;
+            if (peek() != ')') {
+                do {
+                    if (argc > 0) pos++;
+                    expr();
+                    argc++;
+                } while (peek() == ',');
+            }
+            expect(')');
+            int fn;
+            try {
+                fn = scope.function(name, argc);
+            } catch (IllegalArgumentException ex) {
+                throw error(ex.getMessage());
+            }
+            functions = addOnce(functions, fn);
+            grow(3);
+            code[codeLen++] = CALLN;
+            code[codeLen++] = fn;
+            code[codeLen++] = argc;
+            constRun = 0;
+            depth += 1 - argc;
+            maxDepth = Math.max(maxDepth, depth);
+            return;
+        }
+        int slot = scope == null ? -1 : scope.variable(name);
+        if (slot < 0) throw error("Unknown name '" + name + "'");
+        variables = addOnce(variables, slot);
+        emit(VAR, slot);
+    }
+
+    private static int[] addOnce(int[] set, int v) {
+        for (int x : set) if (x == v) return set;
+        int[] grown = Arrays.copyOf(set, set.length + 1);
+        grown[set.length] = v;
+        return grown;
+    }
+
+    // ── Code emission with constant folding ────────────────
+    private void pushConst(double v) {
+        if (constLen == consts.length) consts = Arrays.copyOf(consts, constLen * 2);
+        consts[constLen] = v;
+        emit(CONST, constLen++);
+    }
+
+    private void emit(int op) {
+        if (op == NEG) {
+            if (endsWithConst(1)) {
+                consts[code[codeLen - 1]] = -consts[code[codeLen - 1]];
+                return;
+            }
+        } else if (endsWithConst(2)) {
+            double b = consts[--constLen], a = consts[--constLen];
+            codeLen -= 4;
+            depth -= 2;
+            constRun -= 2;
+            pushConst(op == ADD ? a + b : op == SUB ? a - b : op == MUL ? a * b
+                    : op == DIV ? a / b : Math.pow(a, b));
+            return;
+        }
+        grow(1);
+        code[codeLen++] = op;
+        constRun = 0;
+        if (op != NEG) depth--;
+    }
+
+    private void emit(int op, int arg) {
+        if (op == CALL1 && endsWithConst(1)) {
+            consts[code[codeLen - 1]] = call1(arg, consts[code[codeLen - 1]]);
+            return;
+        }
+        if (op == CALL2 && endsWithConst(2)) {
+            double b = consts[--constLen], a = consts[--constLen];
+            codeLen -= 4;
+            depth -= 2;
+            constRun -= 2;
+            pushConst(call2(arg, a, b));
+            return;
+        }
+        grow(2);
+        code[codeLen++] = op;
+        code[codeLen++] = arg;
+        constRun = op == CONST ? constRun + 1 : 0;
+        if (op == CONST || op == PARAM || op == VAR) maxDepth = Math.max(maxDepth, ++depth);
+        else if (op == CALL2) depth--;
+    }
+
+    /** True if the last {@code n} instructions are constants (always the newest ones). */
+    private boolean endsWithConst(int n) { return constRun >= n; }
+
+    private void grow(int n) {
+        if (codeLen + n > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, codeLen + n));
+    }
+
+    // ── Lexing helpers ─────────────────────────────────────
+    private char peek() {
+        skipSpace();
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at " + (pos + 1));
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) if (names[i].equals(name)) return i;
+        return -1;
+    }
+
+    @Override
+    public String toString() { return text; }
+}
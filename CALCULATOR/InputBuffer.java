@@ -0,0 +1,242 @@
+/**
+ * The number being typed. Digits live in a reusable char array with the
+ * sign, decimal point position and digit count tracked as they change, and
+ * the numeric value is accumulated digit by digit, so typing, backspace and
+ * reading the value never re-parse the text. Editing at a cursor position
+ * is supported; edits away from the end just mark the value for a rescan
+ * on the next read.
+ */
+final class InputBuffer {
+
+    /** Longest digit run the accumulated value tracks exactly. */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POW10 = new double[MAX_EXACT_DIGITS + 1];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private char[] chars = new char[32];
+    private int len;
+    private int cursor;
+    private boolean negative;
+    private int dot = -1;            // index of '.', or -1
+    private int digits;
+
+    // value = mantissa / 10^scale while exact; otherwise rescanned on demand
+    private long mantissa;
+    private int scale;
+    private boolean exact;
+    private double loaded;           // magnitude given with set() or parsed once
+    private boolean loadedValid;
+
+    private String text;             // cached toString()
+
+    InputBuffer() { clear(); }
+
+    // ── Editing ────────────────────────────────────────────
+    void clear() {
+        chars[0] = '0';
+        len = 1;
+        cursor = 1;
+        negative = false;
+        dot = -1;
+        digits = 1;
+        mantissa = 0;
+        scale = 0;
+        exact = true;
+        loadedValid = false;
+        text = "0";
+    }
+
+    /** Types a digit at the cursor; a lone "0" is replaced rather than extended. */
+    void insertDigit(char d) {
+        if (len == 1 && chars[0] == '0' && cursor == 1) {
+            chars[0] = d;
+            mantissa = d - '0';
+            scale = 0;
+            exact = true;
+            changed();
+            return;
+        }
+        boolean atEnd = cursor == len;
+        insert(d);
+        digits++;
+        if (atEnd && exact && digits <= MAX_EXACT_DIGITS) {
+            mantissa = mantissa * 10 + (d - '0');
+            if (dot >= 0) scale++;
+        } else {
+            exact = false;
+        }
+        changed();
+    }
+
+    /** Types the decimal point at the cursor, unless there already is one. */
+    void insertPoint() {
+        if (dot >= 0) return;
+        if (cursor == 0) { insert('0'); digits++; }
+        dot = cursor;
+        insert('.');
+        if (dot != len - 1) exact = false;
+        changed();
+    }
+
+    /** Deletes the character before the cursor. O(1) at the end of the input. */
+    void backspace() {
+        if (cursor == 0) return;
+        boolean atEnd = cursor == len;
+        char c = chars[cursor - 1];
+        remove(cursor - 1);
+        if (c == '.') {
+            dot = -1;
+            if (!atEnd) exact = false;
+        } else {
+            digits--;
+            if (atEnd && exact) {
+                mantissa /= 10;
+                if (dot >= 0) scale--;
+            } else {
+                exact = false;
+            }
+        }
+        if (digits == 0) { clear(); return; }
+        changed();
+    }
+
+    /** Deletes the character after the cursor. */
+    void delete() {
+        if (cursor == len) return;
+        cursor++;
+        backspace();
+    }
+
+    void negate() {
+        if (isZero()) return;
+        negative = !negative;
+        text = null;
+    }
+
+    void moveCursor(int delta) { cursor = Math.max(0, Math.min(len, cursor + delta)); }
+    void cursorHome()          { cursor = 0; }
+    void cursorEnd()           { cursor = len; }
+
+    /** Cursor position in {@link #toString()} coordinates (after any sign). */
+    int cursor()               { return cursor + (negative ? 1 : 0); }
+    boolean cursorAtEnd()      { return cursor == len; }
+
+    /**
+     * Replaces the input with a plain decimal ("-12.5", "007", "3.") and
+     * returns true, or returns false and leaves the input alone.
+     */
+    boolean load(CharSequence s) {
+        int i = 0, n = s.length();
+        boolean neg = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) neg = s.charAt(i++) == '-';
+        int start = i, dots = 0, ds = 0;
+        for (int j = i; j < n; j++) {
+            char c = s.charAt(j);
+            if (c == '.') dots++;
+            else if (c >= '0' && c <= '9') ds++;
+            else return false;
+        }
+        if (ds == 0 || dots > 1) return false;
+
+        ensureCapacity(n - start);
+        len = 0;
+        dot = -1;
+        for (int j = start; j < n; j++) {
+            char c = s.charAt(j);
+            if (c == '.') dot = len;
+            chars[len++] = c;
+        }
+        digits = ds;
+        cursor = len;
+        negative = neg;
+        exact = false;
+        if (isZero()) negative = false;
+        changed();
+        return true;
+    }
+
+    /** Shows {@code display} and remembers {@code value} as its exact value. */
+    boolean set(double value, String display) {
+        if (!load(display)) return false;
+        loaded = Math.abs(value);
+        loadedValid = true;
+        return true;
+    }
+
+    // ── Reading ────────────────────────────────────────────
+    double value() {
+        double v;
+        if (loadedValid) {
+            v = loaded;
+        } else {
+            if (!exact) rescan();
+            if (exact) {
+                v = mantissa / POW10[scale];
+            } else {
+                v = Double.parseDouble(new String(chars, 0, len));
+                loaded = v;
+                loadedValid = true;
+            }
+        }
+        return negative ? -v : v;
+    }
+
+    int length() { return len + (negative ? 1 : 0); }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = negative ? "-" + new String(chars, 0, len) : new String(chars, 0, len);
+        }
+        return text;
+    }
+
+    // ── Internals ──────────────────────────────────────────
+    private boolean isZero() {
+        for (int i = 0; i < len; i++) if (chars[i] != '0' && chars[i] != '.') return false;
+        return true;
+    }
+
+    /** Rebuilds mantissa/scale from the chars when they fit exactly. */
+    private void rescan() {
+        if (digits > MAX_EXACT_DIGITS) return;
+        long m = 0;
+        int sc = 0;
+        for (int i = 0; i < len; i++) {
+            char c = chars[i];
+            if (c == '.') continue;
+            m = m * 10 + (c - '0');
+            if (dot >= 0 && i > dot) sc++;
+        }
+        mantissa = m;
+        scale = sc;
+        exact = true;
+    }
+
+    private void insert(char c) {
+        ensureCapacity(len + 1);
+        System.arraycopy(chars, cursor, chars, cursor + 1, len - cursor);
+        chars[cursor++] = c;
+        len++;
+        if (dot >= cursor - 1 && c != '.') dot++;
+    }
+
+    private void remove(int at) {
+        System.arraycopy(chars, at + 1, chars, at, len - at - 1);
+        len--;
+        if (cursor > at) cursor--;
+        if (dot > at) dot--;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > chars.length) chars = java.util.Arrays.copyOf(chars, Math.max(n, chars.length * 2));
+    }
+
+    private void changed() {
+        text = null;
+        loadedValid = false;
+    }
+}
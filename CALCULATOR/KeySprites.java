@@ -0,0 +1,65 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pre-rendered rounded key backgrounds. Each (colours, device size) pair is
+ * antialiased once into an opaque compatible image and blitted from then
+ * on, so a hover sweep or fast typing is a plain pixel copy. The colours
+ * already encode theme and normal/hover/pressed state; the calculator
+ * clears the cache when the theme changes or the keypad is resized.
+ */
+final class KeySprites {
+
+    private static final int ARC = 14;
+    private static final int MAX_SPRITES = 64;
+
+    private final Map<Long, BufferedImage> sprites = new LinkedHashMap<>(MAX_SPRITES, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> e) {
+            return size() > MAX_SPRITES;
+        }
+    };
+
+    /**
+     * Paints a w×h rounded key of colour {@code bg} over {@code under} (the
+     * button's own background, which shows in the corners).
+     */
+    void paint(Graphics g, Color under, Color bg, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        Graphics2D g2 = (Graphics2D) g;
+        // Render at device resolution so HiDPI screens stay sharp
+        AffineTransform tx = g2.getTransform();
+        double sx = tx.getScaleX(), sy = tx.getScaleY();
+        int pw = (int) Math.ceil(w * sx), ph = (int) Math.ceil(h * sy);
+
+        // Both RGBs and the low size bits; the size is re-checked on a hit
+        long key = (long) (under.getRGB() & 0xFFFFFF) << 40 | (long) (bg.getRGB() & 0xFFFFFF) << 16
+                 | (pw & 0xFF) << 8 | (ph & 0xFF);
+        BufferedImage sprite = sprites.get(key);
+        if (sprite == null || sprite.getWidth() != pw || sprite.getHeight() != ph) {
+            sprite = render(g2.getDeviceConfiguration(), under, bg, pw, ph, sx, sy);
+            sprites.put(key, sprite);
+        }
+        g2.drawImage(sprite, 0, 0, w, h, null);
+    }
+
+    void clear() { sprites.clear(); }
+
+    private static BufferedImage render(GraphicsConfiguration gc, Color under, Color bg,
+                                        int pw, int ph, double sx, double sy) {
+        BufferedImage img = gc != null
+            ? gc.createCompatibleImage(pw, ph, Transparency.OPAQUE)
+            : new BufferedImage(pw, ph, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(under);
+        g.fillRect(0, 0, pw, ph);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(sx, sy);
+        g.setColor(bg);
+        g.fillRoundRect(0, 0, (int) Math.round(pw / sx), (int) Math.round(ph / sy), ARC, ARC);
+        g.dispose();
+        return img;
+    }
+}
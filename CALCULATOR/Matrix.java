@@ -0,0 +1,305 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dense matrix for matrix mode; a vector is an n×1 matrix. Elements are a
+ * flat row-major {@code double[]}. Multiplication is cache-blocked with an
+ * i-k-j inner order (contiguous, vectorisable rows) and split across the
+ * common fork-join pool for large operands; LU decomposition with partial
+ * pivoting backs determinant, inverse and solve, with its row updates
+ * parallelised the same way.
+ */
+final class Matrix {
+
+    private static final int ROW_BLOCK = 64;
+    private static final int K_BLOCK   = 128;
+    private static final int J_BLOCK   = 512;
+    /** Below this many multiply-adds the fork-join split isn't worth it. */
+    private static final long PARALLEL_WORK = 1L << 18;
+
+    final int rows, cols;
+    final double[] a;
+
+    Matrix(int rows, int cols) { this(rows, cols, new double[rows * cols]); }
+
+    Matrix(int rows, int cols, double[] a) {
+        if (a.length != rows * cols) throw new IllegalArgumentException("Need " + rows * cols + " values");
+        this.rows = rows;
+        this.cols = cols;
+        this.a = a;
+    }
+
+    static Matrix identity(int n) {
+        Matrix m = new Matrix(n, n);
+        for (int i = 0; i < n; i++) m.a[i * n + i] = 1;
+        return m;
+    }
+
+    double get(int r, int c) { return a[r * cols + c]; }
+    boolean isSquare()       { return rows == cols; }
+    String size()            { return rows + "×" + cols; }
+
+    /**
+     * Parses rows separated by newlines or ';' and values separated by
+     * spaces, tabs or commas. Rows must all be the same length.
+     */
+    static Matrix parse(CharSequence text) {
+        double[] vals = new double[16];
+        int n = 0, rows = 0, cols = -1, inRow = 0;
+        StringBuilder tok = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '\n';
+            boolean rowEnd = c == '\n' || c == ';';
+            if (rowEnd || c == ' ' || c == '\t' || c == ',' || c == '\r' || c == '[' || c == ']') {
+                if (tok.length() > 0) {
+                    if (n == vals.length) vals = Arrays.copyOf(vals, n * 2);
+                    try {
+                        vals[n++] = Double.parseDouble(tok.toString().replace('−', '-'));
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("Not a number: " + tok);
+                    }
+                    inRow++;
+                    tok.setLength(0);
+                }
+                if (rowEnd && inRow > 0) {
+                    if (cols >= 0 && inRow != cols) {
+                        throw new IllegalArgumentException("Row " + (rows + 1) + " has " + inRow
+                                                           + " values, expected " + cols);
+                    }
+                    cols = inRow;
+                    rows++;
+                    inRow = 0;
+                }
+            } else {
+                tok.append(c);
+            }
+        }
+        if (rows == 0) throw new IllegalArgumentException("Empty matrix");
+        return new Matrix(rows, cols, n == vals.length ? vals : Arrays.copyOf(vals, n));
+    }
+
+    // ── Element-wise ───────────────────────────────────────
+    Matrix plus(Matrix b)  { return combine(b, 1); }
+    Matrix minus(Matrix b) { return combine(b, -1); }
+
+    private Matrix combine(Matrix b, double sign) {
+        if (rows != b.rows || cols != b.cols) {
+            throw new IllegalArgumentException("Sizes differ: " + size() + " and " + b.size());
+        }
+        double[] out = new double[a.length];
+        for (int i = 0; i < out.length; i++) out[i] = a[i] + sign * b.a[i];
+        return new Matrix(rows, cols, out);
+    }
+
+    Matrix transpose() {
+        Matrix t = new Matrix(cols, rows);
+        // 32×32 tiles keep both the read and the write side in cache
+        for (int ii = 0; ii < rows; ii += 32) {
+            for (int jj = 0; jj < cols; jj += 32) {
+                int iEnd = Math.min(ii + 32, rows), jEnd = Math.min(jj + 32, cols);
+                for (int i = ii; i < iEnd; i++) {
+                    for (int j = jj; j < jEnd; j++) t.a[j * rows + i] = a[i * cols + j];
+                }
+            }
+        }
+        return t;
+    }
+
+    // ── Multiply ───────────────────────────────────────────
+    Matrix times(Matrix b) {
+        if (cols != b.rows) {
+            throw new IllegalArgumentException("Can't multiply " + size() + " by " + b.size());
+        }
+        Matrix c = new Matrix(rows, b.cols);
+        long work = (long) rows * cols * b.cols;
+        if (work < PARALLEL_WORK) multiplyRows(this, b, c, 0, rows);
+        else ForkJoinPool.commonPool().invoke(new RowTask(0, rows, (r0, r1) -> multiplyRows(this, b, c, r0, r1)));
+        return c;
+    }
+
+    /** C[r0..r1) += A[r0..r1) · B, tiled over k and j. */
+    private static void multiplyRows(Matrix A, Matrix B, Matrix C, int r0, int r1) {
+        int K = A.cols, N = B.cols;
+        double[] a = A.a, b = B.a, c = C.a;
+        for (int ii = r0; ii < r1; ii += ROW_BLOCK) {
+            int iEnd = Math.min(ii + ROW_BLOCK, r1);
+            for (int kk = 0; kk < K; kk += K_BLOCK) {
+                int kEnd = Math.min(kk + K_BLOCK, K);
+                for (int jj = 0; jj < N; jj += J_BLOCK) {
+                    int jEnd = Math.min(jj + J_BLOCK, N);
+                    for (int i = ii; i < iEnd; i++) {
+                        int ci = i * N, ai = i * K;
+                        int k = kk;
+                        // four rows of B per pass: one load/store of C for four multiply-adds
+                        for (; k + 3 < kEnd; k += 4) {
+                            double a0 = a[ai + k], a1 = a[ai + k + 1], a2 = a[ai + k + 2], a3 = a[ai + k + 3];
+                            int b0 = k * N, b1 = b0 + N, b2 = b1 + N, b3 = b2 + N;
+                            for (int j = jj; j < jEnd; j++) {
+                                c[ci + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+                            }
+                        }
+                        for (; k < kEnd; k++) {
+                            double aik = a[ai + k];
+                            int bk = k * N;
+                            for (int j = jj; j < jEnd; j++) c[ci + j] += aik * b[bk + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ── LU: determinant, inverse, solve ────────────────────
+    /** In-place LU with scaled partial pivoting of a copy; {@code perm[i]} is the source row of row i. */
+    private static final class LU {
+        final int n;
+        final double[] lu;
+        final int[] perm;
+        int swaps;
+        boolean singular;
+
+        LU(Matrix m) {
+            if (!m.isSquare()) throw new IllegalArgumentException("Needs a square matrix, not " + m.size());
+            n = m.rows;
+            lu = m.a.clone();
+            perm = new int[n];
+            for (int i = 0; i < n; i++) perm[i] = i;
+
+            // Implicit partial pivoting: each candidate is measured against its own
+            // row's largest entry, so diag(1e20, 1) is as regular as the identity
+            double[] rowScale = new double[n];
+            for (int i = 0; i < n; i++) {
+                double big = 0;
+                for (int j = 0; j < n; j++) big = Math.max(big, Math.abs(lu[i * n + j]));
+                if (big == 0) { singular = true; return; }
+                rowScale[i] = 1 / big;
+            }
+            double tiny = n * 1e-15;
+
+            for (int k = 0; k < n; k++) {
+                int p = -1;
+                double best = -1;
+                for (int i = k; i < n; i++) {
+                    double v = Math.abs(lu[i * n + k]) * rowScale[perm[i]];
+                    if (v > best) { best = v; p = i; }
+                }
+                if (best <= tiny) { singular = true; return; }
+                if (p != k) {
+                    swapRows(lu, n, p, k);
+                    int t = perm[p]; perm[p] = perm[k]; perm[k] = t;
+                    swaps++;
+                }
+                eliminate(k);
+            }
+        }
+
+        /** Subtracts multiples of pivot row k from every row below it. */
+        private void eliminate(int k) {
+            int below = n - k - 1;
+            if ((long) below * (n - k) < PARALLEL_WORK) {
+                eliminateRows(k, k + 1, n);
+            } else {
+                ForkJoinPool.commonPool().invoke(new RowTask(k + 1, n, (r0, r1) -> eliminateRows(k, r0, r1)));
+            }
+        }
+
+        private void eliminateRows(int k, int r0, int r1) {
+            double pivot = lu[k * n + k];
+            int pk = k * n;
+            for (int i = r0; i < r1; i++) {
+                int pi = i * n;
+                double f = lu[pi + k] / pivot;
+                lu[pi + k] = f;
+                if (f == 0) continue;
+                for (int j = k + 1; j < n; j++) lu[pi + j] -= f * lu[pk + j];
+            }
+        }
+
+        double determinant() {
+            if (singular) return 0;
+            double d = swaps % 2 == 0 ? 1 : -1;
+            for (int i = 0; i < n; i++) d *= lu[i * n + i];
+            return d;
+        }
+
+        /** X with A·X = B, solved row-wise so every inner loop runs along a row. */
+        Matrix solve(Matrix b) {
+            if (b.rows != n) throw new IllegalArgumentException("Right side needs " + n + " rows, not " + b.rows);
+            if (singular) throw new ArithmeticException("Matrix is singular");
+            int m = b.cols;
+            double[] x = new double[n * m];
+            for (int i = 0; i < n; i++) System.arraycopy(b.a, perm[i] * m, x, i * m, m);
+
+            if ((long) n * n * m < PARALLEL_WORK || m < 2 * ROW_BLOCK) {
+                substitute(x, m, 0, m);
+            } else {
+                // right-hand columns are independent: split them across cores
+                ForkJoinPool.commonPool().invoke(new RowTask(0, m, (c0, c1) -> substitute(x, m, c0, c1)));
+            }
+            return new Matrix(n, m, x);
+        }
+
+        /** Forward then back substitution on columns [c0, c1) of x. */
+        private void substitute(double[] x, int m, int c0, int c1) {
+            for (int i = 0; i < n; i++) subtractRows(x, m, i, 0, i, c0, c1);
+            for (int i = n - 1; i >= 0; i--) {
+                subtractRows(x, m, i, i + 1, n, c0, c1);
+                double d = lu[i * n + i];
+                for (int j = c0, xi = i * m; j < c1; j++) x[xi + j] /= d;
+            }
+        }
+
+        /** x[i] −= Σ lu[i][k]·x[k] for k in [k0, k1), four rows of x per pass. */
+        private void subtractRows(double[] x, int m, int i, int k0, int k1, int c0, int c1) {
+            int xi = i * m, li = i * n;
+            int k = k0;
+            for (; k + 3 < k1; k += 4) {
+                double l0 = lu[li + k], l1 = lu[li + k + 1], l2 = lu[li + k + 2], l3 = lu[li + k + 3];
+                int x0 = k * m, x1 = x0 + m, x2 = x1 + m, x3 = x2 + m;
+                for (int j = c0; j < c1; j++) {
+                    x[xi + j] -= l0 * x[x0 + j] + l1 * x[x1 + j] + l2 * x[x2 + j] + l3 * x[x3 + j];
+                }
+            }
+            for (; k < k1; k++) {
+                double l = lu[li + k];
+                if (l == 0) continue;
+                for (int j = c0, xk = k * m; j < c1; j++) x[xi + j] -= l * x[xk + j];
+            }
+        }
+    }
+
+    /** Work on the index range [from, to). */
+    private interface Range {
+        void run(int from, int to);
+    }
+
+    /** Splits [from, to) in halves down to ROW_BLOCK-sized pieces. */
+    private static final class RowTask extends RecursiveAction {
+        private final int from, to;
+        private final Range body;
+
+        RowTask(int from, int to, Range body) { this.from = from; this.to = to; this.body = body; }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROW_BLOCK) { body.run(from, to); return; }
+            // split on a block boundary so multiply tiles stay whole
+            int mid = from + Math.max(1, (to - from) / 2 / ROW_BLOCK) * ROW_BLOCK;
+            invokeAll(new RowTask(from, mid, body), new RowTask(mid, to, body));
+        }
+    }
+
+    double determinant() { return new LU(this).determinant(); }
+
+    Matrix inverse() { return new LU(this).solve(identity(rows)); }
+
+    /** x with this·x = b; b may have several columns. */
+    Matrix solve(Matrix b) { return new LU(this).solve(b); }
+
+    private static void swapRows(double[] m, int n, int r1, int r2) {
+        for (int j = 0, o1 = r1 * n, o2 = r2 * n; j < n; j++) {
+            double t = m[o1 + j]; m[o1 + j] = m[o2 + j]; m[o2 + j] = t;
+        }
+    }
+}
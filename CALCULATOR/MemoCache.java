@@ -0,0 +1,136 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded cache of pure-function results, keyed by function id, the
+ * function's generation (bumped whenever its definition or anything it
+ * reads changes, so stale entries simply stop matching and age out) and the
+ * argument values. Eviction is LRU; admission follows TinyLFU: a small
+ * count-min sketch tracks how often each key has been asked for recently,
+ * and a new entry only displaces the LRU victim if it has been asked for
+ * more often. One-off calls therefore can't flush the hot working set.
+ * Single-threaded; {@link Workspace} only consults it on its owner thread.
+ */
+final class MemoCache {
+
+    private static final int ROWS = 4;
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+    };
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Double> entries;
+    private final Key probe = new Key();
+
+    // frequency sketch: ROWS rows of saturating counters, halved every sampleSize bumps
+    private final byte[] counts;
+    private final int mask;
+    private final int sampleSize;
+    private int bumps;
+
+    long hits, misses, evictions, rejections;
+
+    MemoCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true);
+        int width = Integer.highestOneBit(Math.max(64, capacity * 2 - 1)) << 1;
+        counts = new byte[ROWS * width];
+        mask = width - 1;
+        sampleSize = capacity * 10;
+    }
+
+    /** The cached result of fn(args[from .. from+arity)), or null. */
+    Double get(int fn, int generation, double[] args, int from, int arity) {
+        probe.set(fn, generation, args, from, arity);
+        bump(probe.hash);
+        Double v = entries.get(probe);
+        if (v != null) hits++;
+        else           misses++;
+        return v;
+    }
+
+    /** Offers a result just computed after a {@link #get} miss for the same key. */
+    void put(int fn, int generation, double[] args, int from, int arity, double value) {
+        Key key = new Key();
+        key.set(fn, generation, java.util.Arrays.copyOfRange(args, from, from + arity), 0, arity);
+        if (entries.size() >= capacity) {
+            Iterator<Key> eldest = entries.keySet().iterator();
+            Key victim = eldest.next();
+            if (frequency(key.hash) <= frequency(victim.hash)) {
+                rejections++;
+                return;
+            }
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(key, value);
+    }
+
+    void clear() {
+        entries.clear();
+        java.util.Arrays.fill(counts, (byte) 0);
+        bumps = 0;
+        hits = misses = evictions = rejections = 0;
+    }
+
+    int size() { return entries.size(); }
+
+    double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    // ── Frequency sketch ───────────────────────────────────
+    private void bump(int hash) {
+        for (int r = 0; r < ROWS; r++) {
+            int i = r * (mask + 1) + index(hash, r);
+            if (counts[i] < 15) counts[i]++;
+        }
+        if (++bumps >= sampleSize) {
+            // ageing: halve everything so the sketch follows recent use
+            for (int i = 0; i < counts.length; i++) counts[i] >>= 1;
+            bumps /= 2;
+        }
+    }
+
+    private int frequency(int hash) {
+        int min = 15;
+        for (int r = 0; r < ROWS; r++) min = Math.min(min, counts[r * (mask + 1) + index(hash, r)]);
+        return min;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (h >>> 32) & mask;
+    }
+
+    /** (fn, generation, arguments) with a precomputed hash; the probe views the caller's array. */
+    private static final class Key {
+        int fn, generation, from, arity, hash;
+        double[] args;
+
+        void set(int fn, int generation, double[] args, int from, int arity) {
+            this.fn = fn;
+            this.generation = generation;
+            this.args = args;
+            this.from = from;
+            this.arity = arity;
+            int h = fn * 31 + generation;
+            for (int i = 0; i < arity; i++) h = h * 31 + Long.hashCode(Double.doubleToLongBits(args[from + i]));
+            hash = h ^ (h >>> 16);
+        }
+
+        @Override public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            if (k.hash != hash || k.fn != fn || k.generation != generation || k.arity != arity) return false;
+            for (int i = 0; i < arity; i++) {
+                if (Double.doubleToLongBits(args[from + i]) != Double.doubleToLongBits(k.args[k.from + i])) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Evaluates pasted text in one streaming pass: a single expression such as
+ * "(12.5 + 7) × 3", or whole spreadsheet columns of numbers, which can be
+ * megabytes. Text is read in blocks into one char array and tokenised by a
+ * small state machine; numbers are accumulated digit by digit and
+ * expressions are reduced on primitive operator/value stacks, so no string
+ * is created per token, line or cell.
+ *
+ * Items are separated by newlines, tabs and semicolons, and by commas that
+ * are not digit-group separators: "1,234.50" and the lakh grouping
+ * "12,34,567.00" are one number each, "1,2" and "12,34" are two.
+ * Every item is evaluated and the results are summed; items that aren't
+ * numbers or valid expressions — a column header, say — are counted as
+ * skipped. Spaces, ₹ and $ are ignored; "=" at the end of an item is too.
+ */
+final class PasteEvaluator {
+
+    private static final int BLOCK = 64 * 1024;
+    private static final int HEAD = 60;
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    // ── Result ─────────────────────────────────────────────
+    long   items;          // items that evaluated
+    long   skipped;        // non-empty items that didn't
+    double sum;            // sum over evaluated items
+    double last;           // value of the last evaluated item
+    boolean plainNumber;   // the only item was a lone number, no operators
+    final StringBuilder head = new StringBuilder();   // first chars, for history
+
+    /** Optional: receives every evaluated item, e.g. to fill a data set. */
+    DoubleConsumer sink;
+
+    // ── Number state ───────────────────────────────────────
+    private static final int N_NONE = 0, N_INT = 1, N_FRAC = 2, N_EXP_SIGN = 3, N_EXP = 4, N_GROUP = 5;
+    private int     num = N_NONE;
+    private long    mant;
+    private int     mantDigits;
+    private int     scale;             // decimal digits after the point (or dropped, negative)
+    private int     exp;
+    private boolean expNeg;
+    private long    beforeGroup;       // mantissa before a ',' that may be a separator
+    private int     beforeGroupDigits;
+    private int     groupDigits;
+    private int     groupValue;
+    private long    pairs;             // lakh groups ("34" in 12,34,567) held until a 3-digit group
+    private int     pairCount;
+
+    // ── Item (expression) state ────────────────────────────
+    private double[] vals = new double[16];
+    private int      nv;
+    private char[]   ops  = new char[16];
+    private int      no;
+    private boolean  expectOperand = true;
+    private boolean  bad;
+    private boolean  empty = true;
+    private int      itemOps;
+
+    /** Reads {@code in} to the end, reporting evaluated item counts per block. */
+    void run(Reader in, LongConsumer progress) throws IOException {
+        char[] buf = new char[BLOCK];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            if (head.length() < HEAD) head.append(buf, 0, Math.min(n, HEAD - head.length()));
+            for (int i = 0; i < n; i++) feed(buf[i]);
+            progress.accept(items);
+        }
+        endItem();
+        plainNumber = plainNumber && items == 1 && skipped == 0;
+    }
+
+    // ── Tokeniser ──────────────────────────────────────────
+    private void feed(char c) {
+        if (num != N_NONE && continueNumber(c)) return;
+
+        switch (c) {
+            case '\n': case '\r': case '\t': case ';':
+                endItem();
+                return;
+            case ',':
+                endItem();
+                return;
+            case ' ': case '\u00A0': case '₹': case '$': case '=':
+                return;
+            case '(':
+                if (!expectOperand) { bad = true; return; }
+                push('(');
+                empty = false;
+                return;
+            case ')':
+                if (expectOperand) { bad = true; return; }
+                while (no > 0 && ops[no - 1] != '(') apply(ops[--no]);
+                if (no == 0) { bad = true; return; }
+                no--;
+                return;
+            case '%':
+                if (expectOperand) bad = true;
+                else vals[nv - 1] /= 100;
+                return;
+            case '+': case '-': case '−':
+            case '*': case '×': case '/': case '÷':
+                operator(c);
+                return;
+            default:
+                if ((c >= '0' && c <= '9') || c == '.') {
+                    startNumber(c);
+                } else {
+                    bad = true;
+                    empty = false;
+                }
+        }
+    }
+
+    private void startNumber(char c) {
+        if (!expectOperand) bad = true;
+        empty = false;
+        mant = 0;
+        mantDigits = 0;
+        scale = 0;
+        exp = 0;
+        expNeg = false;
+        num = N_INT;
+        continueNumber(c);
+    }
+
+    /** Feeds {@code c} to the number being read; false if it ends the number. */
+    private boolean continueNumber(char c) {
+        boolean digit = c >= '0' && c <= '9';
+        switch (num) {
+            case N_INT:
+                if (digit) { addDigit(c, false); return true; }
+                if (c == '.') { num = N_FRAC; return true; }
+                if (c == ',') {
+                    beforeGroup = mant;
+                    beforeGroupDigits = mantDigits;
+                    groupDigits = 0;
+                    groupValue = 0;
+                    pairs = 0;
+                    pairCount = 0;
+                    num = N_GROUP;
+                    return true;
+                }
+                break;
+            case N_FRAC:
+                if (digit) { addDigit(c, true); return true; }
+                break;
+            case N_GROUP:
+                if (digit && groupDigits < 3) {
+                    groupDigits++;
+                    groupValue = groupValue * 10 + (c - '0');
+                    return true;
+                }
+                if (groupDigits == 2 && c == ',' && beforeGroupDigits <= 2 && pairCount < 8) {
+                    // maybe lakh grouping, 12,34,567: keep the pair until a 3-digit group settles it
+                    pairs = pairs * 100 + groupValue;
+                    pairCount++;
+                    groupDigits = 0;
+                    groupValue = 0;
+                    return true;
+                }
+                if (groupDigits == 3 && !digit) {
+                    // it was a digit-group separator: fold any pairs and the three digits in
+                    mant = beforeGroup;
+                    mantDigits = beforeGroupDigits;
+                    for (int k = pairCount - 1; k >= 0; k--) {
+                        int pair = (int) (pairs / pow10i(2 * k) % 100);
+                        addDigit((char) ('0' + pair / 10), false);
+                        addDigit((char) ('0' + pair % 10), false);
+                    }
+                    addDigit((char) ('0' + groupValue / 100), false);
+                    addDigit((char) ('0' + groupValue / 10 % 10), false);
+                    addDigit((char) ('0' + groupValue % 10), false);
+                    num = N_INT;
+                    return continueNumber(c);
+                }
+                // it was an item separator: finish the first number, each held pair
+                // is an item of its own, and the digits after the last comma start another
+                int gd = groupDigits, gv = groupValue, pc = pairCount;
+                long held = pairs;
+                mant = beforeGroup;
+                mantDigits = beforeGroupDigits;
+                finishNumber();
+                endItem();
+                for (int k = pc - 1; k >= 0; k--) {
+                    int pair = (int) (held / pow10i(2 * k) % 100);
+                    startNumber((char) ('0' + pair / 10));
+                    continueNumber((char) ('0' + pair % 10));
+                    endItem();
+                }
+                if (gd > 0) {
+                    startNumber((char) ('0' + gv / pow10i(gd - 1)));
+                    for (int k = gd - 2; k >= 0; k--) continueNumber((char) ('0' + gv / pow10i(k) % 10));
+                    return continueNumber(c);
+                }
+                return false;
+            case N_EXP_SIGN:
+                if (c == '+' || c == '-') { expNeg = c == '-'; num = N_EXP; return true; }
+                if (digit) { num = N_EXP; return continueNumber(c); }
+                bad = true;
+                break;
+            case N_EXP:
+                if (digit) { if (exp < 10_000) exp = exp * 10 + (c - '0'); return true; }
+                break;
+        }
+        if ((c == 'e' || c == 'E') && (num == N_INT || num == N_FRAC)) {
+            num = N_EXP_SIGN;
+            return true;
+        }
+        finishNumber();
+        return false;
+    }
+
+    private void addDigit(char c, boolean fraction) {
+        if (mantDigits < 18) {
+            mant = mant * 10 + (c - '0');
+            if (mant != 0) mantDigits++;
+            if (fraction) scale++;
+        } else if (!fraction) {
+            scale--;                     // integer digit beyond precision: ×10
+        }
+    }
+
+    private void finishNumber() {
+        int e = (expNeg ? -exp : exp) - scale;
+        double v = mant;
+        if (e == 0 || mant == 0) { /* exact; 0e400 is 0, not 0 × ∞ */ }
+        else if (e > 0 && e < POW10.length) v *= POW10[e];
+        else if (e < 0 && -e < POW10.length) v /= POW10[-e];
+        else v *= Math.pow(10, e);
+        num = N_NONE;
+        pushValue(v);
+    }
+
+    private static long pow10i(int k) {
+        long p = 1;
+        while (k-- > 0) p *= 10;
+        return p;
+    }
+
+    // ── Expression reduction ───────────────────────────────
+    private void operator(char c) {
+        empty = false;
+        char op = c == '−' ? '-' : c == '×' ? '*' : c == '÷' ? '/' : c;
+        if (expectOperand) {
+            if (op == '-') push('n');            // unary minus
+            else if (op != '+') bad = true;      // unary plus is a no-op
+            return;
+        }
+        while (no > 0 && ops[no - 1] != '(' && prec(ops[no - 1]) >= prec(op)) apply(ops[--no]);
+        push(op);
+        itemOps++;
+        expectOperand = true;
+    }
+
+    private static int prec(char op) {
+        switch (op) {
+            case 'n':           return 3;
+            case '*': case '/': return 2;
+            default:            return 1;
+        }
+    }
+
+    private void push(char op) {
+        if (no == ops.length) ops = Arrays.copyOf(ops, no * 2);
+        ops[no++] = op;
+    }
+
+    private void pushValue(double v) {
+        if (nv == vals.length) vals = Arrays.copyOf(vals, nv * 2);
+        vals[nv++] = v;
+        expectOperand = false;
+    }
+
+    private void apply(char op) {
+        if (op == 'n') {
+            if (nv < 1) { bad = true; return; }
+            vals[nv - 1] = -vals[nv - 1];
+            return;
+        }
+        if (nv < 2) { bad = true; return; }
+        double b = vals[--nv], a = vals[nv - 1];
+        switch (op) {
+            case '+': a += b; break;
+            case '-': a -= b; break;
+            case '*': a *= b; break;
+            case '/': a /= b; break;
+        }
+        vals[nv - 1] = a;
+    }
+
+    private void endItem() {
+        if (num != N_NONE) {
+            if (num == N_GROUP && groupDigits == 3) continueNumber(' ');
+            else if (num == N_GROUP) continueNumber('\n');
+            else finishNumber();
+        }
+        if (!empty) {
+            while (no > 0 && !bad) {
+                char op = ops[--no];
+                if (op == '(') bad = true;
+                else apply(op);
+            }
+            double v = nv == 1 ? vals[0] : Double.NaN;
+            if (bad || expectOperand || nv != 1 || !Double.isFinite(v)) {
+                skipped++;
+            } else {
+                items++;
+                sum += v;
+                last = v;
+                if (sink != null) sink.accept(v);
+                plainNumber = itemOps == 0;
+            }
+        }
+        nv = 0;
+        no = 0;
+        expectOperand = true;
+        bad = false;
+        empty = true;
+        itemOps = 0;
+    }
+}
@@ -0,0 +1,451 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Graph of one or more {@link Formula}s of x. Both axes share one scale, so
+ * a sample grid of power-of-two spacing just under a pixel is fixed for a
+ * whole range of zoom. Samples live in chunks keyed by (function, level,
+ * position) in an LRU cache: panning only computes the chunks that scroll
+ * into view, and a zoom that changes level takes every other sample from
+ * the neighbouring level where it is cached. Missing chunks are computed
+ * across cores off the EDT, each refined adaptively where the curve bends
+ * by more than about a pixel or jumps (the pen lifts at discontinuities);
+ * the plot is drawn with the chunks that are ready and redrawn as the rest
+ * arrive. The finished plot is drawn into an off-screen image that is
+ * reused until the viewport, size, functions or theme change; hovering
+ * draws on top of it.
+ */
+final class PlotView extends JComponent {
+
+    private static final int CHUNK = 128;
+    private static final int MAX_DEPTH = 6;          // up to 2^6 points between two samples
+    private static final int MAX_CHUNKS = 4096;
+    static final int MAX_FUNCTIONS = 256;            // the function's share of a chunk key
+    private static final double DEFAULT_SCALE = 1 / 40.0;    // units per pixel
+    private static final Color[] CURVES = {
+        Theme.ACCENT, Theme.FUNC_KEY, new Color(110, 210, 140), new Color(225, 120, 200),
+    };
+
+    private Formula[] functions = new Formula[0];
+    private double cx, cy, scale = DEFAULT_SCALE;   // view centre and units per pixel
+    private Theme theme = Theme.DARK;
+
+    /** Called with the x under the mouse, or NaN when it leaves. */
+    DoubleConsumer onHover = x -> { };
+
+    private final Map<Long, Chunk> chunks = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, Chunk> e) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+    long evaluations;                                // total formula evaluations, for tuning
+    private final HashSet<Long> sampling = new HashSet<>();   // chunk keys being computed
+    private int functionsGeneration;                 // results for older functions are dropped
+
+    // off-screen plot and the view it was drawn for
+    private BufferedImage image;
+    private double imgCx, imgCy, imgScale;
+    private int version, imgVersion = -1;
+
+    private int mouseX = -1;
+    // polyline being built by drawCurve
+    private int[] px = new int[1024], py = new int[1024];
+    private int points, lastX, lastY;
+
+    PlotView() {
+        MouseAdapter mouse = new MouseAdapter() {
+            private int lastX, lastY;
+
+            @Override public void mousePressed(MouseEvent e) { lastX = e.getX(); lastY = e.getY(); }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                cx -= (e.getX() - lastX) * scale;
+                cy += (e.getY() - lastY) * scale;
+                lastX = e.getX();
+                lastY = e.getY();
+                hover(e.getX());
+                repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(Math.pow(1.15, e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) resetView();
+            }
+
+            @Override public void mouseMoved(MouseEvent e)  { hover(e.getX()); }
+            @Override public void mouseExited(MouseEvent e) { hover(-1); }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    void setFunctions(Formula[] functions) {
+        if (functions.length > MAX_FUNCTIONS) throw new IllegalArgumentException("At most " + MAX_FUNCTIONS + " functions");
+        this.functions = functions.clone();
+        chunks.clear();
+        sampling.clear();
+        functionsGeneration++;
+        version++;
+        repaint();
+    }
+
+    int functionCount() { return functions.length; }
+
+    /** f_i(x), evaluated directly rather than read back from the samples. */
+    double valueAt(int i, double x) { return functions[i].eval(x); }
+
+    void setTheme(Theme t) {
+        theme = t;
+        version++;
+        repaint();
+    }
+
+    void resetView() {
+        cx = cy = 0;
+        scale = DEFAULT_SCALE;
+        repaint();
+    }
+
+    /** Zooms by {@code factor} (above 1 is out) keeping the point under (mx, my) fixed. */
+    void zoom(double factor, int mx, int my) {
+        double next = Math.max(1e-6, Math.min(1e6, scale * factor));
+        double wx = cx + (mx - getWidth() / 2.0) * scale, wy = cy - (my - getHeight() / 2.0) * scale;
+        cx = wx - (mx - getWidth() / 2.0) * next;
+        cy = wy + (my - getHeight() / 2.0) * next;
+        scale = next;
+        repaint();
+    }
+
+    private void hover(int x) {
+        mouseX = x;
+        onHover.accept(x < 0 ? Double.NaN : cx + (x - getWidth() / 2.0) * scale);
+        repaint();
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  PAINTING
+    // ═══════════════════════════════════════════════════════
+    @Override
+    protected void paintComponent(Graphics g) {
+        int w = getWidth(), h = getHeight();
+        if (w <= 0 || h <= 0) return;
+        cx = Math.max(-1e9, Math.min(1e9, cx));
+        cy = Math.max(-1e9, Math.min(1e9, cy));
+        if (image == null || image.getWidth() != w || image.getHeight() != h || imgVersion != version
+                || imgCx != cx || imgCy != cy || imgScale != scale) {
+            renderPlot(w, h);
+        }
+        g.drawImage(image, 0, 0, null);
+
+        // Hover: crosshair and a dot on each curve, over the cached plot
+        if (mouseX >= 0 && mouseX < w) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(theme.textMuted);
+            g2.drawLine(mouseX, 0, mouseX, h);
+            double x = cx + (mouseX - w / 2.0) * scale;
+            for (int i = 0; i < functions.length; i++) {
+                double y = valueAt(i, x);
+                if (!Double.isFinite(y)) continue;
+                double sy = h / 2.0 - (y - cy) / scale;
+                if (sy < -4 || sy > h + 4) continue;
+                g2.setColor(CURVES[i % CURVES.length]);
+                g2.fillOval(mouseX - 4, (int) Math.round(sy) - 4, 8, 8);
+            }
+            g2.dispose();
+        }
+    }
+
+    private void renderPlot(int w, int h) {
+        if (image == null || image.getWidth() != w || image.getHeight() != h) {
+            image = getGraphicsConfiguration() != null
+                ? getGraphicsConfiguration().createCompatibleImage(w, h)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        imgCx = cx;
+        imgCy = cy;
+        imgScale = scale;
+        imgVersion = version;
+
+        Graphics2D g = image.createGraphics();
+        g.setColor(theme.display);
+        g.fillRect(0, 0, w, h);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        drawGrid(g, w, h);
+
+        int level = Math.getExponent(scale);         // sample step 2^level ≤ one pixel
+        double step = Math.scalb(1.0, level);
+        long kFrom = (long) Math.floor((cx - w / 2.0 * scale) / step) - 1;
+        long kTo   = (long) Math.ceil((cx + w / 2.0 * scale) / step) + 1;
+        ensureSamples(level, kFrom, kTo);
+
+        g.setStroke(new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        for (int f = 0; f < functions.length; f++) {
+            g.setColor(CURVES[f % CURVES.length]);
+            drawCurve(g, f, level, step, kFrom, kTo, w, h);
+        }
+        g.dispose();
+    }
+
+    /** Polyline through the samples (and refinements), lifted at NaNs, one point per pixel change. */
+    private void drawCurve(Graphics2D g, int f, int level, double step, long kFrom, long kTo, int w, int h) {
+        points = 0;
+        lastX = lastY = Integer.MIN_VALUE;
+        for (long c = Math.floorDiv(kFrom, CHUNK); c <= Math.floorDiv(kTo, CHUNK); c++) {
+            Chunk chunk = chunks.get(key(f, level, c));
+            if (chunk == null) {                     // still being sampled: a gap for now
+                point(g, 0, Double.NaN, w, h);
+                continue;
+            }
+            long base = c * CHUNK;
+            int from = (int) Math.max(0, kFrom - base), to = (int) Math.min(CHUNK, kTo - base);
+            for (int i = from; i <= to; i++) {
+                point(g, (base + i) * step, chunk.ys[i], w, h);
+                if (i == to) break;
+                for (int q = chunk.extraStart(i); q < chunk.extraEnd(i); q++) point(g, chunk.ex[q], chunk.ey[q], w, h);
+            }
+        }
+        if (points > 1) g.drawPolyline(px, py, points);
+    }
+
+    private void point(Graphics2D g, double x, double y, int w, int h) {
+        if (Double.isNaN(y)) {
+            if (points > 1) g.drawPolyline(px, py, points);
+            points = 0;
+            lastX = lastY = Integer.MIN_VALUE;
+            return;
+        }
+        int sx = (int) Math.round(w / 2.0 + (x - cx) / scale);
+        int sy = (int) Math.round(Math.max(-4 * h, Math.min(5 * h, h / 2.0 - (y - cy) / scale)));
+        if (sx == lastX && sy == lastY) return;
+        if (points == px.length) {
+            px = Arrays.copyOf(px, points * 2);
+            py = Arrays.copyOf(py, points * 2);
+        }
+        px[points] = lastX = sx;
+        py[points] = lastY = sy;
+        points++;
+    }
+
+    private void drawGrid(Graphics2D g, int w, int h) {
+        double raw = 80 * scale;                     // aim for a line every ~80 px
+        double pow = Math.pow(10, Math.floor(Math.log10(raw)));
+        double m = raw / pow;
+        double step = (m < 2 ? 2 : m < 5 ? 5 : 10) * pow;
+        int decimals = (int) Math.max(0, -Math.floor(Math.log10(step)));
+
+        double x0 = cx - w / 2.0 * scale, y1 = cy + h / 2.0 * scale;
+        int axisX = (int) Math.round(w / 2.0 - cx / scale), axisY = (int) Math.round(h / 2.0 + cy / scale);
+        int labelY = Math.max(12, Math.min(h - 4, axisY + 13));
+        int labelX = Math.max(3, Math.min(w - 40, axisX + 4));
+
+        g.setFont(getFont() != null ? getFont().deriveFont(10f) : new Font("Segoe UI", Font.PLAIN, 10));
+        for (double v = Math.ceil(x0 / step) * step; v <= x0 + w * scale; v += step) {
+            int sx = (int) Math.round((v - x0) / scale);
+            g.setColor(theme.border);
+            g.drawLine(sx, 0, sx, h);
+            if (Math.abs(v) > step / 2) {
+                g.setColor(theme.textMuted);
+                g.drawString(String.format("%." + decimals + "f", v), sx + 2, labelY);
+            }
+        }
+        for (double v = Math.floor(y1 / step) * step; v >= y1 - h * scale; v -= step) {
+            int sy = (int) Math.round((y1 - v) / scale);
+            g.setColor(theme.border);
+            g.drawLine(0, sy, w, sy);
+            if (Math.abs(v) > step / 2) {
+                g.setColor(theme.textMuted);
+                g.drawString(String.format("%." + decimals + "f", v), labelX, sy - 2);
+            }
+        }
+        g.setColor(theme.textMuted);
+        g.drawLine(axisX, 0, axisX, h);
+        g.drawLine(0, axisY, w, axisY);
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  SAMPLING
+    // ═══════════════════════════════════════════════════════
+    /**
+     * Function in the low 8 bits, level + 512 in the next 10 and the chunk
+     * index above: with the view clamped to ±1e9 at 2^-20 steps that needs
+     * under 44 bits.
+     */
+    private static long key(int f, int level, long chunk) {
+        return chunk << 18 | (long) (level + 512) << 8 | f;
+    }
+
+    /**
+     * Starts computing every chunk in [kFrom, kTo] that is neither cached
+     * nor already under way: in parallel on a worker, then cached and
+     * repainted on the EDT. A definition edited meanwhile replots, which
+     * drops this batch.
+     */
+    private void ensureSamples(int level, long kFrom, long kTo) {
+        ArrayList<Job> missing = new ArrayList<>();
+        for (int f = 0; f < functions.length; f++) {
+            for (long c = Math.floorDiv(kFrom, CHUNK); c <= Math.floorDiv(kTo, CHUNK); c++) {
+                long key = key(f, level, c);
+                if (chunks.get(key) != null || !sampling.add(key)) continue;
+                Job job = new Job(functions[f], f, level, c);
+                prefill(job, f);
+                missing.add(job);
+            }
+        }
+        if (missing.isEmpty()) return;
+        int generation = functionsGeneration;
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() {
+                missing.parallelStream().forEach(Job::run);
+                return null;
+            }
+
+            @Override protected void done() {
+                if (generation != functionsGeneration) return;
+                for (Job job : missing) sampling.remove(key(job.fn, job.level, job.index));
+                try {
+                    get();
+                } catch (Exception ex) {
+                    return;                          // left as gaps; the next view change tries again
+                }
+                for (Job job : missing) {
+                    chunks.put(key(job.fn, job.level, job.index), job.chunk);
+                    evaluations += job.evaluations;
+                }
+                imgVersion = -1;                     // redraw the image with them
+                repaint();
+            }
+        }.execute();
+    }
+
+    /**
+     * Copies samples this chunk shares with cached chunks one level either
+     * side: every other sample here is a sample of the coarser level, and
+     * every sample here is every other sample of the finer one.
+     */
+    private void prefill(Job job, int f) {
+        long base = job.index * CHUNK;
+        Chunk coarse = null, fine = null;
+        long coarseIdx = Long.MIN_VALUE, fineIdx = Long.MIN_VALUE;
+        for (int i = 0; i <= CHUNK; i++) {
+            long k = base + i;
+            if ((k & 1) == 0) {
+                long k2 = k >> 1, c = Math.floorDiv(k2, CHUNK);
+                if (c != coarseIdx) { coarse = chunks.get(key(f, job.level + 1, c)); coarseIdx = c; }
+                if (coarse != null) { job.chunk.ys[i] = coarse.ys[(int) (k2 - c * CHUNK)]; job.known[i] = true; continue; }
+            }
+            long k2 = k << 1, c = Math.floorDiv(k2, CHUNK);
+            if (c != fineIdx) { fine = chunks.get(key(f, job.level - 1, c)); fineIdx = c; }
+            if (fine != null) { job.chunk.ys[i] = fine.ys[(int) (k2 - c * CHUNK)]; job.known[i] = true; }
+        }
+    }
+
+    /** Samples k·2^level for k in [index·CHUNK, (index+1)·CHUNK], plus refinements between them. */
+    private static final class Chunk {
+        final double[] ys = new double[CHUNK + 1];
+        int[] extraAt;                   // refinements after sample i: extraAt[i] .. extraAt[i+1]
+        double[] ex, ey;
+
+        int extraStart(int i) { return extraAt == null ? 0 : extraAt[i]; }
+        int extraEnd(int i)   { return extraAt == null ? 0 : extraAt[i + 1]; }
+    }
+
+    /** One chunk's worth of work; runs on a pool thread with its own evaluation stack. */
+    private static final class Job {
+        final Formula formula;
+        final int fn, level;
+        final long index;
+        final Chunk chunk = new Chunk();
+        final boolean[] known = new boolean[CHUNK + 1];
+        long evaluations;
+
+        private final double[] args = new double[1];
+        private double[] stack;
+        private double tol;
+        private int[] at;
+        private double[] ex = new double[0], ey = new double[0];
+        private int extra;
+
+        Job(Formula formula, int fn, int level, long index) {
+            this.formula = formula;
+            this.fn = fn;
+            this.level = level;
+            this.index = index;
+        }
+
+        void run() {
+            stack = new double[formula.stackSize()];
+            double step = Math.scalb(1.0, level);
+            tol = step;                              // between half and one pixel
+            long base = index * CHUNK;
+            double[] ys = chunk.ys;
+            for (int i = 0; i <= CHUNK; i++) {
+                if (!known[i]) ys[i] = eval((base + i) * step);
+            }
+            at = new int[CHUNK + 1];
+            for (int i = 0; i < CHUNK; i++) {
+                at[i] = extra;
+                refine((base + i) * step, ys[i], (base + i + 1) * step, ys[i + 1], 1);
+            }
+            at[CHUNK] = extra;
+            if (extra > 0) {
+                chunk.extraAt = at;
+                chunk.ex = Arrays.copyOf(ex, extra);
+                chunk.ey = Arrays.copyOf(ey, extra);
+            }
+        }
+
+        private double eval(double x) {
+            evaluations++;
+            args[0] = x;
+            double y = formula.eval(args, stack);
+            return Double.isFinite(y) ? y : Double.NaN;
+        }
+
+        /** Adds midpoints where the line l→r misses the curve by over tol, or crosses a domain edge. */
+        private void refine(double xl, double yl, double xr, double yr, int depth) {
+            double xm = 0.5 * (xl + xr), ym = eval(xm);
+            boolean lf = !Double.isNaN(yl), rf = !Double.isNaN(yr), mf = !Double.isNaN(ym);
+            boolean bent = lf && rf && mf && Math.abs(ym - 0.5 * (yl + yr)) > tol;
+            boolean edge = lf != rf || lf != mf;
+            if (!bent && !edge) return;
+            if (depth == MAX_DEPTH) {
+                // A jump that doesn't shrink as the interval does is a discontinuity: lift the pen
+                double jump = Math.abs(yr - yl);
+                boolean breaks = bent && jump > 4 * tol
+                                 && Math.max(Math.abs(ym - yl), Math.abs(yr - ym)) > 0.9 * jump;
+                add(xm, breaks ? Double.NaN : ym);
+                return;
+            }
+            refine(xl, yl, xm, ym, depth + 1);
+            add(xm, ym);
+            refine(xm, ym, xr, yr, depth + 1);
+        }
+
+        private void add(double x, double y) {
+            if (extra == ex.length) {
+                ex = Arrays.copyOf(ex, Math.max(64, extra * 2));
+                ey = Arrays.copyOf(ey, ex.length);
+            }
+            ex[extra] = x;
+            ey[extra] = y;
+            extra++;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.LongConsumer;
+
+/**
+ * Integer engine for programmer mode. Values are plain {@code long}s kept
+ * sign-extended to the selected word size, and every operation wraps to
+ * that size the way the hardware would. Digit parsing and formatting in
+ * bases 2, 8, 10 and 16 go through lookup tables into caller-supplied char
+ * arrays, so converting a value — or a pasted dump of thousands — makes no
+ * garbage.
+ */
+final class Programmer {
+
+    static final int[]    WORD_BITS  = { 64, 32, 16, 8 };
+    static final String[] WORD_NAMES = { "QWORD", "DWORD", "WORD", "BYTE" };
+
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final byte[] DIGIT_VALUE = new byte[128];     // -1: not a digit
+    private static final char[] PAIRS = new char[200];           // "00".."99"
+    static {
+        java.util.Arrays.fill(DIGIT_VALUE, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            DIGIT_VALUE[DIGITS[i]] = (byte) i;
+            DIGIT_VALUE[Character.toLowerCase(DIGITS[i])] = (byte) i;
+        }
+        for (int i = 0; i < 100; i++) {
+            PAIRS[2 * i]     = (char) ('0' + i / 10);
+            PAIRS[2 * i + 1] = (char) ('0' + i % 10);
+        }
+    }
+
+    int bits  = 64;
+    int radix = 16;
+
+    private final char[] out = new char[65];
+
+    // ── Word size ──────────────────────────────────────────
+    /** All ones in the low {@code bits} bits. */
+    long mask() { return bits == 64 ? -1L : (1L << bits) - 1; }
+
+    /** Wraps {@code v} to the word size, sign-extended. */
+    long fit(long v) { return bits == 64 ? v : v << (64 - bits) >> (64 - bits); }
+
+    long unsigned(long v) { return v & mask(); }
+
+    String wordName() {
+        for (int i = 0; i < WORD_BITS.length; i++) if (WORD_BITS[i] == bits) return WORD_NAMES[i];
+        return bits + "-bit";
+    }
+
+    /** Cycles QWORD → DWORD → WORD → BYTE → QWORD. */
+    void nextWordSize() {
+        int next = 0;
+        for (int i = 0; i < WORD_BITS.length; i++) if (WORD_BITS[i] == bits) next = (i + 1) % WORD_BITS.length;
+        bits = WORD_BITS[next];
+    }
+
+    /** Same word size and base, for use on another thread. */
+    Programmer copy() {
+        Programmer p = new Programmer();
+        p.bits = bits;
+        p.radix = radix;
+        return p;
+    }
+
+    // ── Digits & conversion ────────────────────────────────
+    /** Value of {@code c} as a digit in {@code radix}, or -1. */
+    static int digit(char c, int radix) {
+        int d = c < 128 ? DIGIT_VALUE[c] : -1;
+        return d < radix ? d : -1;
+    }
+
+    /**
+     * Entry after typing digit {@code d}, or {@code entry} unchanged if it
+     * wouldn't fit. A negative decimal entry grows away from zero, down to
+     * the word's minimum.
+     */
+    long appendDigit(long entry, int d) {
+        if (radix == 10) {
+            boolean neg = entry < 0;
+            long max = mask() >>> 1;
+            long lim = neg ? -max - 1 : -max;               // in negatives, which cover the minimum
+            long q = neg ? entry : -entry;
+            if (q < (lim + d) / 10) return entry;          // truncation rounds up here
+            return neg ? q * 10 - d : -(q * 10 - d);
+        }
+        long u = unsigned(entry);
+        if (Long.compareUnsigned(u, Long.divideUnsigned(mask() - d, radix)) > 0) return entry;
+        return fit(u * radix + d);
+    }
+
+    long dropDigit(long entry) {
+        return radix == 10 ? entry / 10 : fit(Long.divideUnsigned(unsigned(entry), radix));
+    }
+
+    /**
+     * Writes {@code v} in {@code base} to the end of {@code buf} and returns
+     * the start index. Decimal is signed; other bases show the word's bits.
+     */
+    int format(long v, int base, char[] buf) {
+        int pos = buf.length;
+        if (base == 10) {
+            long q = v < 0 ? v : -v;                 // negatives cover Long.MIN_VALUE
+            while (q <= -100) {
+                long q2 = q / 100;
+                int r = (int) (q2 * 100 - q);
+                q = q2;
+                buf[--pos] = PAIRS[2 * r + 1];
+                buf[--pos] = PAIRS[2 * r];
+            }
+            int r = (int) -q;
+            if (r >= 10) {
+                buf[--pos] = PAIRS[2 * r + 1];
+                buf[--pos] = PAIRS[2 * r];
+            } else {
+                buf[--pos] = (char) ('0' + r);
+            }
+            if (v < 0) buf[--pos] = '-';
+            return pos;
+        }
+        int shift = Integer.numberOfTrailingZeros(base);
+        long u = unsigned(v);
+        do {
+            buf[--pos] = DIGITS[(int) (u & (base - 1))];
+            u >>>= shift;
+        } while (u != 0);
+        return pos;
+    }
+
+    String toString(long v, int base) {
+        int start = format(v, base, out);
+        return new String(out, start, out.length - start);
+    }
+
+    /** As {@link #toString} with a 0x / 0o / 0b prefix outside decimal, for history. */
+    String tagged(long v) {
+        String s = toString(v, radix);
+        switch (radix) {
+            case 16: return "0x" + s;
+            case 8:  return "0o" + s;
+            case 2:  return "0b" + s;
+            default: return s;
+        }
+    }
+
+    // ── Operations ─────────────────────────────────────────
+    long not(long a) { return fit(~a); }
+
+    /** Binary operation on two fitted values; ArithmeticException on ÷/MOD by 0. */
+    long apply(String op, long a, long b) {
+        switch (op) {
+            case "+":    return fit(a + b);
+            case "−":    return fit(a - b);
+            case "×":    return fit(a * b);
+            case "÷":    return fit(a / b);
+            case "MOD":  return fit(a % b);
+            case "AND":  return a & b;
+            case "OR":   return a | b;
+            case "XOR":  return a ^ b;
+            case "NAND": return fit(~(a & b));
+            case "NOR":  return fit(~(a | b));
+            case "<<":   return b < 0 || b >= bits ? 0 : fit(a << b);
+            case ">>":   return b < 0 ? a : a >> Math.min(b, 63);      // arithmetic
+            case "ROL":  return rotate(a, b);
+            case "ROR":  return rotate(a, -b);
+            default:     return b;
+        }
+    }
+
+    private long rotate(long a, long by) {
+        int n = (int) Math.floorMod(by, (long) bits);
+        if (bits == 64) return Long.rotateLeft(a, n);
+        long u = unsigned(a);
+        return fit(n == 0 ? u : (u << n | u >>> (bits - n)) & mask());
+    }
+
+    // ── Pasted dumps ───────────────────────────────────────
+    /** Totals of a pasted list of integers, wrapped to the word size. */
+    static final class Totals {
+        long count, skipped, sum, xor, last;
+    }
+
+    /**
+     * Reads whitespace/comma/anything-separated integers in the current
+     * base; 0x and 0o prefixes (and 0b outside hex) override it, and in
+     * decimal a leading '-' negates. Tokens that aren't valid or don't fit
+     * the word are skipped. One pass, one reused block buffer.
+     */
+    Totals scan(Reader in, LongConsumer progress) throws IOException {
+        Tokens tokens = new Tokens();
+        char[] block = new char[64 * 1024];
+        int n;
+        while ((n = in.read(block)) >= 0) {
+            for (int i = 0; i < n; i++) tokens.feed(block[i]);
+            progress.accept(tokens.totals.count);
+        }
+        tokens.feed(' ');
+        return tokens.totals;
+    }
+
+    /** Character-at-a-time integer tokenizer behind {@link #scan}. */
+    private final class Tokens {
+        final Totals totals = new Totals();
+        private final long max = mask();
+
+        Tokens() { setBase(radix); }
+        private boolean inToken, bad, neg, minus;
+        private int base, digits;
+        private long value;
+        private long limit;              // largest value that can take another digit
+        private int  lastDigit;          // largest digit allowed at the limit
+
+        private void setBase(int b) {
+            base = b;
+            limit = Long.divideUnsigned(max, b);
+            lastDigit = (int) Long.remainderUnsigned(max, b);
+        }
+
+        void feed(char c) {
+            boolean word = c < 128 && (DIGIT_VALUE[c] >= 0 || Character.isLetter(c) || c == '_');
+            if (!word) {
+                if (inToken) endToken();
+                minus = c == '-' && radix == 10;
+                return;
+            }
+            if (!inToken) {
+                inToken = true;
+                bad = false;
+                neg = minus;
+                if (base != radix) setBase(radix);
+                digits = 0;
+                value = 0;
+            }
+            minus = false;
+            if (c == '_') return;
+            if (digits == 1 && value == 0 && (c == 'x' || c == 'X' || c == 'o' || c == 'O'
+                    || ((c == 'b' || c == 'B') && radix != 16))) {
+                setBase(c == 'x' || c == 'X' ? 16 : c == 'o' || c == 'O' ? 8 : 2);
+                digits = 0;
+                return;
+            }
+            int d = digit(c, base);
+            int cmp = Long.compareUnsigned(value, limit);
+            if (d < 0 || cmp > 0 || (cmp == 0 && d > lastDigit)) {
+                bad = true;
+            } else {
+                value = value * base + d;
+                digits++;
+            }
+        }
+
+        private void endToken() {
+            inToken = false;
+            if (bad || digits == 0) {
+                totals.skipped++;
+                return;
+            }
+            long v = fit(neg && base == 10 ? -value : value);
+            totals.count++;
+            totals.sum = fit(totals.sum + v);
+            totals.xor ^= v;
+            totals.last = v;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Streaming quantile sketch with a relative-error guarantee (the DDSketch
+ * scheme). Each value lands in a logarithmic bucket whose bounds are within
+ * {@link #ALPHA} of each other, so any quantile read back is within 0.5% of
+ * the true value at that rank. Adding, removing and merging are O(1) per
+ * value and memory depends on the range of the data, not on its size.
+ */
+final class QuantileSketch {
+
+    static final double ALPHA = 0.005;
+    private static final double GAMMA = (1 + ALPHA) / (1 - ALPHA);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeros;
+    private long count;
+
+    void add(double x)    { update(x, 1); }
+    void remove(double x) { update(x, -1); }
+
+    long count() { return count; }
+
+    void clear() {
+        positive.clear();
+        negative.clear();
+        zeros = 0;
+        count = 0;
+    }
+
+    void merge(QuantileSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeros += other.zeros;
+        count += other.count;
+    }
+
+    /**
+     * Value at quantile {@code q} in [0, 1], interpolated between the two
+     * ranks either side of {@code q·(n−1)}; NaN when empty.
+     */
+    double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        double h = q * (count - 1);
+        long rank = (long) h;
+        double below = valueAt(rank);
+        return rank + 1 < count ? below + (h - rank) * (valueAt(rank + 1) - below) : below;
+    }
+
+    private double valueAt(long rank) {
+        long seen = 0;
+        // most negative first, then zeros, then positives
+        for (int i = negative.hi; i >= negative.lo; i--) {
+            seen += negative.get(i);
+            if (seen > rank) return -value(i);
+        }
+        seen += zeros;
+        if (seen > rank) return 0;
+        for (int i = positive.lo; i <= positive.hi; i++) {
+            seen += positive.get(i);
+            if (seen > rank) return value(i);
+        }
+        return value(positive.hi);
+    }
+
+    private void update(double x, int delta) {
+        if (x >= Double.MIN_NORMAL)       positive.add(index(x), delta);
+        else if (x <= -Double.MIN_NORMAL) negative.add(index(-x), delta);
+        else                              zeros += delta;
+        count += delta;
+    }
+
+    private static int index(double x) { return (int) Math.ceil(Math.log(x) / LOG_GAMMA); }
+
+    /** Representative value of bucket i: the point with equal relative error to both bounds. */
+    private static double value(int i) { return 2 * Math.pow(GAMMA, i) / (GAMMA + 1); }
+
+    /** Counts for a contiguous range of bucket indices, grown as needed. */
+    private static final class Buckets {
+        long[] counts = new long[0];
+        int offset;               // bucket index of counts[0]
+        int lo = 0, hi = -1;      // occupied index range (empty when hi < lo)
+
+        long get(int i) { return counts[i - offset]; }
+
+        void add(int i, long delta) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = i - 32;
+                lo = hi = i;
+            } else if (i < offset || i >= offset + counts.length) {
+                grow(i);
+            }
+            counts[i - offset] += delta;
+            lo = Math.min(lo, i);
+            hi = Math.max(hi, i);
+        }
+
+        void merge(Buckets other) {
+            for (int i = other.lo; i <= other.hi; i++) {
+                long c = other.get(i);
+                if (c != 0) add(i, c);
+            }
+        }
+
+        void clear() {
+            counts = new long[0];
+            lo = 0;
+            hi = -1;
+        }
+
+        private void grow(int i) {
+            int newLo = Math.min(offset, i), newHi = Math.max(offset + counts.length - 1, i);
+            int size = Math.max(counts.length * 2, newHi - newLo + 1);
+            int newOffset = i < offset ? newHi - size + 1 : newLo;
+            long[] grown = new long[size];
+            System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+            counts = grown;
+            offset = newOffset;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compact binary recording of a calculator session: every keypad label the
+ * buttons send to {@code handleButton}, every key the keyboard listener
+ * sees, and every mode switch, each stamped with the microseconds since the
+ * previous event. Labels are written once into a dictionary and referred to
+ * by number afterwards, and all integers are varints, so a typical event
+ * takes three or four bytes. The header holds the engine's state when
+ * recording began, so a replay starts from the same display, pending
+ * operator and memory.
+ *
+ * <pre>
+ *   "CSL" version:u8  startMillis:i64  state  (version 2 on; see CalcEngine.State)
+ *   record: tag:u8 ...
+ *     DEF    id len utf8       (label dictionary entry)
+ *     BUTTON dt id
+ *     KEY    dt code char modifiers
+ *     MODE   dt id             (mode name, through the dictionary)
+ * </pre>
+ *
+ * Writing never throws on the caller's thread; the first I/O failure is
+ * kept and reported by {@link #close}.
+ */
+final class SessionLog implements Closeable {
+
+    private static final byte[] MAGIC = {'C', 'S', 'L'};
+    private static final int VERSION = 2;              // 1 had no engine state in the header
+    private static final int DEF = 0, BUTTON = 1, KEY = 2, MODE = 3;
+
+    /** Receives a recording's events in order; {@code micros} is the gap since the previous one. */
+    interface Visitor {
+        void button(long micros, String label);
+        void key(long micros, int code, char ch, int modifiers);
+        void mode(long micros, String name);
+    }
+
+    /** What a recording starts from: its wall-clock start and the engine's state then. */
+    static final class Header {
+        final long startMillis;
+        final CalcEngine.State state;                  // null for a version 1 recording
+
+        Header(long startMillis, CalcEngine.State state) {
+            this.startMillis = startMillis;
+            this.state = state;
+        }
+    }
+
+    private final OutputStream out;
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private long last = System.nanoTime();
+    private int events;
+    private IOException failure;
+
+    /** Starts a recording; {@code initial} is the engine's state as the first event meets it. */
+    SessionLog(Path file, CalcEngine.State initial) throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(file), 8192);
+        DataOutputStream header = new DataOutputStream(out);    // unbuffered view; out stays open
+        header.write(MAGIC);
+        header.write(VERSION);
+        header.writeLong(System.currentTimeMillis());
+        initial.write(header);
+    }
+
+    // ── Recording ──────────────────────────────────────────
+    void button(String label) {
+        int id = define(label);
+        begin(BUTTON);
+        varint(id);
+    }
+
+    void key(int code, char ch, int modifiers) {
+        begin(KEY);
+        varint(code);
+        varint(ch);
+        varint(modifiers);
+    }
+
+    void mode(String name) {
+        int id = define(name);
+        begin(MODE);
+        varint(id);
+    }
+
+    int events() { return events; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } catch (IOException ex) {
+            if (failure == null) failure = ex;
+        }
+        if (failure != null) throw failure;
+    }
+
+    private int define(String label) {
+        Integer id = ids.get(label);
+        if (id != null) return id;
+        id = ids.size();
+        ids.put(label, id);
+        byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+        write(DEF);
+        varint(id);
+        varint(utf8.length);
+        try {
+            out.write(utf8);
+        } catch (IOException ex) {
+            if (failure == null) failure = ex;
+        }
+        return id;
+    }
+
+    private void begin(int tag) {
+        long now = System.nanoTime();
+        write(tag);
+        varint((now - last) / 1000);
+        last = now;
+        events++;
+    }
+
+    private void varint(long v) {
+        while ((v & ~0x7FL) != 0) {
+            write((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        write((int) v);
+    }
+
+    private void write(int b) {
+        if (failure != null) return;
+        try {
+            out.write(b);
+        } catch (IOException ex) {
+            failure = ex;
+        }
+    }
+
+    // ── Reading ────────────────────────────────────────────
+    /** Replays a recording into {@code visitor} and returns its header. */
+    static Header read(Path file, Visitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) throw new IOException("Not a session recording");
+            int version = in.read();
+            if (version != 1 && version != VERSION) throw new IOException("Unsupported recording version " + version);
+            Header header = new Header(in.readLong(), version >= 2 ? CalcEngine.State.read(in) : null);
+
+            ArrayList<String> labels = new ArrayList<>();
+            for (int tag; (tag = in.read()) >= 0; ) {
+                switch (tag) {
+                    case DEF:
+                        int id = (int) varint(in);
+                        byte[] utf8 = new byte[(int) varint(in)];
+                        in.readFully(utf8);
+                        if (id != labels.size()) throw new IOException("Corrupt label dictionary");
+                        labels.add(new String(utf8, StandardCharsets.UTF_8));
+                        break;
+                    case BUTTON:
+                        visitor.button(varint(in), label(labels, varint(in)));
+                        break;
+                    case KEY:
+                        long dt = varint(in);
+                        int code = (int) varint(in);
+                        char ch = (char) varint(in);
+                        visitor.key(dt, code, ch, (int) varint(in));
+                        break;
+                    case MODE:
+                        visitor.mode(varint(in), label(labels, varint(in)));
+                        break;
+                    default:
+                        throw new IOException("Corrupt recording: tag " + tag);
+                }
+            }
+            return header;
+        }
+    }
+
+    private static String label(ArrayList<String> labels, long id) throws IOException {
+        if (id >= labels.size()) throw new IOException("Corrupt recording: label " + id);
+        return labels.get((int) id);
+    }
+
+    private static long varint(InputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Recording ends mid-event");
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Corrupt recording: varint too long");
+    }
+}
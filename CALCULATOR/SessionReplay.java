@@ -0,0 +1,156 @@
+import java.awt.event.InputEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Replays a {@link SessionLog} recording headlessly and at full speed
+ * against a fresh {@link CalcEngine}, timing every event, and reports the
+ * latency distribution and the state the session ends in. The engine
+ * first takes the state recorded in the header, so a session recorded
+ * mid-calculation replays against the same display, pending operator and
+ * memory. Keys go through
+ * the same {@link CalcEngine#keyAction} mapping as the window. Only the
+ * standard and statistics keypads run in the engine: events in the other
+ * modes, and clipboard shortcuts, are counted as skipped.
+ *
+ * <pre>  java SessionReplay session.csl [runs]</pre>
+ */
+final class SessionReplay {
+
+    /** One recorded event; {@code label} is null for a key. */
+    private static final class Event {
+        final long micros;
+        final String label;
+        final String mode;
+        final int code, modifiers;
+        final char ch;
+
+        Event(long micros, String label, String mode, int code, char ch, int modifiers) {
+            this.micros = micros;
+            this.label = label;
+            this.mode = mode;
+            this.code = code;
+            this.ch = ch;
+            this.modifiers = modifiers;
+        }
+    }
+
+    /** What one replay measured. */
+    static final class Report {
+        int events, replayed, skipped;          // mode switches aren't counted
+        long sessionMicros, wallNanos;
+        long[] latencies = new long[0];          // nanoseconds, sorted
+        String display, expression;
+        double memory;
+        int history;
+        final Stats data = new Stats();
+
+        long percentile(double q) {
+            if (latencies.length == 0) return 0;
+            return latencies[Math.min(latencies.length - 1, (int) (q * latencies.length))];
+        }
+
+        @Override
+        public String toString() {
+            double mean = 0;
+            for (long l : latencies) mean += l;
+            mean = latencies.length == 0 ? 0 : mean / latencies.length;
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("events      %,d recorded over %.1f s; %,d replayed, %,d skipped%n",
+                                    events, sessionMicros / 1e6, replayed, skipped));
+            sb.append(String.format("replay      %.2f ms, %,.0f events/s%n",
+                                    wallNanos / 1e6, replayed * 1e9 / Math.max(1, wallNanos)));
+            sb.append(String.format("latency µs  mean %.2f · p50 %.2f · p90 %.2f · p99 %.2f · max %.2f%n",
+                                    mean / 1e3, percentile(.5) / 1e3, percentile(.9) / 1e3,
+                                    percentile(.99) / 1e3, (latencies.length == 0 ? 0 : latencies[latencies.length - 1]) / 1e3));
+            sb.append(String.format("display     %s%n", display));
+            sb.append(String.format("expression  %s%n", expression.isEmpty() ? "—" : expression));
+            sb.append(String.format("memory      %s%n", memory));
+            sb.append(String.format("history     %,d entries%n", history));
+            sb.append(String.format("data        %,d values", data.count()));
+            if (data.count() > 0) sb.append(String.format(", sum %s, mean %s", data.sum(), data.mean()));
+            return sb.toString();
+        }
+    }
+
+    private final ArrayList<Event> events = new ArrayList<>();
+    private long sessionMicros;
+    private CalcEngine.State initial;                    // null: the recording predates it; start cleared
+
+    private SessionReplay() {}
+
+    static SessionReplay load(Path file) throws IOException {
+        SessionReplay r = new SessionReplay();
+        r.initial = SessionLog.read(file, new SessionLog.Visitor() {
+            public void button(long micros, String label) { r.add(new Event(micros, label, null, 0, '\0', 0)); }
+            public void key(long micros, int code, char ch, int modifiers) {
+                r.add(new Event(micros, null, null, code, ch, modifiers));
+            }
+            public void mode(long micros, String name) { r.add(new Event(micros, null, name, 0, '\0', 0)); }
+        }).state;
+        return r;
+    }
+
+    private void add(Event e) {
+        events.add(e);
+        sessionMicros += e.micros;
+    }
+
+    /** Runs the whole session once against a new engine in the recorded starting state. */
+    Report run() {
+        Report report = new Report();
+        int[] history = {0};
+        CalcEngine engine = new CalcEngine(new CalcEngine.Listener() {
+            public void history(String entry)  { history[0]++; }
+            public void dataPoint(double value) { report.data.add(value); }
+        });
+        if (initial != null) engine.restore(initial);
+        long[] lat = new long[events.size()];
+        int n = 0;
+        boolean active = true;                   // in a mode the engine runs
+        long wallStart = System.nanoTime();
+        for (Event e : events) {
+            if (e.mode != null) {
+                active = e.mode.equals("STANDARD") || e.mode.equals("STATISTICS");
+                engine.collecting = e.mode.equals("STATISTICS");
+                continue;
+            }
+            long t0 = System.nanoTime();
+            String label = e.label;
+            if (label == null && (e.modifiers & InputEvent.CTRL_DOWN_MASK) == 0) label = CalcEngine.keyAction(e.code, e.ch);
+            if (!active || label == null) {
+                report.skipped++;
+                continue;
+            }
+            engine.press(label);
+            engine.displayText();
+            lat[n++] = System.nanoTime() - t0;
+        }
+        report.wallNanos = System.nanoTime() - wallStart;
+        report.events = n + report.skipped;
+        report.replayed = n;
+        report.sessionMicros = sessionMicros;
+        report.latencies = Arrays.copyOf(lat, n);
+        Arrays.sort(report.latencies);
+        report.display = engine.displayText();
+        report.expression = engine.expression;
+        report.memory = engine.memory;
+        report.history = history[0];
+        return report;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: java SessionReplay <session.csl> [runs]");
+            System.exit(2);
+        }
+        SessionReplay replay = load(Paths.get(args[0]));
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        Report report = null;
+        for (int i = 0; i < runs; i++) report = replay.run();   // earlier runs warm the JIT
+        System.out.println(report);
+    }
+}
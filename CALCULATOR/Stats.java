@@ -0,0 +1,140 @@
+import java.util.Arrays;
+
+/**
+ * Data set for statistics mode. Values are kept in a growable primitive
+ * array (8 bytes each, no boxing); count, compensated sum, mean and
+ * variance (Welford) and min/max are maintained in O(1) per value.
+ * Quantiles are exact, selected in O(n) from the values themselves, up to
+ * {@link #EXACT_LIMIT} values; past that they come from a
+ * {@link QuantileSketch}, so a large data set is never re-sorted or re-scanned.
+ */
+final class Stats {
+
+    static final int EXACT_LIMIT = 1 << 16;
+
+    private double[] values = new double[1024];
+    private int n;
+    private double[] scratch = new double[0];    // selection reorders a copy, never the values
+
+    private double sum, sumComp;     // Neumaier-compensated sum
+    private double mean, m2;         // Welford
+    private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    void add(double x) {
+        if (n == values.length) values = Arrays.copyOf(values, n * 2);
+        values[n++] = x;
+        addToSum(x);
+        double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+        sketch.add(x);
+    }
+
+    /** Undoes the last {@link #add}. Rescans for min/max only if it was one. */
+    void removeLast() {
+        if (n == 0) return;
+        double x = values[--n];
+        if (n == 0) { clear(); return; }
+        addToSum(-x);
+        double delta = x - mean;
+        mean -= delta / n;
+        m2 = Math.max(0, m2 - delta * (x - mean));
+        sketch.remove(x);
+        if (x == min || x == max) {
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (values[i] < min) min = values[i];
+                if (values[i] > max) max = values[i];
+            }
+        }
+    }
+
+    /** Appends another data set in O(its size) copy plus O(1) aggregate merge. */
+    void merge(Stats other) {
+        if (other.n == 0) return;
+        if (n + other.n > values.length) values = Arrays.copyOf(values, Math.max(n + other.n, values.length * 2));
+        System.arraycopy(other.values, 0, values, n, other.n);
+        double delta = other.mean - mean;
+        int total = n + other.n;
+        mean += delta * other.n / total;
+        m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+        n = total;
+        addToSum(other.sum);
+        addToSum(other.sumComp);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sketch.merge(other.sketch);
+    }
+
+    void clear() {
+        if (values.length > 1 << 16) values = new double[1024];
+        n = 0;
+        sum = sumComp = mean = m2 = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        sketch.clear();
+    }
+
+    int    count()          { return n; }
+    double get(int i)       { return values[i]; }
+    double sum()            { return sum + sumComp; }
+    double mean()           { return n == 0 ? Double.NaN : mean; }
+    /** Sample variance (n − 1); NaN below two values. */
+    double variance()       { return n < 2 ? Double.NaN : m2 / (n - 1); }
+    double stdDev()         { return Math.sqrt(variance()); }
+    double min()            { return n == 0 ? Double.NaN : min; }
+    double max()            { return n == 0 ? Double.NaN : max; }
+
+    /**
+     * Quantile {@code q} in [0, 1], interpolated between the two nearest
+     * ranks, so the median of {10, 20} is 15. Exact up to
+     * {@link #EXACT_LIMIT} values, then approximate (±0.5% relative) and
+     * clamped to the observed range.
+     */
+    double quantile(double q) {
+        if (n == 0) return Double.NaN;
+        if (n > EXACT_LIMIT) return Math.max(min, Math.min(max, sketch.quantile(q)));
+        if (scratch.length < n) scratch = new double[Math.max(n, 1024)];
+        System.arraycopy(values, 0, scratch, 0, n);
+        double h = q * (n - 1);
+        int rank = (int) h;
+        double below = select(scratch, n, rank);
+        if (rank + 1 >= n || h == rank) return below;
+        double above = scratch[rank + 1];         // select left the larger values to the right
+        for (int i = rank + 2; i < n; i++) if (scratch[i] < above) above = scratch[i];
+        return below + (h - rank) * (above - below);
+    }
+
+    /** The k-th smallest of a[0..n) (Hoare's quickselect); a[k+1..n) end up no smaller. */
+    private static double select(double[] a, int n, int k) {
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            double pivot = a[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    double t = a[i]; a[i] = a[j]; a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)      hi = j;
+            else if (k >= i) lo = i;
+            else             break;
+        }
+        return a[k];
+    }
+
+    private void addToSum(double x) {
+        double t = sum + x;
+        if (Math.abs(sum) >= Math.abs(x)) sumComp += (sum - t) + x;
+        else                              sumComp += (x - t) + sum;
+        sum = t;
+    }
+}
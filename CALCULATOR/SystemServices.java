@@ -0,0 +1,251 @@
+import java.awt.Toolkit;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Blocking system calls (the clipboard, mainly: on X11 with a clipboard
+ * manager a read or an ownership change can stall for seconds) run here on
+ * a dedicated daemon worker, never on the EDT. Every call has a timeout;
+ * results and failures are posted back to the EDT. A call that times out
+ * is abandoned together with its thread, since native calls can't be
+ * interrupted, and later calls go to a fresh worker.
+ *
+ * <pre>  java SystemServices [latencyMillis] [timeoutMillis] [calls]</pre>
+ * benchmarks the layer headlessly against a {@link StandInClipboard}.
+ */
+final class SystemServices {
+
+    /** Clipboard access as the calculator uses it: the system's, or a stand-in. */
+    interface Clipboard {
+        void setText(String text) throws Exception;
+        /** The clipboard's text as a stream, or null if it holds no text. */
+        Reader text() throws Exception;
+    }
+
+    /** The AWT system clipboard. */
+    static final Clipboard SYSTEM_CLIPBOARD = new Clipboard() {
+        public void setText(String text) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+        }
+
+        public Reader text() throws Exception {
+            Transferable t = Toolkit.getDefaultToolkit().getSystemClipboard().getContents(null);
+            DataFlavor flavor = t == null ? null : DataFlavor.selectBestTextFlavor(t.getTransferDataFlavors());
+            return flavor == null ? null : flavor.getReaderForText(t);
+        }
+    };
+
+    final Clipboard clipboard;
+    private final long timeoutMillis;
+    private ExecutorService worker = newWorker();       // guarded by this
+    private final AtomicLong copies = new AtomicLong();
+    final AtomicLong calls = new AtomicLong(), timeouts = new AtomicLong(), restarts = new AtomicLong();
+
+    SystemServices(Clipboard clipboard, long timeoutMillis) {
+        this.clipboard = clipboard;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // ── Clipboard ──────────────────────────────────────────
+    /**
+     * Copies asynchronously; exactly one of the callbacks runs later, on the
+     * EDT. A copy still queued when a newer one arrives skips its write.
+     */
+    void copy(String text, Runnable done, Consumer<String> failed) {
+        long serial = copies.incrementAndGet();
+        onEdt("Clipboard", submit(() -> {
+            if (copies.get() == serial) clipboard.setText(text);
+            return null;
+        }), v -> done.run(), failed);
+    }
+
+    /**
+     * The clipboard's text, or null; blocks for at most the timeout. For
+     * background threads (paste parsing) only — never call it on the EDT.
+     */
+    Reader clipboardText() throws Exception {
+        return await("Clipboard", clipboard::text);
+    }
+
+    // ── Calls ──────────────────────────────────────────────
+    /** Runs {@code call} on the worker; the future fails with TimeoutException past the timeout. */
+    <T> CompletableFuture<T> submit(Callable<T> call) {
+        ExecutorService w;
+        synchronized (this) { w = worker; }
+        calls.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = w.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((v, t) -> {
+            if (t instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+                task.cancel(true);
+                abandon(w);
+            }
+        });
+        return result;
+    }
+
+    /** Waits for {@code call} on the worker; TimeoutException names {@code what}. */
+    <T> T await(String what, Callable<T> call) throws Exception {
+        try {
+            return submit(call).get();
+        } catch (ExecutionException ex) {
+            throw unwrap(what, ex.getCause());
+        }
+    }
+
+    /** Delivers a result or a one-line failure message on the EDT. */
+    <T> void onEdt(String what, CompletableFuture<T> future, Consumer<? super T> done, Consumer<String> failed) {
+        future.whenComplete((v, t) -> SwingUtilities.invokeLater(() -> {
+            if (t == null) done.accept(v);
+            else failed.accept(message(unwrap(what, t)));
+        }));
+    }
+
+    /** A worker stuck past its timeout is left to finish alone; queued calls move to a new one. */
+    private synchronized void abandon(ExecutorService stuck) {
+        if (worker != stuck) return;                   // already replaced
+        worker = newWorker();
+        restarts.incrementAndGet();
+        for (Runnable queued : stuck.shutdownNow()) worker.execute(queued);
+    }
+
+    private static ExecutorService newWorker() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "system-services");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private Exception unwrap(String what, Throwable t) {
+        if ((t instanceof ExecutionException || t instanceof CompletionException)
+                && t.getCause() != null) t = t.getCause();
+        if (t instanceof TimeoutException) {
+            return new TimeoutException(what + " didn't respond in " + timeoutMillis + " ms");
+        }
+        return t instanceof Exception ? (Exception) t : new Exception(t);
+    }
+
+    private static String message(Exception ex) {
+        return ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+    }
+
+    // ── Stand-in for tests and benchmarks ──────────────────
+    /**
+     * An in-memory clipboard whose every access takes {@code latencyMillis}
+     * and, like a native call, ignores interrupts while it does.
+     */
+    static final class StandInClipboard implements Clipboard {
+        volatile String contents;
+        volatile long latencyMillis;
+        final AtomicLong reads = new AtomicLong(), writes = new AtomicLong();
+
+        StandInClipboard(long latencyMillis) { this.latencyMillis = latencyMillis; }
+
+        public void setText(String text) {
+            stall();
+            contents = text;
+            writes.incrementAndGet();
+        }
+
+        public Reader text() {
+            stall();
+            reads.incrementAndGet();
+            String s = contents;
+            return s == null ? null : new StringReader(s);
+        }
+
+        private void stall() {
+            long end = System.nanoTime() + latencyMillis * 1_000_000;
+            boolean interrupted = false;
+            for (long left; (left = end - System.nanoTime()) > 0; ) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(left);
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Copies from the EDT and reads back from a background thread, timing both sides. */
+    public static void main(String[] args) throws Exception {
+        long latency = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        long timeout = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        int n = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        StandInClipboard stub = new StandInClipboard(latency);
+        SystemServices services = new SystemServices(stub, timeout);
+
+        long[] edtBlocked = new long[n], copyDone = new long[n];
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            int k = i;
+            SwingUtilities.invokeAndWait(() -> {
+                long t0 = System.nanoTime();
+                services.copy("4" + k, () -> {
+                    copyDone[k] = System.nanoTime() - t0;
+                    finished.countDown();
+                }, msg -> {
+                    copyDone[k] = System.nanoTime() - t0;
+                    failures.incrementAndGet();
+                    finished.countDown();
+                });
+                edtBlocked[k] = System.nanoTime() - t0;
+            });
+        }
+        finished.await();
+
+        long[] read = new long[n];
+        long readFailures = 0;
+        for (int i = 0; i < n; i++) {
+            long t0 = System.nanoTime();
+            try (Reader r = services.clipboardText()) {
+                if (r != null) r.read();
+            } catch (TimeoutException ex) {
+                readFailures++;
+            }
+            read[i] = System.nanoTime() - t0;
+        }
+
+        System.out.printf("stand-in latency %d ms, timeout %d ms, %d calls each%n", latency, timeout, n);
+        System.out.printf("EDT blocked per copy  %s%n", summary(edtBlocked));
+        System.out.printf("copy completes        %s  (%d timed out)%n", summary(copyDone), failures.get());
+        System.out.printf("read completes        %s  (%d timed out)%n", summary(read), readFailures);
+        System.out.printf("worker restarts %d, stand-in writes %d, reads %d%n",
+                          services.restarts.get(), stub.writes.get(), stub.reads.get());
+    }
+
+    private static String summary(long[] nanos) {
+        long[] s = nanos.clone();
+        Arrays.sort(s);
+        return String.format("p50 %8.3f ms · p99 %8.3f ms · max %8.3f ms",
+                             s[s.length / 2] / 1e6, s[Math.min(s.length - 1, s.length * 99 / 100)] / 1e6,
+                             s[s.length - 1] / 1e6);
+    }
+}
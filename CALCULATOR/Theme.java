@@ -0,0 +1,78 @@
+import java.awt.Color;
+
+/**
+ * One colour palette for the calculator. Components don't read colours
+ * from fixed fields; they register with {@code Calculator.onTheme} and are
+ * handed the new palette when the user switches, so a switch recolours the
+ * live component tree instead of rebuilding it.
+ */
+final class Theme {
+
+    static final Theme DARK = new Theme(
+        "dark",
+        new Color(18, 18, 24),     // app
+        new Color(10, 10, 15),     // display
+        new Color(26, 26, 36),     // calc
+        new Color(40, 40, 58),     // number keys
+        new Color(60, 60, 88),     // operator keys
+        new Color(34, 34, 50),     // function keys
+        new Color(22, 22, 32),     // history
+        new Color(32, 32, 46),     // history item
+        new Color(50, 50, 75),     // history selection
+        new Color(240, 240, 255),  // text
+        new Color(130, 130, 165),  // muted text
+        new Color(160, 160, 200),  // expression text
+        new Color(50, 50, 72)      // borders
+    );
+
+    static final Theme LIGHT = new Theme(
+        "light",
+        new Color(240, 240, 248),
+        new Color(255, 255, 255),
+        new Color(230, 230, 242),
+        new Color(210, 210, 228),
+        new Color(190, 190, 215),
+        new Color(220, 220, 236),
+        new Color(248, 248, 255),
+        new Color(235, 235, 248),
+        new Color(200, 200, 230),
+        new Color(20,  20,  40),
+        new Color(90,  90, 120),
+        new Color(70,  70, 110),
+        new Color(190, 190, 215)
+    );
+
+    // Same in both themes
+    static final Color EQUALS   = new Color(255, 107, 53);   // warm orange
+    static final Color ACCENT   = new Color(100, 200, 255);  // ice blue
+    static final Color FUNC_KEY = new Color(255, 200, 100);
+    static final Color ERROR    = new Color(255, 100, 100);
+
+    final String name;
+    final Color app, display, calc;
+    final Color btnNum, btnOp, btnFunc;
+    final Color history, histItem, histSel;
+    final Color text, textMuted, textExpr, border;
+
+    private Theme(String name, Color app, Color display, Color calc,
+                  Color btnNum, Color btnOp, Color btnFunc,
+                  Color history, Color histItem, Color histSel,
+                  Color text, Color textMuted, Color textExpr, Color border) {
+        this.name = name;
+        this.app = app;
+        this.display = display;
+        this.calc = calc;
+        this.btnNum = btnNum;
+        this.btnOp = btnOp;
+        this.btnFunc = btnFunc;
+        this.history = history;
+        this.histItem = histItem;
+        this.histSel = histSel;
+        this.text = text;
+        this.textMuted = textMuted;
+        this.textExpr = textExpr;
+        this.border = border;
+    }
+
+    boolean isDark() { return this == DARK; }
+}
@@ -0,0 +1,162 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayDeque;
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.JRootPane;
+import javax.swing.Timer;
+
+/**
+ * Toast notifications drawn in the frame's popup layer: one lightweight
+ * component and one animation timer for the life of the window, so no
+ * native window is created per message. Messages queue up; a repeat of the
+ * message on screen, or of the last one waiting, just bumps its "×n"
+ * count, and while others wait each one is shown for a shorter time. The
+ * timer only runs while something is on screen. The layer never takes
+ * mouse events or changes the cursor.
+ */
+final class ToastLayer extends JComponent implements ActionListener {
+
+    private static final int SHOW_MILLIS = 1500;       // dwell with nothing waiting
+    private static final int BUSY_MILLIS = 600;        // dwell while others wait
+    private static final int FADE_MILLIS = 150;
+    private static final int MAX_WAITING = 4;
+    private static final Color FILL = new Color(40, 40, 60, 220);
+
+    /** A message and how many times it was asked for. */
+    private static final class Toast {
+        final String text;
+        int count = 1;
+        Toast(String text) { this.text = text; }
+        String label() { return count > 1 ? text + "   ×" + count : text; }
+    }
+
+    private final ArrayDeque<Toast> waiting = new ArrayDeque<>();
+    private final Timer timer = new Timer(16, this);
+    private final EdtMonitor.Histogram edtTime;
+    private Toast current;
+    private long shownAt;                              // when current reached full opacity
+    private long fadeStart;
+    private boolean fadingOut;
+    private float alpha;
+    private int pillX, pillY, pillW, pillH;            // last painted bounds
+
+    private ToastLayer(Font font, EdtMonitor.Histogram edtTime) {
+        this.edtTime = edtTime;
+        setFont(font);
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    /** Adds a toast layer above everything in {@code root}. */
+    static ToastLayer install(JRootPane root, Font font, EdtMonitor.Histogram edtTime) {
+        ToastLayer layer = new ToastLayer(font, edtTime);
+        JLayeredPane pane = root.getLayeredPane();
+        pane.add(layer, JLayeredPane.POPUP_LAYER);
+        layer.setBounds(0, 0, pane.getWidth(), pane.getHeight());
+        pane.addComponentListener(new ComponentAdapter() {
+            @Override public void componentResized(ComponentEvent e) {
+                layer.setBounds(0, 0, pane.getWidth(), pane.getHeight());
+            }
+        });
+        return layer;
+    }
+
+    /** Queues a message; call on the EDT. */
+    void show(String message) {
+        long start = System.nanoTime();
+        Toast last = waiting.peekLast();
+        if (current != null && !fadingOut && waiting.isEmpty() && current.text.equals(message)) {
+            current.count++;
+            shownAt = System.currentTimeMillis();      // keep it up a little longer
+            repaintPill();
+        } else if (last != null && last.text.equals(message)) {
+            last.count++;
+        } else {
+            if (waiting.size() == MAX_WAITING) waiting.pollFirst();
+            waiting.addLast(new Toast(message));
+        }
+        if (current == null) next();
+        edtTime.since(start);
+    }
+
+    private void next() {
+        current = waiting.pollFirst();
+        if (current == null) {
+            timer.stop();
+            setVisible(false);
+            return;
+        }
+        fadingOut = false;
+        fadeStart = System.currentTimeMillis();
+        alpha = 0;
+        setVisible(true);
+        timer.start();
+        repaintPill();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        if (fadingOut) {
+            alpha = Math.max(0, 1 - (now - fadeStart) / (float) FADE_MILLIS);
+            if (alpha == 0) { repaintPill(); next(); edtTime.since(start); return; }
+        } else if (alpha < 1) {
+            alpha = Math.min(1, (now - fadeStart) / (float) FADE_MILLIS);
+            if (alpha == 1) shownAt = now;
+        } else if (now - shownAt >= (waiting.isEmpty() ? SHOW_MILLIS : BUSY_MILLIS)) {
+            fadingOut = true;
+            fadeStart = now;
+        } else {
+            edtTime.since(start);
+            return;                                    // holding: nothing to repaint
+        }
+        repaintPill();
+        edtTime.since(start);
+    }
+
+    private void repaintPill() {
+        repaint(pillX, pillY, pillW, pillH);           // where it was
+        layoutPill();
+        repaint(pillX, pillY, pillW, pillH);           // where it is now
+    }
+
+    private void layoutPill() {
+        if (current == null) return;
+        FontMetrics fm = getFontMetrics(getFont());
+        pillW = fm.stringWidth(current.label()) + 40;
+        pillH = fm.getHeight() + 16;
+        pillX = (getWidth() - pillW) / 2;
+        pillY = getHeight() - pillH - 40;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (current == null || alpha == 0) return;
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+        g2.setColor(FILL);
+        g2.fillRoundRect(pillX, pillY, pillW, pillH, pillH, pillH);
+        g2.setColor(Color.WHITE);
+        g2.setFont(getFont());
+        FontMetrics fm = g2.getFontMetrics();
+        g2.drawString(current.label(), pillX + 20, pillY + 8 + fm.getAscent());
+        g2.dispose();
+    }
+
+    /** Transparent to the mouse: clicks and cursors belong to what's underneath. */
+    @Override
+    public boolean contains(int x, int y) { return false; }
+}
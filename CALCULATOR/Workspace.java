@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * User-defined variables ({@code rate = 0.18}) and functions
+ * ({@code tax(x) = x*rate}) for the calculator's formulas. Definitions form
+ * a dependency graph: changing one recomputes only what reads it, in
+ * topological order, and stops early along any path whose value came out
+ * unchanged. Function results are memoised in a {@link MemoCache} keyed by
+ * the arguments and the function's generation, which is bumped whenever
+ * the function or something it reads is redefined. The cache is used only
+ * on the thread that created the workspace (the EDT); calls from other
+ * threads, such as parallel plot sampling, evaluate directly.
+ */
+final class Workspace implements Formula.Scope {
+
+    private static final double[] NO_ARGS = {};
+
+    /** One definition; its id is its variable slot or function id. */
+    static final class Definition {
+        final String name;
+        final int id;
+        String[] params;                 // null for a variable
+        String text;
+        Formula formula;
+        double value;                    // variables only
+        int generation;                  // functions only
+        Definition[] reads = {};
+        final ArrayList<Definition> readers = new ArrayList<>();
+
+        Definition(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        boolean isFunction() { return params != null; }
+
+        @Override
+        public String toString() {
+            return isFunction() ? name + "(" + String.join(", ", params) + ") = " + text : name + " = " + text;
+        }
+    }
+
+    private final ArrayList<Definition> byId = new ArrayList<>();
+    private final HashMap<String, Definition> byName = new HashMap<>();
+    private final Thread owner = Thread.currentThread();
+    final MemoCache cache = new MemoCache(4096);
+    long recomputed;                     // variables re-evaluated by propagation
+
+    // ── Scope ──────────────────────────────────────────────
+    @Override
+    public int variable(String name) {
+        Definition d = byName.get(name);
+        return d != null && !d.isFunction() ? d.id : -1;
+    }
+
+    @Override
+    public boolean isFunction(String name) {
+        Definition d = byName.get(name);
+        return d != null && d.isFunction();
+    }
+
+    @Override
+    public int function(String name, int arity) {
+        Definition d = byName.get(name);
+        if (d.params.length != arity) {
+            throw new IllegalArgumentException(name + " takes " + d.params.length
+                                               + (d.params.length == 1 ? " argument" : " arguments"));
+        }
+        return d.id;
+    }
+
+    // A formula compiled before a removal (a plot, say) may still hold a
+    // removed slot or function; it reads NaN rather than throwing
+    @Override
+    public double value(int slot) {
+        Definition d = byId.get(slot);
+        return d != null ? d.value : Double.NaN;
+    }
+
+    @Override
+    public double call(int fn, double[] args, int from) {
+        Definition d = byId.get(fn);
+        if (d == null) return Double.NaN;
+        int arity = d.params.length;
+        boolean cached = Thread.currentThread() == owner;
+        if (cached) {
+            Double hit = cache.get(fn, d.generation, args, from, arity);
+            if (hit != null) return hit;
+        }
+        double[] own = java.util.Arrays.copyOfRange(args, from, from + arity);
+        double r = d.formula.eval(own, new double[d.formula.stackSize()]);
+        if (cached) cache.put(fn, d.generation, args, from, arity, r);
+        return r;
+    }
+
+    // ── Definitions ────────────────────────────────────────
+    /** The definitions in creation order. */
+    List<Definition> definitions() {
+        ArrayList<Definition> live = new ArrayList<>();
+        for (Definition d : byId) if (d != null) live.add(d);
+        return live;
+    }
+
+    Definition get(String name) { return byName.get(name); }
+
+    /** An expression over the current definitions, evaluated once. */
+    double evaluate(String expr) {
+        Formula f = Formula.compile(expr, this);
+        return f.eval(NO_ARGS, new double[f.stackSize()]);
+    }
+
+    /**
+     * Applies {@code name = expr} or {@code name(a, b) = expr}. An unchanged
+     * definition is a no-op; otherwise whatever reads it is brought up to
+     * date. IllegalArgumentException if it doesn't parse, refers to unknown
+     * names or would make a cycle.
+     */
+    Definition define(String line) {
+        int eq = line.indexOf('=');
+        if (eq < 0) throw new IllegalArgumentException("Expected name = expression");
+        String lhs = line.substring(0, eq).trim(), text = line.substring(eq + 1).trim();
+        String name = lhs;
+        String[] params = null;
+        int open = lhs.indexOf('(');
+        if (open >= 0) {
+            if (!lhs.endsWith(")")) throw new IllegalArgumentException("Expected ')' after parameters");
+            name = lhs.substring(0, open).trim();
+            String inside = lhs.substring(open + 1, lhs.length() - 1).trim();
+            params = inside.isEmpty() ? new String[0] : inside.split("\\s*,\\s*");
+            for (String p : params) checkName(p);
+        }
+        checkName(name);
+
+        Definition d = byName.get(name);
+        if (d != null && text.equals(d.text) && java.util.Arrays.equals(params, d.params)) return d;
+        if (d != null && !d.readers.isEmpty() && (d.isFunction() != (params != null)
+                || (params != null && params.length != d.params.length))) {
+            throw new IllegalArgumentException(name + " is used by " + d.readers.get(0).name
+                                               + "; keep its form or remove that first");
+        }
+
+        Formula formula = params == null ? Formula.compile(text, this) : Formula.compile(text, this, params);
+        Definition[] reads = readsOf(formula);
+        if (d != null) {
+            for (Definition r : reads) {
+                if (r == d || dependsOn(r, d)) throw new IllegalArgumentException(name + " would depend on itself");
+            }
+        } else {
+            d = new Definition(name, byId.size());
+            byId.add(d);
+            byName.put(name, d);
+        }
+
+        for (Definition r : d.reads) r.readers.remove(d);
+        for (Definition r : reads) r.readers.add(d);
+        d.reads = reads;
+        d.params = params;
+        d.text = text;
+        d.formula = formula;
+        propagate(d);
+        return d;
+    }
+
+    /** Drops a definition nothing reads any more. */
+    void remove(String name) {
+        Definition d = byName.get(name);
+        if (d == null) return;
+        if (!d.readers.isEmpty()) throw new IllegalArgumentException(name + " is used by " + d.readers.get(0).name);
+        for (Definition r : d.reads) r.readers.remove(d);
+        byName.remove(name);
+        byId.set(d.id, null);
+    }
+
+    /**
+     * Applies a block of definitions, one per line ({@code #} starts a
+     * comment), and removes earlier definitions the block no longer has.
+     */
+    void apply(String block) {
+        HashSet<String> keep = new HashSet<>();
+        String[] lines = block.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            if (line.isBlank()) continue;
+            try {
+                keep.add(define(line).name);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + ex.getMessage());
+            }
+        }
+        // readers go before what they read
+        for (boolean removed = true; removed; ) {
+            removed = false;
+            for (Definition d : definitions()) {
+                if (!keep.contains(d.name) && d.readers.isEmpty()) {
+                    remove(d.name);
+                    removed = true;
+                }
+            }
+        }
+    }
+
+    private Definition[] readsOf(Formula f) {
+        int[] vars = f.variables(), fns = f.functions();
+        Definition[] reads = new Definition[vars.length + fns.length];
+        for (int i = 0; i < vars.length; i++) reads[i] = byId.get(vars[i]);
+        for (int i = 0; i < fns.length; i++) reads[vars.length + i] = byId.get(fns[i]);
+        return reads;
+    }
+
+    /** True if {@code from} reads {@code target}, directly or not. */
+    private static boolean dependsOn(Definition from, Definition target) {
+        for (Definition r : from.reads) if (r == target || dependsOn(r, target)) return true;
+        return false;
+    }
+
+    // ── Incremental recompute ──────────────────────────────
+    /**
+     * Re-evaluates {@code root} and, in topological order, everything that
+     * reads it. A reader is skipped unless something it reads actually
+     * changed, so a redefinition that leaves a value as it was stops there.
+     */
+    private void propagate(Definition root) {
+        ArrayList<Definition> order = new ArrayList<>();
+        topological(root, new HashSet<>(), order);
+        HashSet<Definition> changed = new HashSet<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Definition d = order.get(i);
+            if (d != root) {
+                boolean stale = false;
+                for (Definition r : d.reads) if (changed.contains(r)) { stale = true; break; }
+                if (!stale) continue;
+            }
+            if (d.isFunction()) {
+                d.generation++;              // old cache entries stop matching
+                changed.add(d);
+            } else {
+                double before = d.value;
+                d.value = d.formula.eval(NO_ARGS, new double[d.formula.stackSize()]);
+                recomputed++;
+                if (Double.doubleToLongBits(before) != Double.doubleToLongBits(d.value)) changed.add(d);
+            }
+        }
+    }
+
+    /** Post-order over readers; reversed, it lists every definition after all it reads. */
+    private static void topological(Definition d, HashSet<Definition> seen, ArrayList<Definition> out) {
+        if (!seen.add(d)) return;
+        for (Definition r : d.readers) topological(r, seen, out);
+        out.add(d);
+    }
+
+    private static void checkName(String name) {
+        if (name.isEmpty() || !Character.isLetter(name.charAt(0))) {
+            throw new IllegalArgumentException("'" + name + "' isn't a name");
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') throw new IllegalArgumentException("'" + name + "' isn't a name");
+        }
+        if (Formula.isReserved(name)) throw new IllegalArgumentException("'" + name + "' is a built-in");
+    }
+}
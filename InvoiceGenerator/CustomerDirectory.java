@@ -0,0 +1,570 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Repeat-customer lookup for the customer card.
+ *
+ *   customers.dat    append-only records: [long phoneKey][u8 len][name][u8 len][phone]
+ *   customers.idx.N  memory-mapped open-addressing table phoneKey -> record offset
+ *
+ * The table is never replaced in place, since a mapped file can't be on
+ * Windows: growing it writes the next generation, N + 1, and marks the old
+ * header retired so other tills move over. Generation 0 is plain customers.idx.
+ *
+ * Phone and name prefix lookups use two sorted arrays kept in direct
+ * (off-heap) buffers, sorted on a background thread when the directory
+ * opens; customers added after that (by this or another till) are found
+ * in a short "recent" list. Between rebuilds nothing per customer is kept
+ * on the Java heap. Every call may touch the files, so the form makes
+ * them from a worker rather than the EDT.
+ */
+final class CustomerDirectory implements Closeable {
+
+    /** A looked-up customer. */
+    static final class Customer {
+        final String name, phone;
+        Customer(String name, String phone) { this.name = name; this.phone = phone; }
+    }
+
+    private static final int  MAGIC       = 0x43555354;     // "CUST"
+    private static final int  HEADER      = 32;
+    private static final int  SLOT        = 16;
+    private static final int  MIN_CAPACITY = 1 << 16;
+    private static final long PHONE_SPACE = 10_000_000_000L;  // 10-digit numbers
+
+    // header fields
+    private static final int H_MAGIC = 0, H_CAPACITY = 4, H_COUNT = 8, H_RETIRED = 12, H_INDEXED = 16;
+
+    private static final Map<Path, CustomerDirectory> OPEN = new HashMap<>();
+
+    private final Path        dir, dataFile;
+    private final FileChannel data;
+    private volatile MappedByteBuffer dataMap;  // read view, remapped as the file grows
+    private FileChannel       indexChannel;
+    private MappedByteBuffer  index;
+    private int               capacity;
+    private int               generation;     // of the table mapped in index
+
+    // prefix indexes (off-heap) + customers appended since they were built
+    private LongBuffer byPhone = LongBuffer.allocate(0);    // pairs: key, offset
+    private LongBuffer byName  = LongBuffer.allocate(0);    // offsets sorted by name
+    private long   sortedUpTo;
+    private long[] recent = new long[64];
+    private int    recentCount;
+    private long   recentUpTo;
+    private boolean rebuilding;
+
+    private CustomerDirectory(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        dataFile = dir.resolve("customers.dat");
+        data = FileChannel.open(dataFile, StandardOpenOption.CREATE,
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = data.lock();
+        try {
+            openIndex();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /** One instance per folder per JVM — file locks are per process, not per window. */
+    static CustomerDirectory open(Path dir) throws IOException {
+        synchronized (OPEN) {
+            CustomerDirectory d = OPEN.get(dir.toAbsolutePath());
+            if (d == null) {
+                d = new CustomerDirectory(dir);
+                OPEN.put(dir.toAbsolutePath(), d);
+                synchronized (d) {
+                    d.startPrefixRebuild();
+                }
+            }
+            return d;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  LOOKUPS
+    // ═══════════════════════════════════════════════════════
+
+    /** Exact lookup by phone; null when unknown. */
+    synchronized Customer findByPhone(String phone) throws IOException {
+        long key = phoneKey(phone);
+        if (key <= 0) return null;
+        checkRetired();
+        long off = probe(key);
+        return off < 0 ? null : readCustomer(off);
+    }
+
+    /**
+     * The single customer whose number starts with the digits typed so far,
+     * or null when there are none or several.
+     */
+    synchronized Customer findUniqueByPhonePrefix(String typed) throws IOException {
+        String digits = normalizeDigits(typed);
+        if (digits.length() < 4 || digits.length() > 10) return null;
+        if (digits.length() == 10) return findByPhone(digits);
+        checkRetired();
+        long scale = PHONE_SPACE / pow10(digits.length());
+        long lo = Long.parseLong(digits) * scale, hi = lo + scale;
+
+        long match = -1, matchKey = -1;
+        int i = lowerBound(lo);
+        for (; i < byPhone.limit() / 2 && byPhone.get(2 * i) < hi; i++) {
+            long key = byPhone.get(2 * i);
+            if (match >= 0 && key != matchKey) return null;
+            match = byPhone.get(2 * i + 1);
+            matchKey = key;
+        }
+        catchUpRecent();
+        for (int r = 0; r < recentCount; r++) {
+            long key = keyAt(recent[r]);
+            if (key < lo || key >= hi) continue;
+            if (match >= 0 && key != matchKey) return null;
+            match = recent[r];
+            matchKey = key;
+        }
+        if (match < 0) return null;
+        long latest = probe(matchKey);          // a later record may have renamed them
+        return readCustomer(latest >= 0 ? latest : match);
+    }
+
+    /** Up to {@code limit} customers whose name starts with {@code prefix}. */
+    synchronized List<Customer> findByNamePrefix(String prefix, int limit) throws IOException {
+        List<Customer> out = new ArrayList<>();
+        byte[] p = prefix.trim().getBytes(StandardCharsets.UTF_8);
+        if (p.length == 0) return out;
+        for (int i = 0; i < p.length; i++) p[i] = (byte) lower(p[i]);   // folded as stored names are
+        checkRetired();
+        int n = byName.limit();
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareName(byName.get(mid), p, false) < 0) lo = mid + 1; else hi = mid;
+        }
+        Set<Long> seen = new HashSet<>();
+        for (int i = lo; i < n && out.size() < limit && compareName(byName.get(i), p, true) == 0; i++) {
+            addIfCurrent(byName.get(i), seen, out);
+        }
+        catchUpRecent();
+        for (int r = 0; r < recentCount && out.size() < limit; r++) {
+            if (compareName(recent[r], p, true) == 0) addIfCurrent(recent[r], seen, out);
+        }
+        return out;
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  UPDATES
+    // ═══════════════════════════════════════════════════════
+
+    /** Adds or renames the customer on this phone number. */
+    synchronized void put(String name, String phone) throws IOException {
+        long key = phoneKey(phone);
+        if (key <= 0 || name == null || name.isBlank()) return;
+        FileLock lock = data.lock();
+        try {
+            checkRetired();
+            long existing = probe(key);
+            if (existing >= 0 && readCustomer(existing).name.equals(name.trim())) return;
+
+            long off = data.size();
+            ByteBuffer rec = encode(key, name.trim(), phone.trim());
+            while (rec.hasRemaining()) data.write(rec, off + rec.position());
+            if ((count() + 1) * 10L > capacity * 7L) grow(off);
+            insert(key, off);
+            index.putLong(H_INDEXED, off + rec.limit());
+        } finally {
+            lock.release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN) {
+            OPEN.remove(dir.toAbsolutePath(), this);
+        }
+        synchronized (this) {
+            indexChannel.close();
+            data.close();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  HASH INDEX (mapped)
+    // ═══════════════════════════════════════════════════════
+    /** Called with the data file locked, so no other till is writing a generation. */
+    private void openIndex() throws IOException {
+        generation = latestGeneration();
+        indexChannel = FileChannel.open(indexFile(generation), StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean usable = indexChannel.size() >= HEADER;
+        if (usable) {
+            mapIndex();
+            usable = index.getInt(H_MAGIC) == MAGIC && index.getInt(H_RETIRED) == 0;
+        }
+        if (!usable) {
+            int needed = MIN_CAPACITY;
+            while (needed * 7L < countRecords(data.size()) * 10L) needed <<= 1;
+            rebuildIndex(needed);
+            return;
+        }
+        indexTail(index.getLong(H_INDEXED));       // records a crashed till never indexed
+    }
+
+    private Path indexFile(int gen) {
+        return dir.resolve(gen == 0 ? "customers.idx" : "customers.idx." + gen);
+    }
+
+    /** The newest table on disk; a half-written one is still named .tmp. */
+    private int latestGeneration() throws IOException {
+        int latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "customers.idx.*")) {
+            for (Path f : files) {
+                try {
+                    latest = Math.max(latest, Integer.parseInt(f.getFileName().toString().substring(14)));
+                } catch (NumberFormatException ignored) {
+                    // customers.idx.tmp
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void mapIndex() throws IOException {
+        capacity = (int) ((indexChannel.size() - HEADER) / SLOT);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+    }
+
+    /**
+     * Writes a fresh table of the given size as the next generation and
+     * switches to it. The old file is only marked retired, never replaced;
+     * older generations are deleted where the OS allows (Windows refuses
+     * while a till still has one mapped, and a later rebuild tries again).
+     */
+    private void rebuildIndex(int newCapacity) throws IOException {
+        int next = Math.max(generation, latestGeneration()) + 1;
+        Path tmp = dir.resolve("customers.idx.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer fresh = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) newCapacity * SLOT);
+            fresh.putInt(H_MAGIC, MAGIC);
+            fresh.putInt(H_CAPACITY, newCapacity);
+            fresh.force();
+        }
+        Files.move(tmp, indexFile(next), StandardCopyOption.ATOMIC_MOVE);   // a new name: nothing has it mapped
+        if (index != null) {
+            index.putInt(H_RETIRED, next);          // tells other tills to reopen
+        }
+        indexChannel.close();
+        index = null;
+        generation = next;
+        indexChannel = FileChannel.open(indexFile(next), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapIndex();
+        indexTail(0);
+        for (int gen = 0; gen < next; gen++) {
+            try {
+                Files.deleteIfExists(indexFile(gen));
+            } catch (IOException stillMapped) {
+                // left for a later rebuild
+            }
+        }
+    }
+
+    private void grow(long dataEnd) throws IOException {
+        index.putLong(H_INDEXED, dataEnd);
+        rebuildIndex(capacity * 2);
+    }
+
+    /** Moves to the newest table if another till wrote a bigger one. */
+    private void checkRetired() throws IOException {
+        if (index.getInt(H_RETIRED) != 0) {
+            indexChannel.close();
+            generation = latestGeneration();
+            indexChannel = FileChannel.open(indexFile(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mapIndex();
+        }
+    }
+
+    private void indexTail(long from) throws IOException {
+        long end = data.size(), off = from;
+        while (off < end) {
+            int len = recordLength(off);
+            if (len < 0 || off + len > end) break;          // torn tail
+            insert(keyAt(off), off);
+            off += len;
+        }
+        index.putLong(H_INDEXED, off);
+    }
+
+    private long probe(long key) {
+        int mask = capacity - 1;
+        for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = index.getLong(HEADER + i * SLOT);
+            if (k == 0) return -1;
+            if (k == key) return index.getLong(HEADER + i * SLOT + 8);
+        }
+    }
+
+    private void insert(long key, long off) {
+        int mask = capacity - 1;
+        for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+            int at = HEADER + i * SLOT;
+            long k = index.getLong(at);
+            if (k == 0 || k == key) {
+                index.putLong(at + 8, off);                 // offset first, key publishes it
+                if (k == 0) {
+                    index.putLong(at, key);
+                    index.putInt(H_COUNT, count() + 1);
+                }
+                return;
+            }
+        }
+    }
+
+    private int count() { return index.getInt(H_COUNT); }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        return k ^ (k >>> 33);
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  PREFIX INDEXES (off-heap, rebuilt in the background)
+    // ═══════════════════════════════════════════════════════
+    private void startPrefixRebuild() {
+        if (rebuilding) return;
+        rebuilding = true;
+        Thread t = new Thread(this::rebuildPrefixIndexes, "customer-prefix-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void rebuildPrefixIndexes() {
+        try {
+            long end;
+            synchronized (this) {
+                end = data.size();
+                remapData(end);
+            }
+            long[] offsets = new long[countRecords(end)];
+            int n = 0;
+            for (long off = 0; n < offsets.length; off += recordLength(off)) offsets[n++] = off;
+            long[] phones = new long[n * 2];
+            for (int i = 0; i < n; i++) { phones[2 * i] = keyAt(offsets[i]); phones[2 * i + 1] = offsets[i]; }
+            sortPairs(phones, n);
+            long[] names = Arrays.copyOf(offsets, n);
+            sortByName(names);
+
+            LongBuffer phoneBuf = ByteBuffer.allocateDirect(phones.length * 8).asLongBuffer().put(phones);
+            LongBuffer nameBuf  = ByteBuffer.allocateDirect(names.length * 8).asLongBuffer().put(names);
+            phoneBuf.flip();
+            nameBuf.flip();
+            synchronized (this) {
+                byPhone = phoneBuf;
+                byName  = nameBuf;
+                sortedUpTo = end;
+                recentCount = 0;
+                recentUpTo = end;
+            }
+        } catch (IOException ignored) {
+            // lookups still work through the hash index and the recent list
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+            }
+        }
+    }
+
+    /** Picks up records appended since the sorted arrays were built. */
+    private void catchUpRecent() throws IOException {
+        long end = data.size();
+        if (recentUpTo < sortedUpTo) recentUpTo = sortedUpTo;
+        while (recentUpTo < end) {
+            int len = recordLength(recentUpTo);
+            if (len < 0 || recentUpTo + len > end) break;
+            if (recentCount == recent.length) recent = Arrays.copyOf(recent, recentCount * 2);
+            recent[recentCount++] = recentUpTo;
+            recentUpTo += len;
+        }
+        if (recentCount > 4096) startPrefixRebuild();
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0, hi = byPhone.limit() / 2;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (byPhone.get(2 * mid) < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Only the latest record for each phone is reported. */
+    private void addIfCurrent(long off, Set<Long> seen, List<Customer> out) throws IOException {
+        long key = keyAt(off);
+        if (probe(key) == off && seen.add(key)) out.add(readCustomer(off));
+    }
+
+    /** Sorts (key, offset) pairs by key. */
+    private static void sortPairs(long[] a, int n) {
+        mergePairs(a, new long[a.length], 0, n);
+    }
+
+    private static void mergePairs(long[] a, long[] tmp, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergePairs(a, tmp, from, mid);
+        mergePairs(a, tmp, mid, to);
+        int i = from, j = mid, k = from;
+        while (i < mid || j < to) {
+            int src = j >= to || (i < mid && a[2 * i] <= a[2 * j]) ? i++ : j++;
+            tmp[2 * k] = a[2 * src];
+            tmp[2 * k + 1] = a[2 * src + 1];
+            k++;
+        }
+        System.arraycopy(tmp, 2 * from, a, 2 * from, 2 * (to - from));
+    }
+
+    private void sortByName(long[] offsets) {
+        long[] tmp = new long[offsets.length];
+        mergeSort(offsets, tmp, 0, offsets.length);
+    }
+
+    private void mergeSort(long[] a, long[] tmp, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid);
+        mergeSort(a, tmp, mid, to);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) tmp[k++] = compareNames(a[i], a[j]) <= 0 ? a[i++] : a[j++];
+        while (i < mid) tmp[k++] = a[i++];
+        while (j < to)  tmp[k++] = a[j++];
+        System.arraycopy(tmp, from, a, from, to - from);
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  RECORDS
+    // ═══════════════════════════════════════════════════════
+    private static ByteBuffer encode(long key, String name, String phone) {
+        byte[] n = truncate(name.getBytes(StandardCharsets.UTF_8));
+        byte[] p = truncate(phone.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer b = ByteBuffer.allocate(8 + 1 + n.length + 1 + p.length);
+        b.putLong(key).put((byte) n.length).put(n).put((byte) p.length).put(p).flip();
+        return b;
+    }
+
+    private static byte[] truncate(byte[] b) { return b.length > 255 ? Arrays.copyOf(b, 255) : b; }
+
+    private ByteBuffer view(long off) throws IOException {
+        if (dataMap == null || off + 8 + 1 + 255 + 1 + 255 > dataMap.limit()) remapData(data.size());
+        return dataMap;
+    }
+
+    private synchronized void remapData(long size) throws IOException {
+        if (dataMap == null || size > dataMap.limit()) {
+            dataMap = data.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private int countRecords(long end) throws IOException {
+        int n = 0;
+        for (long off = 0; off < end; n++) {
+            int len = recordLength(off);
+            if (len < 0 || off + len > end) break;
+            off += len;
+        }
+        return n;
+    }
+
+    private long keyAt(long off) throws IOException {
+        return view(off).getLong((int) off);
+    }
+
+    private int recordLength(long off) throws IOException {
+        ByteBuffer b = view(off);
+        if (off + 9 > b.limit()) return -1;
+        int nameLen = b.get((int) off + 8) & 0xff;
+        if (off + 9 + nameLen + 1 > b.limit()) return -1;
+        int phoneLen = b.get((int) off + 9 + nameLen) & 0xff;
+        return 8 + 1 + nameLen + 1 + phoneLen;
+    }
+
+    private Customer readCustomer(long off) throws IOException {
+        ByteBuffer b = view(off);
+        int at = (int) off + 8;
+        int nameLen = b.get(at) & 0xff;
+        byte[] name = new byte[nameLen];
+        b.get(at + 1, name);
+        int phoneLen = b.get(at + 1 + nameLen) & 0xff;
+        byte[] phone = new byte[phoneLen];
+        b.get(at + 2 + nameLen, phone);
+        return new Customer(new String(name, StandardCharsets.UTF_8), new String(phone, StandardCharsets.UTF_8));
+    }
+
+    /** Case-insensitive comparison of the stored name with {@code p}; prefix mode ignores the tail. */
+    private int compareName(long off, byte[] p, boolean prefixOnly) throws IOException {
+        ByteBuffer b = view(off);
+        int at = (int) off + 9, len = b.get((int) off + 8) & 0xff;
+        int n = Math.min(len, p.length);
+        for (int i = 0; i < n; i++) {
+            int c = lower(b.get(at + i)) - (p[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return prefixOnly && len >= p.length ? 0 : len - p.length;
+    }
+
+    private int compareNames(long a, long b) {
+        try {
+            ByteBuffer v = view(Math.max(a, b));
+            int la = v.get((int) a + 8) & 0xff, lb = v.get((int) b + 8) & 0xff;
+            int n = Math.min(la, lb);
+            for (int i = 0; i < n; i++) {
+                int c = lower(v.get((int) a + 9 + i)) - lower(v.get((int) b + 9 + i));
+                if (c != 0) return c;
+            }
+            return la - lb;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int lower(byte b) {
+        int c = b & 0xff;
+        return c >= 'A' && c <= 'Z' ? c + 32 : c;
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  PHONE NORMALISATION
+    // ═══════════════════════════════════════════════════════
+
+    /** Digits of an Indian mobile number without +91 / leading 0. */
+    static String normalizeDigits(String phone) {
+        if (phone == null) return "";
+        StringBuilder d = new StringBuilder(12);
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') d.append(c);
+        }
+        String t = phone.trim();
+        if (t.startsWith("+91") || (d.length() > 10 && d.indexOf("91") == 0)) d.delete(0, 2);
+        else if (d.length() > 0 && d.charAt(0) == '0') d.deleteCharAt(0);
+        return d.toString();
+    }
+
+    /** The 10-digit number as a long, or -1 when it isn't a full number. */
+    static long phoneKey(String phone) {
+        String d = normalizeDigits(phone);
+        if (d.length() != 10) return -1;
+        return Long.parseLong(d);
+    }
+
+    private static long pow10(int n) {
+        long p = 1;
+        while (n-- > 0) p *= 10;
+        return p;
+    }
+}
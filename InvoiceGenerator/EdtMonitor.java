@@ -0,0 +1,341 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+/**
+ * Event-dispatch-thread instrumentation. Action handlers record their
+ * latency into lock-free {@link Histogram}s; a watchdog thread posts a
+ * probe to the EDT every quarter of the stall threshold. A probe that
+ * waited longer than the threshold counts as a stall when it finally runs,
+ * so a stall is missed or cut short by at most one probe interval. While
+ * a probe is still waiting past the threshold the watchdog captures the
+ * EDT's stack and logs it at once, so a freeze that never ends is on
+ * record too. Native windows opened are counted as well. Everything is
+ * published as JMX MBeans under the app's domain and summarised into a
+ * rolling log file; the EDT itself never touches the file, and the MBean
+ * server is started by the watchdog rather than on the startup path.
+ */
+final class EdtMonitor {
+
+    private static final long SUMMARY_MILLIS = 60_000;
+    private static final long LOG_LIMIT      = 1 << 20;      // bytes before the log rolls
+    private static final int  LOG_KEEP       = 3;            // rolled files kept
+
+    private final String app;
+    private final Path logFile;
+    private final long stallNanos;
+    private final long probeMillis;                 // a quarter of the threshold
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Histogram queueDelay;
+    private final ConcurrentLinkedQueue<Runnable> registrations = new ConcurrentLinkedQueue<>();
+
+    // watchdog state: pendingSince is the send time of the probe in flight, 0 when none
+    private final AtomicLong pendingSince = new AtomicLong();
+    private volatile Thread edt;
+    private volatile long lastDelay;
+    private volatile String stallStack;          // captured for the stall in progress
+    private volatile long endedStall;            // length of a stall the EDT just counted, 0 when none
+
+    private volatile long stalls, longestStallNanos;             // written by the EDT only
+    private final AtomicLong windowsOpened = new AtomicLong();   // native windows shown, ever
+    private volatile String lastStall = "";
+
+    private EdtMonitor(String app, Path logDir, long stallMillis) {
+        this.app = app;
+        this.logFile = logDir.resolve("edt.log");
+        this.stallNanos = stallMillis * 1_000_000;
+        this.probeMillis = Math.max(1, stallMillis / 4);
+        queueDelay = histogram("edtQueueDelay");
+        register(ObjectName.quote(app) + ":type=EdtMonitor", new Attributes()
+            .add("StallThresholdMillis", Long.class, () -> stallNanos / 1_000_000)
+            .add("Stalls", Long.class, () -> stalls)
+            .add("LongestStallMillis", Double.class, () -> longestStallNanos / 1e6)
+            .add("LastStall", String.class, () -> lastStall)
+            .add("WindowsOpened", Long.class, windowsOpened::get)
+            .add("LogFile", String.class, () -> logFile.toAbsolutePath().toString()));
+    }
+
+    /**
+     * Starts monitoring; the stall threshold comes from the
+     * {@code edt.stallMillis} system property (default 200 ms).
+     */
+    static EdtMonitor install(String app, Path logDir) {
+        EdtMonitor m = new EdtMonitor(app, logDir, Long.getLong("edt.stallMillis", 200));
+        Thread watchdog = new Thread(m::watch, app + "-edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        // every dialog, popup window or toast window costs a native window
+        Toolkit.getDefaultToolkit().addAWTEventListener(e -> {
+            if (e.getID() == WindowEvent.WINDOW_OPENED) m.windowsOpened.incrementAndGet();
+        }, AWTEvent.WINDOW_EVENT_MASK);
+        Runtime.getRuntime().addShutdownHook(new Thread(m::logSummary, app + "-edt-summary"));
+        return m;
+    }
+
+    /** The named latency histogram, created and registered with JMX on first use. */
+    synchronized Histogram histogram(String action) {
+        Histogram h = histograms.get(action);
+        if (h == null) {
+            h = new Histogram();
+            histograms.put(action, h);
+            Histogram fh = h;
+            register(ObjectName.quote(app) + ":type=Latency,name=" + ObjectName.quote(action), new Attributes()
+                .add("Count", Long.class, fh::count)
+                .add("MeanMillis", Double.class, () -> fh.mean() / 1e6)
+                .add("P50Millis", Double.class, () -> fh.percentile(.50) / 1e6)
+                .add("P90Millis", Double.class, () -> fh.percentile(.90) / 1e6)
+                .add("P99Millis", Double.class, () -> fh.percentile(.99) / 1e6)
+                .add("MaxMillis", Double.class, () -> fh.max() / 1e6));
+        }
+        return h;
+    }
+
+    // ── Watchdog ───────────────────────────────────────────
+    private void watch() {
+        long nextSummary = System.currentTimeMillis() + SUMMARY_MILLIS;
+        while (true) {
+            for (Runnable r; (r = registrations.poll()) != null; ) r.run();
+            try {
+                Thread.sleep(probeMillis);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            long sent = pendingSince.get();
+            long now = System.nanoTime();
+            if (sent == 0) {
+                if (endedStall != 0 || stallStack != null) endStall();
+                long at = System.nanoTime();
+                pendingSince.set(at);
+                EventQueue.invokeLater(() -> {
+                    edt = Thread.currentThread();
+                    long delay = System.nanoTime() - at;
+                    lastDelay = delay;
+                    queueDelay.record(delay);
+                    if (delay > stallNanos) {
+                        // counted here, stack or not: the watchdog may not have looked in time
+                        stalls++;
+                        if (delay > longestStallNanos) longestStallNanos = delay;
+                        endedStall = delay;
+                    }
+                    pendingSince.set(0);
+                });
+            } else if (stallStack == null && now - sent > stallNanos && edt != null) {
+                // still stuck: this is what the EDT is doing instead of answering
+                stallStack = format(edt.getStackTrace());
+                log(String.format("STALLING since %s%n%s",
+                                  stamp(System.currentTimeMillis() - (now - sent) / 1_000_000), stallStack));
+            }
+            if (System.currentTimeMillis() >= nextSummary) {
+                logSummary();
+                nextSummary += SUMMARY_MILLIS;
+            }
+        }
+    }
+
+    /** Logs the stall the last probe ended; the EDT has already counted it. */
+    private void endStall() {
+        long length = endedStall != 0 ? endedStall : lastDelay;
+        String stack = stallStack != null ? stallStack : "    (over before the watchdog looked)\n";
+        lastStall = String.format("%s  %.0f ms%n%s", stamp(System.currentTimeMillis() - length / 1_000_000),
+                                  length / 1e6, stack);
+        log(stallStack != null ? String.format("STALL ended after %.0f ms%n", length / 1e6)   // stack logged when caught
+                               : String.format("STALL of %.0f ms ended %s%n%s",
+                                               length / 1e6, stamp(System.currentTimeMillis()), stack));
+        endedStall = 0;
+        stallStack = null;
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        for (StackTraceElement e : stack) sb.append("    at ").append(e).append('\n');
+        return sb.toString();
+    }
+
+    // ── Rolling log ────────────────────────────────────────
+    private void logSummary() {
+        StringBuilder sb = new StringBuilder("SUMMARY ").append(stamp(System.currentTimeMillis())).append('\n');
+        ArrayList<Map.Entry<String, Histogram>> all;
+        synchronized (this) { all = new ArrayList<>(histograms.entrySet()); }
+        for (Map.Entry<String, Histogram> e : all) {
+            Histogram h = e.getValue();
+            if (h.count() == 0) continue;
+            sb.append(String.format("  %-16s n=%-8d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f ms%n",
+                                    e.getKey(), h.count(), h.mean() / 1e6, h.percentile(.5) / 1e6,
+                                    h.percentile(.9) / 1e6, h.percentile(.99) / 1e6, h.max() / 1e6));
+        }
+        sb.append(String.format("  stalls=%d longest=%.0f ms windows=%d%n",
+                                stalls, longestStallNanos / 1e6, windowsOpened.get()));
+        String open = stallStack;
+        long sent = pendingSince.get();
+        if (open != null && sent != 0) {
+            // a stall that hasn't ended, perhaps never will: the likeliest reason for this summary
+            sb.append(String.format("  stalled now for %.0f ms%n%s", (System.nanoTime() - sent) / 1e6, open));
+        }
+        log(sb.toString());
+    }
+
+    /** Appends to the log, rolling edt.log → edt.1.log → … once it passes LOG_LIMIT. */
+    private synchronized void log(String entry) {
+        try {
+            Files.createDirectories(logFile.getParent());
+            if (Files.exists(logFile) && Files.size(logFile) > LOG_LIMIT) {
+                for (int i = LOG_KEEP - 1; i >= 1; i--) {
+                    Path from = rolled(i);
+                    if (Files.exists(from)) Files.move(from, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(logFile, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (Writer w = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                                                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.write(entry);
+            }
+        } catch (IOException ignored) {
+            // monitoring must never take the app down; JMX still has the numbers
+        }
+    }
+
+    private Path rolled(int i) { return logFile.resolveSibling("edt." + i + ".log"); }
+
+    private static String stamp(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(millis));
+    }
+
+    /** Registers other counters under this app's name, as {@code type=<type>,name=<name>}. */
+    void publish(String type, String name, Attributes bean) {
+        register(ObjectName.quote(app) + ":type=" + type + ",name=" + ObjectName.quote(name), bean);
+    }
+
+    /** Queues a bean for the watchdog to register; creating the MBean server takes a while. */
+    private void register(String name, Attributes bean) {
+        registrations.add(() -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+            } catch (Exception ignored) {
+                // a second window in the same JVM keeps the first one's beans
+            }
+        });
+    }
+
+    // ── Histogram ──────────────────────────────────────────
+    /**
+     * Log-linear latency histogram in nanoseconds: eight buckets per power
+     * of two (within 12.5%), counted in an AtomicLongArray, so recording is
+     * a few arithmetic ops and one atomic increment from any thread.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 3, SUB = 1 << SUB_BITS;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+        private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(index(nanos));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        /** Records the time since {@code startNanos} (a System.nanoTime reading). */
+        void since(long startNanos) { record(System.nanoTime() - startNanos); }
+
+        long count() { return count.get(); }
+        long max()   { return max.get(); }
+        double mean() { long n = count.get(); return n == 0 ? 0 : (double) sum.get() / n; }
+
+        /** Upper bound of the bucket holding the q-th quantile. */
+        long percentile(double q) {
+            long n = count.get();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * n)), seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(upper(i), max.get());
+            }
+            return max.get();
+        }
+
+        private static int index(long v) {
+            if (v < SUB) return (int) v;
+            int e = 63 - Long.numberOfLeadingZeros(v);          // v in [2^e, 2^(e+1))
+            return (e - SUB_BITS + 1) * SUB + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+        }
+
+        private static long upper(int i) {
+            if (i < SUB) return i;
+            int e = i / SUB + SUB_BITS - 1, sub = i % SUB;
+            return ((long) (SUB + sub + 1) << (e - SUB_BITS)) - 1;
+        }
+    }
+
+    // ── JMX ────────────────────────────────────────────────
+    /** Read-only DynamicMBean over named suppliers; keeps these classes package-private. */
+    static final class Attributes implements DynamicMBean {
+        private final Map<String, Supplier<Object>> getters = new LinkedHashMap<>();
+        private final Map<String, Class<?>> types = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        <T> Attributes add(String name, Class<T> type, Supplier<T> getter) {
+            getters.put(name, (Supplier<Object>) getter);
+            types.put(name, type);
+            return this;
+        }
+
+        @Override
+        public Object getAttribute(String name) throws AttributeNotFoundException {
+            Supplier<Object> g = getters.get(name);
+            if (g == null) throw new AttributeNotFoundException(name);
+            return g.get();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            AttributeList list = new AttributeList();
+            for (String n : names) {
+                Supplier<Object> g = getters.get(n);
+                if (g != null) list.add(new Attribute(n, g.get()));
+            }
+            return list;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] infos = new MBeanAttributeInfo[types.size()];
+            int i = 0;
+            for (Map.Entry<String, Class<?>> t : types.entrySet()) {
+                infos[i++] = new MBeanAttributeInfo(t.getKey(), t.getValue().getName(), t.getKey(), true, false, false);
+            }
+            return new MBeanInfo(EdtMonitor.class.getName(), "EDT latency", infos, null, null, null);
+        }
+
+        @Override public void setAttribute(Attribute a) { throw new UnsupportedOperationException("read-only"); }
+        @Override public AttributeList setAttributes(AttributeList list) { return new AttributeList(); }
+        @Override public Object invoke(String action, Object[] params, String[] sig) {
+            throw new UnsupportedOperationException(action);
+        }
+    }
+}
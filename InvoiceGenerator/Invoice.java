@@ -0,0 +1,143 @@
+import java.util.*;
+
+/**
+ * One invoice — header fields plus its line items.
+ * Money is held as whole paise (long) so totals never drift.
+ */
+final class Invoice {
+
+    static final int GST_PERCENT = 18;
+
+    /** Highest unit price, ₹1 crore: 9999 of them is still a small fraction of a long. */
+    static final long MAX_UNIT_PAISE = 1_000_000_000L;
+    /** Highest subtotal; the tax is worked out as subtotal × GST and has to fit too. */
+    static final long MAX_SUBTOTAL_PAISE = Long.MAX_VALUE / 100;
+
+    static final String[] CATEGORIES = {
+        "Grocery", "Bakery", "Electronics", "Clothing",
+        "Stationery", "Medicine", "Other"
+    };
+
+    /** A single billed line: item, category, quantity and unit price. */
+    static final class Line {
+        final String name;
+        final String category;
+        final int    qty;
+        final long   unitPaise;
+
+        Line(String name, String category, int qty, long unitPaise) {
+            this.name      = name;
+            this.category  = category;
+            this.qty       = qty;
+            this.unitPaise = unitPaise;
+        }
+
+        long totalPaise() { return Math.multiplyExact(qty, unitPaise); }
+    }
+
+    long   number;
+    long   createdAt;           // epoch millis
+    String customerName  = "Walk-in Customer";
+    String customerPhone = "";
+    final List<Line> lines = new ArrayList<>();
+
+    Invoice(long number) {
+        this.number    = number;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    // ── Totals ─────────────────────────────────────────────
+    long subtotalPaise() {
+        long sum = 0;
+        for (Line l : lines) sum = Math.addExact(sum, l.totalPaise());
+        return sum;
+    }
+
+    static long taxOn(long subtotalPaise) {
+        return (Math.multiplyExact(subtotalPaise, GST_PERCENT) + 50) / 100;    // rounded to the nearest paisa
+    }
+
+    long taxPaise()   { return taxOn(subtotalPaise()); }
+    long totalPaise() { long s = subtotalPaise(); return s + taxOn(s); }
+
+    /**
+     * Validates a line as the entry form does; returns the problem, or null
+     * when the line is fine.
+     */
+    static String checkLine(String name, String category, int qty, long unitPaise) {
+        if (name == null || name.isBlank()) return "Please enter an item name.";
+        if (unitPaise < 0)                  return "Please enter a valid price (e.g. 49.99).";
+        if (unitPaise > MAX_UNIT_PAISE)     return "Price can't be more than ₹1,00,00,000.";
+        if (qty < 1 || qty > 9999)          return "Quantity must be between 1 and 9999.";
+        if (!Arrays.asList(CATEGORIES).contains(category)) return "Unknown category: " + category;
+        return null;
+    }
+
+    /**
+     * Whether a line of {@code qty} × {@code unitPaise}, already passed by
+     * {@link #checkLine}, still fits on a bill whose other lines come to
+     * {@code otherPaise}; returns the problem, or null.
+     */
+    static String checkTotal(long otherPaise, int qty, long unitPaise) {
+        if (otherPaise + qty * unitPaise > MAX_SUBTOTAL_PAISE) return "The bill total would be too large.";
+        return null;
+    }
+
+    /**
+     * Rupees (as typed or shown in the table) to paise. NaN and infinities
+     * come out as -1 and anything over the cap just above it, so
+     * {@link #checkLine} turns them away instead of a saturated round.
+     */
+    static long toPaise(double rupees) {
+        if (!Double.isFinite(rupees)) return -1;
+        return rupees * 100 > MAX_UNIT_PAISE ? MAX_UNIT_PAISE + 1 : Math.round(rupees * 100);
+    }
+
+    // ── JSON (one invoice per store line) ──────────────────
+    String toJson() {
+        StringBuilder sb = new StringBuilder(128 + lines.size() * 64);
+        sb.append("{\"no\":").append(number)
+          .append(",\"ts\":").append(createdAt)
+          .append(",\"customer\":");
+        Json.quote(sb, customerName).append(",\"phone\":");
+        Json.quote(sb, customerPhone).append(",\"lines\":[");
+        for (int i = 0; i < lines.size(); i++) {
+            Line l = lines.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":");
+            Json.quote(sb, l.name).append(",\"category\":");
+            Json.quote(sb, l.category)
+              .append(",\"qty\":").append(l.qty)
+              .append(",\"unit\":").append(l.unitPaise)
+              .append('}');
+        }
+        long subtotal = subtotalPaise();
+        long tax      = taxOn(subtotal);
+        sb.append("],\"subtotal\":").append(subtotal)
+          .append(",\"tax\":").append(tax)
+          .append(",\"total\":").append(subtotal + tax)
+          .append('}');
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static Invoice fromJson(CharSequence json) {
+        Map<String, Object> obj = Json.parseObject(json);
+        Invoice inv = new Invoice(Json.num(obj, "no", 0));
+        inv.createdAt     = Json.num(obj, "ts", 0);
+        inv.customerName  = Json.str(obj, "customer", "");
+        inv.customerPhone = Json.str(obj, "phone", "");
+        Object lines = obj.get("lines");
+        if (lines instanceof List) {
+            for (Object o : (List<Object>) lines) {
+                Map<String, Object> l = (Map<String, Object>) o;
+                inv.lines.add(new Line(
+                    Json.str(l, "name", ""),
+                    Json.str(l, "category", "Other"),
+                    (int) Json.num(l, "qty", 1),
+                    Json.num(l, "unit", 0)));
+            }
+        }
+        return inv;
+    }
+}
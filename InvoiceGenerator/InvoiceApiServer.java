@@ -0,0 +1,157 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Local HTTP/JSON API for kiosks and the web shop, bound to loopback only.
+ *
+ *   POST /api/invoices                     {"customer":"..","phone":".."}
+ *   POST /api/invoices/{no}/lines          {"name":"..","category":"..","qty":2,"price":49.99}
+ *   POST /api/invoices/{no}/finalize
+ *   GET  /api/invoices/{no}
+ *
+ * Every request runs on its own virtual thread (JDK 21+); older JDKs fall
+ * back to a cached pool of daemon threads.
+ */
+final class InvoiceApiServer {
+
+    static final int DEFAULT_PORT = 8765;
+    private static final int MAX_BODY = 64 * 1024;
+
+    static {
+        // Headers and body go out as separate writes; with Nagle on, every
+        // keep-alive request waits ~40ms for the client's delayed ACK.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final InvoiceService service;
+    private final HttpServer     server;
+    private final ExecutorService executor;
+
+    InvoiceApiServer(InvoiceService service, int port) throws IOException {
+        this.service  = service;
+        this.server   = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 512);
+        this.executor = newRequestExecutor();
+        server.createContext("/api/invoices", this::handle);
+        server.setExecutor(executor);
+    }
+
+    void start() { server.start(); }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    int port() { return server.getAddress().getPort(); }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException preJava21) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "invoice-api");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ── Routing ────────────────────────────────────────────
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String[] parts = ex.getRequestURI().getPath().split("/");   // "", api, invoices, {no}, action
+            String method  = ex.getRequestMethod();
+
+            if (parts.length == 3 && method.equals("POST")) {
+                Map<String, Object> body = readBody(ex);
+                Invoice inv = service.create(Json.str(body, "customer", null), Json.str(body, "phone", ""));
+                respond(ex, 201, inv);
+            } else if (parts.length == 4 && method.equals("GET")) {
+                Invoice inv = service.fetch(parseNumber(parts[3]));
+                if (inv == null) throw new InvoiceService.ServiceException(404, "No such invoice: " + parts[3]);
+                respond(ex, 200, inv);
+            } else if (parts.length == 5 && parts[4].equals("lines") && method.equals("POST")) {
+                Map<String, Object> body = readBody(ex);
+                long unit = body.containsKey("unit")
+                    ? Json.num(body, "unit", -1)
+                    : Invoice.toPaise(Json.dbl(body, "price", -1));
+                Invoice inv = service.addLine(parseNumber(parts[3]),
+                    Json.str(body, "name", ""), Json.str(body, "category", "Other"),
+                    wholeInt(body, "qty", 1), unit);
+                respond(ex, 200, inv);
+            } else if (parts.length == 5 && parts[4].equals("finalize") && method.equals("POST")) {
+                respond(ex, 200, service.finalizeInvoice(parseNumber(parts[3])));
+            } else {
+                throw new InvoiceService.ServiceException(404, "Unknown endpoint: " + method + " " + ex.getRequestURI().getPath());
+            }
+        } catch (InvoiceService.ServiceException e) {
+            respondError(ex, e.status, e.getMessage());
+        } catch (IllegalArgumentException | ClassCastException e) {
+            respondError(ex, 400, "Bad request: " + e.getMessage());
+        } catch (IOException e) {
+            respondError(ex, 500, "Storage error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            respondError(ex, 500, "Internal error: " + e);            // answered, never left hanging
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static long parseNumber(String s) throws InvoiceService.ServiceException {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new InvoiceService.ServiceException(400, "Bad invoice number: " + s);
+        }
+    }
+
+    /** A whole number in int range; a cast would wrap 4294967297 to 1, and rounding would take 2.5. */
+    private static int wholeInt(Map<String, Object> body, String key, int def) throws InvoiceService.ServiceException {
+        Object v = body.get(key);
+        if (!(v instanceof Number n)) return def;
+        double d = n.doubleValue();
+        boolean whole = !(n instanceof Double) || d == Math.rint(d);
+        if (!whole || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            throw new InvoiceService.ServiceException(400, "Bad " + key + ": " + v);
+        }
+        return n.intValue();
+    }
+
+    private static Map<String, Object> readBody(HttpExchange ex) throws IOException {
+        byte[] raw = ex.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (raw.length > MAX_BODY) throw new IllegalArgumentException("body too large");
+        String text = new String(raw, StandardCharsets.UTF_8);
+        return text.isBlank() ? new HashMap<>() : Json.parseObject(text);
+    }
+
+    // ── Responses ──────────────────────────────────────────
+    private void respond(HttpExchange ex, int status, Invoice inv) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        synchronized (inv) {                      // status and lines from the same moment
+            sb.append("{\"status\":\"").append(service.isDraft(inv.number) ? "draft" : "final")
+              .append("\",\"invoice\":").append(inv.toJson());
+        }
+        send(ex, status, sb.append('}').toString());
+    }
+
+    private static void respondError(HttpExchange ex, int status, String message) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        send(ex, status, Json.quote(sb, message).append('}').toString());
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] out = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, out.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(out);
+        }
+    }
+}
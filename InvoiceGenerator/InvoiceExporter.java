@@ -0,0 +1,390 @@
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Month-end export of the invoice archive for the accountant.
+ *
+ * The store is read through one large direct buffer and split into lines in
+ * place; only the invoices inside the date range are decoded, and the chosen
+ * encoder appends text to a reused StringBuilder that is flushed through a
+ * direct output buffer. Nothing proportional to the month is ever held in
+ * memory.
+ *
+ * JSONL already is the store's own format, so matching runs of lines are
+ * copied file-to-file with FileChannel.transferTo and never decoded.
+ */
+final class InvoiceExporter {
+
+    enum Format {
+        CSV("csv"), JSONL("jsonl"), TALLY("xml");
+
+        final String extension;
+        Format(String extension) { this.extension = extension; }
+    }
+
+    private static final int IO_BUFFER = 1 << 20;          // 1 MB each way
+    private static final int FLUSH_AT  = 64 * 1024;        // chars
+
+    private final InvoiceStore store;
+
+    InvoiceExporter(InvoiceStore store) { this.store = store; }
+
+    /**
+     * Writes every invoice with {@code from <= ts <= to} (epoch millis;
+     * 0 = open) to {@code target}; returns the number of invoices written.
+     */
+    long export(Format format, long from, long to, Path target) throws IOException {
+        long hi = to > 0 ? to : Long.MAX_VALUE;
+        try (FileChannel in  = FileChannel.open(store.file(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return format == Format.JSONL
+                ? copyJsonl(in, out, from, hi)
+                : encode(in, out, format == Format.CSV ? new CsvEncoder() : new TallyEncoder(), from, hi);
+        }
+    }
+
+    // ── JSONL: zero-copy runs ──────────────────────────────
+    private long copyJsonl(FileChannel in, FileChannel out, long from, long to) throws IOException {
+        if (from <= 0 && to == Long.MAX_VALUE) {
+            LineReader lines = new LineReader(in);
+            long count = 0;
+            while (lines.next()) count++;
+            transfer(in, out, 0, lines.end);         // whole archive in one call
+            return count;
+        }
+        LineReader lines = new LineReader(in);
+        long runStart = -1, runEnd = -1, count = 0;
+        while (lines.next()) {
+            long ts = lines.longField(TS_KEY);
+            if (ts >= from && ts <= to) {
+                if (runStart < 0) runStart = lines.start;
+                runEnd = lines.end;
+                count++;
+            } else if (runStart >= 0) {
+                transfer(in, out, runStart, runEnd);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) transfer(in, out, runStart, runEnd);
+        return count;
+    }
+
+    private static void transfer(FileChannel in, FileChannel out, long start, long end) throws IOException {
+        for (long pos = start; pos < end; ) pos += in.transferTo(pos, end - pos, out);
+    }
+
+    // ── CSV / Tally: decode only what is in range ──────────
+    private long encode(FileChannel in, FileChannel out, Encoder encoder, long from, long to) throws IOException {
+        ByteBuffer outBuf = ByteBuffer.allocateDirect(IO_BUFFER);
+        StringBuilder text = new StringBuilder(FLUSH_AT + 4096);
+
+        encoder.header(text);
+        LineReader lines = new LineReader(in);
+        long count = 0;
+        while (lines.next()) {
+            long ts = lines.longField(TS_KEY);
+            if (ts < from || ts > to) continue;
+
+            Invoice inv;
+            try {
+                inv = Invoice.fromJson(lines.text());
+            } catch (IllegalArgumentException corrupt) {
+                continue;
+            }
+            encoder.invoice(inv, text);
+            count++;
+            if (text.length() >= FLUSH_AT) flush(text, outBuf, out);
+        }
+        encoder.footer(text);
+        flush(text, outBuf, out);
+        outBuf.flip();
+        while (outBuf.hasRemaining()) out.write(outBuf);
+        return count;
+    }
+
+    // reused staging arrays between the StringBuilder and the direct buffer
+    private char[] chars = new char[FLUSH_AT + 4096];
+    private byte[] bytes = new byte[(FLUSH_AT + 4096) * 3];
+
+    /**
+     * UTF-8 encodes the pending text into a reused array and bulk-copies it
+     * into the direct buffer — the JDK charset encoders only have a fast path
+     * for heap buffers, and go char by char on direct ones.
+     */
+    private void flush(StringBuilder text, ByteBuffer outBuf, FileChannel out) throws IOException {
+        int len = text.length();
+        if (chars.length < len) {
+            chars = new char[len];
+            bytes = new byte[len * 3];
+        }
+        text.getChars(0, len, chars, 0);
+        int n = 0;
+        for (int i = 0; i < len; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[n++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[n++] = (byte) (0xC0 | c >> 6);
+                bytes[n++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(chars[i + 1])) {
+                int cp = Character.toCodePoint(c, chars[++i]);
+                bytes[n++] = (byte) (0xF0 | cp >> 18);
+                bytes[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                bytes[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                bytes[n++] = (byte) (0x80 | cp & 0x3F);
+            } else {
+                bytes[n++] = (byte) (0xE0 | c >> 12);
+                bytes[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[n++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        for (int off = 0; off < n; ) {
+            int chunk = Math.min(n - off, outBuf.remaining());
+            outBuf.put(bytes, off, chunk);
+            off += chunk;
+            if (!outBuf.hasRemaining()) {
+                outBuf.flip();
+                while (outBuf.hasRemaining()) out.write(outBuf);
+                outBuf.clear();
+            }
+        }
+        text.setLength(0);
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  LINE READER — splits the store in a direct buffer
+    // ═══════════════════════════════════════════════════════
+    private static final byte[] TS_KEY = "\"ts\":".getBytes(StandardCharsets.US_ASCII);
+
+    /** Iterates complete lines; [start, end) are file offsets including the '\n'. */
+    private static final class LineReader {
+        private final FileChannel in;
+        private ByteBuffer buf = ByteBuffer.allocateDirect(IO_BUFFER);
+        private long bufPos;            // file offset of buf[0]
+        private int  lineFrom, lineTo;  // current line within buf (excluding '\n')
+        long start, end;
+
+        LineReader(FileChannel in) {
+            this.in = in;
+            buf.limit(0);
+        }
+
+        boolean next() throws IOException {
+            int from = (int) (end - bufPos);
+            while (true) {
+                for (int i = from; i < buf.limit(); i++) {
+                    if (buf.get(i) == '\n') {
+                        lineFrom = (int) (end - bufPos);
+                        lineTo   = i;
+                        start    = end;
+                        end      = bufPos + i + 1;
+                        if (lineTo > lineFrom) return true;
+                        from = i + 1;           // skip blank line
+                        i = from - 1;
+                    }
+                }
+                // Need more bytes: keep the unfinished line, read after it
+                int keep = (int) (end - bufPos);
+                buf.position(keep);
+                buf.compact();
+                bufPos += keep;
+                if (buf.position() == buf.capacity()) {         // one line bigger than the buffer
+                    ByteBuffer bigger = ByteBuffer.allocateDirect(buf.capacity() * 2);
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                }
+                int filled = buf.position();
+                int n = in.read(buf, bufPos + filled);
+                buf.flip();
+                if (n <= 0) return false;                       // a partial tail is ignored
+                from = filled;
+            }
+        }
+
+        private byte[] lineBytes = new byte[4096];
+
+        /** Current line decoded, via one bulk copy out of the direct buffer. */
+        String text() {
+            int len = lineTo - lineFrom;
+            if (lineBytes.length < len) lineBytes = new byte[len * 2];
+            buf.get(lineFrom, lineBytes, 0, len);
+            return new String(lineBytes, 0, len, StandardCharsets.UTF_8);
+        }
+
+        /** Reads a top-level numeric field like "ts":123 without decoding the line. */
+        long longField(byte[] key) {
+            outer:
+            for (int i = lineFrom; i <= lineTo - key.length; i++) {
+                for (int k = 0; k < key.length; k++) {
+                    if (buf.get(i + k) != key[k]) continue outer;
+                }
+                long v = 0;
+                for (int j = i + key.length; j < lineTo; j++) {
+                    byte b = buf.get(j);
+                    if (b < '0' || b > '9') break;
+                    v = v * 10 + (b - '0');
+                }
+                return v;
+            }
+            return -1;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  ENCODERS — reused for every record
+    // ═══════════════════════════════════════════════════════
+    private interface Encoder {
+        void header(StringBuilder out);
+        void invoice(Invoice inv, StringBuilder out);
+        void footer(StringBuilder out);
+    }
+
+    /** One row per invoice line, amounts in rupees. */
+    private static final class CsvEncoder implements Encoder {
+        private final DayFormat date = new DayFormat("yyyy-MM-dd ");
+
+        public void header(StringBuilder out) {
+            out.append("invoice_no,date,customer,phone,item,category,qty,unit_price,line_total,"
+                     + "invoice_subtotal,invoice_gst,invoice_total\n");
+        }
+
+        public void invoice(Invoice inv, StringBuilder out) {
+            String day = date.format(inv.createdAt, true);
+            long subtotal = inv.subtotalPaise(), tax = Invoice.taxOn(subtotal);
+            for (Invoice.Line l : inv.lines) {
+                out.append(inv.number).append(',').append(day).append(',');
+                field(out, inv.customerName).append(',');
+                field(out, inv.customerPhone).append(',');
+                field(out, l.name).append(',');
+                field(out, l.category).append(',');
+                out.append(l.qty).append(',');
+                rupees(out, l.unitPaise).append(',');
+                rupees(out, l.totalPaise()).append(',');
+                rupees(out, subtotal).append(',');
+                rupees(out, tax).append(',');
+                rupees(out, subtotal + tax).append('\n');
+            }
+        }
+
+        public void footer(StringBuilder out) {}
+
+        private static StringBuilder field(StringBuilder out, String s) {
+            boolean quote = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0;
+            if (!quote) return out.append(s);
+            out.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') out.append('"');
+                out.append(c);
+            }
+            return out.append('"');
+        }
+    }
+
+    /** Tally ERP sales vouchers: party debit, sales and output GST credits. */
+    private static final class TallyEncoder implements Encoder {
+        private final DayFormat date = new DayFormat("yyyyMMdd");
+
+        public void header(StringBuilder out) {
+            out.append("<ENVELOPE>\n <HEADER><TALLYREQUEST>Import Data</TALLYREQUEST></HEADER>\n")
+               .append(" <BODY><IMPORTDATA>\n")
+               .append("  <REQUESTDESC><REPORTNAME>Vouchers</REPORTNAME></REQUESTDESC>\n")
+               .append("  <REQUESTDATA>\n");
+        }
+
+        public void invoice(Invoice inv, StringBuilder out) {
+            long subtotal = inv.subtotalPaise(), tax = Invoice.taxOn(subtotal);
+            String party = inv.customerName.isBlank() ? "Cash" : inv.customerName;
+
+            out.append("   <TALLYMESSAGE xmlns:UDF=\"TallyUDF\">\n")
+               .append("    <VOUCHER VCHTYPE=\"Sales\" ACTION=\"Create\">\n")
+               .append("     <DATE>").append(date.format(inv.createdAt, false)).append("</DATE>\n")
+               .append("     <VOUCHERTYPENAME>Sales</VOUCHERTYPENAME>\n")
+               .append("     <VOUCHERNUMBER>").append(inv.number).append("</VOUCHERNUMBER>\n")
+               .append("     <PARTYLEDGERNAME>");
+            xml(out, party).append("</PARTYLEDGERNAME>\n");
+            ledger(out, party, true, subtotal + tax);
+            ledger(out, "Sales", false, subtotal);
+            ledger(out, "Output GST " + Invoice.GST_PERCENT + "%", false, tax);
+            out.append("    </VOUCHER>\n   </TALLYMESSAGE>\n");
+        }
+
+        public void footer(StringBuilder out) {
+            out.append("  </REQUESTDATA>\n </IMPORTDATA></BODY>\n</ENVELOPE>\n");
+        }
+
+        /** Tally convention: debits are negative, ISDEEMEDPOSITIVE=Yes. */
+        private static void ledger(StringBuilder out, String name, boolean debit, long paise) {
+            out.append("     <ALLLEDGERENTRIES.LIST><LEDGERNAME>");
+            xml(out, name).append("</LEDGERNAME><ISDEEMEDPOSITIVE>")
+               .append(debit ? "Yes" : "No").append("</ISDEEMEDPOSITIVE><AMOUNT>");
+            rupees(out, debit ? -paise : paise).append("</AMOUNT></ALLLEDGERENTRIES.LIST>\n");
+        }
+
+        private static StringBuilder xml(StringBuilder out, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '&': out.append("&amp;");  break;
+                    case '<': out.append("&lt;");   break;
+                    case '>': out.append("&gt;");   break;
+                    case '"': out.append("&quot;"); break;
+                    default:  out.append(c);
+                }
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Formats timestamps that arrive in (roughly) date order: the day part is
+     * formatted once per calendar day and HH:mm is computed arithmetically.
+     */
+    private static final class DayFormat {
+        private final SimpleDateFormat dayPattern;
+        private final Calendar cal = Calendar.getInstance();
+        private long dayStart = 1, dayEnd = 0;
+        private String day;
+        private final char[] stamp = new char[32];
+
+        DayFormat(String pattern) { dayPattern = new SimpleDateFormat(pattern); }
+
+        String format(long millis, boolean withTime) {
+            if (millis < dayStart || millis >= dayEnd) {
+                cal.setTimeInMillis(millis);
+                cal.set(Calendar.HOUR_OF_DAY, 0);
+                cal.set(Calendar.MINUTE, 0);
+                cal.set(Calendar.SECOND, 0);
+                cal.set(Calendar.MILLISECOND, 0);
+                dayStart = cal.getTimeInMillis();
+                cal.add(Calendar.DAY_OF_MONTH, 1);
+                dayEnd = cal.getTimeInMillis();
+                day = dayPattern.format(new Date(dayStart));
+                day.getChars(0, day.length(), stamp, 0);
+            }
+            if (!withTime) return day;
+            int minutes = (int) ((millis - dayStart) / 60_000);
+            int n = day.length();
+            stamp[n]     = (char) ('0' + minutes / 600);
+            stamp[n + 1] = (char) ('0' + minutes / 60 % 10);
+            stamp[n + 2] = ':';
+            stamp[n + 3] = (char) ('0' + minutes % 60 / 10);
+            stamp[n + 4] = (char) ('0' + minutes % 10);
+            return new String(stamp, 0, n + 5);
+        }
+    }
+
+    /** Paise as plain rupees ("1234.50") without Formatter or boxing. */
+    private static StringBuilder rupees(StringBuilder out, long paise) {
+        if (paise < 0) { out.append('-'); paise = -paise; }
+        long frac = paise % 100;
+        return out.append(paise / 100).append('.').append((char) ('0' + frac / 10)).append((char) ('0' + frac % 10));
+    }
+}
@@ -1,9 +1,12 @@
 import javax.swing.*;
 import javax.swing.table.*;
 import javax.swing.border.*;
+import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.print.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.*;
 import java.util.*;
 
@@ -30,8 +33,39 @@ public class InvoiceGenerator extends JFrame {
     private static final Font FONT_SMALL  = new Font("Segoe UI", Font.PLAIN, 11);
 
     // ── Data ───────────────────────────────────────────────
-    private int invoiceCounter = 1001;
-    private NumberFormat currency = NumberFormat.getCurrencyInstance(new Locale("en", "IN"));
+    private long invoiceCounter;
+    private InvoiceSequence sequence;   // shared across tills on this machine
+    private InvoiceStore    store;
+    private CustomerDirectory customers;    // null if the directory can't be opened
+    private InvoiceIndex      invoiceIndex; // built on first search
+    private JDialog           searchDialog;
+    private boolean fillingCustomer;        // set while we write the fields ourselves
+    private final JPopupMenu customerPopup = new JPopupMenu();
+
+    // ── Instrumentation ────────────────────────────────────
+    // Handler latencies and EDT stalls, published over JMX (domain
+    // "InvoiceGenerator") and summarised into invoice-data/logs/edt.log;
+    // the startup timeline goes to startup.log alongside
+    private final EdtMonitor monitor = EdtMonitor.install("InvoiceGenerator", InvoiceStore.dataDir().resolve("logs"));
+    private final EdtMonitor.Histogram addLatency     = monitor.histogram("addItemToTable");
+    private final EdtMonitor.Histogram summaryLatency = monitor.histogram("updateSummary");
+    private final EdtMonitor.Histogram printLatency   = monitor.histogram("printInvoice");
+
+    // ── Receipt cache ──────────────────────────────────────
+    // Rendered receipts by content hash: 64 in memory, and saved invoices'
+    // under invoice-data/receipts, up to 2,000 files; bump RECEIPT_TEMPLATE
+    // whenever renderReceipt's output changes, so older renderings are no longer found
+    private static final int RECEIPT_TEMPLATE = 1;
+    private final ReceiptCache receipts = new ReceiptCache(InvoiceStore.dataDir().resolve("receipts"), 64, 2000);
+    private final SimpleDateFormat receiptDate = new SimpleDateFormat("dd-MMM-yyyy HH:mm");
+    private JTextArea receiptPreview;          // one preview area, re-filled for each receipt
+
+    // ── Staged startup ─────────────────────────────────────
+    // The billing form is the first frame; the sequence, store and customer
+    // directory open on a worker, and the actions that need them wait for it
+    private final StartupTrace startup;
+    private boolean  dataReady;
+    private Runnable awaitingData;             // the last action asked for before then
 
     // ── Shop Info Fields ───────────────────────────────────
     private JTextField shopNameField, shopAddressField, shopPhoneField;
@@ -46,8 +80,15 @@ public class InvoiceGenerator extends JFrame {
     private JComboBox<String> categoryCombo;
 
     // ── Items Table ────────────────────────────────────────
-    private DefaultTableModel tableModel;
+    private InvoiceLinesModel tableModel;
+    private JButton undoBtn, redoBtn;
+
+    // ── Status Bar ─────────────────────────────────────────
+    private static final String HINT = "💡 Tip: Double-click a category, qty or price to change it; Remove deletes "
+                                     + "the selected row and Ctrl+Z undoes. Press Print to preview, or Find Invoice to reprint.";
+    private JLabel hintLabel;
     private JTable itemsTable;
+    private LineSorter itemsSorter;
 
     // ── Summary Labels ─────────────────────────────────────
     private JLabel subtotalLabel, taxLabel, totalLabel, invoiceNumLabel;
@@ -58,7 +99,14 @@ public class InvoiceGenerator extends JFrame {
     // ═══════════════════════════════════════════════════════
     //  CONSTRUCTOR
     // ═══════════════════════════════════════════════════════
-    public InvoiceGenerator() {
+    public InvoiceGenerator(StartupTrace startup) {
+        this.startup = startup;
+        monitor.publish("Cache", "receipts", new EdtMonitor.Attributes()
+            .add("MemoryHits", Long.class, receipts::memoryHits)
+            .add("DiskHits", Long.class, receipts::diskHits)
+            .add("Misses", Long.class, receipts::misses)
+            .add("HitRate", Double.class, receipts::hitRate)
+            .add("MemoryEntries", Integer.class, receipts::memorySize));
         setTitle("🧾  Invoice Generator — Small Shop Manager");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(950, 750);
@@ -66,14 +114,133 @@ public class InvoiceGenerator extends JFrame {
         setLocationRelativeTo(null);
         getContentPane().setBackground(BG_DARK);
 
+        openSharedData();
+
         // Use BorderLayout for the main frame
         setLayout(new BorderLayout(0, 0));
 
-        add(buildTopBar(),    BorderLayout.NORTH);
-        add(buildMainPanel(), BorderLayout.CENTER);
-        add(buildBottomBar(), BorderLayout.SOUTH);
+        startup.span("form", () -> {
+            add(buildTopBar(),    BorderLayout.NORTH);
+            add(buildMainPanel(), BorderLayout.CENTER);
+            add(buildBottomBar(), BorderLayout.SOUTH);
+        });
+
+        startup.span("show", () -> setVisible(true));
+    }
+
+    /** Swing paints through the root pane, so that's where the first frame is seen. */
+    @Override
+    protected JRootPane createRootPane() {
+        JRootPane root = new JRootPane() {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                if (startup.painted()) preloadDialogs();
+            }
+        };
+        root.setOpaque(true);
+        return root;
+    }
+
+    // ── Shared numbering + invoice store ────────────────────
+    /** Opens the data folder on a worker; items can be entered meanwhile. */
+    private void openSharedData() {
+        new SwingWorker<Void, Void>() {
+            InvoiceSequence openedSequence;
+            InvoiceStore    openedStore;
+            CustomerDirectory openedCustomers;
+            long first;
+
+            @Override protected Void doInBackground() throws IOException {
+                startup.mark("opening data folder");
+                openedSequence = InvoiceSequence.open(InvoiceStore.dataDir().resolve("invoice.seq"));
+                openedStore    = InvoiceStore.open(InvoiceStore.dataDir().resolve("invoices.jsonl"));
+                first          = openedSequence.next();
+                try {
+                    openedCustomers = CustomerDirectory.open(InvoiceStore.dataDir());
+                } catch (IOException ex) {
+                    openedCustomers = null;     // billing works without repeat-customer lookup
+                }
+                return null;
+            }
 
-        setVisible(true);
+            @Override protected void done() {
+                try {
+                    get();
+                } catch (Exception ex) {
+                    // Refuse to bill rather than hand out numbers another till may also use
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(InvoiceGenerator.this,
+                        "Cannot open the invoice data folder:\n" + cause.getMessage(),
+                        "Storage Error", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                }
+                sequence       = openedSequence;
+                store          = openedStore;
+                customers      = openedCustomers;
+                invoiceCounter = first;
+                invoiceNoField.setText(String.valueOf(invoiceCounter));
+                dataReady = true;
+                startup.mark("data ready");
+                setCursor(Cursor.getDefaultCursor());
+                if (awaitingData != null) {
+                    Runnable action = awaitingData;
+                    awaitingData = null;
+                    action.run();
+                }
+                warmIndex();
+            }
+        }.execute();
+    }
+
+    /** Runs {@code action} now, or once the data folder is open if it isn't yet. */
+    private void whenDataReady(Runnable action) {
+        if (dataReady) {
+            action.run();
+        } else {
+            awaitingData = action;
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+    }
+
+    /** Indexes past invoices in the background so the first search starts warm. */
+    private void warmIndex() {
+        InvoiceStore indexed = store;
+        new SwingWorker<InvoiceIndex, Void>() {
+            @Override protected InvoiceIndex doInBackground() throws IOException {
+                startup.mark("indexing invoices");
+                InvoiceIndex index = new InvoiceIndex(indexed);
+                index.refresh();
+                return index;
+            }
+
+            @Override protected void done() {
+                try {
+                    InvoiceIndex index = get();
+                    if (invoiceIndex == null) invoiceIndex = index;   // a search may have built its own
+                    startup.mark(String.format("search index ready (%,d invoices)", index.size()));
+                } catch (Exception ignored) {
+                    // the search dialog indexes on first use instead
+                }
+                startup.finish(InvoiceStore.dataDir().resolve("logs").resolve("startup.log"));
+            }
+        }.execute();
+    }
+
+    /** Loads the dialog and printing classes off the EDT so the first print or export opens quickly. */
+    private void preloadDialogs() {
+        Thread preload = new Thread(() -> startup.span("preload dialogs", () -> {
+            for (String name : new String[] {
+                    "javax.swing.JOptionPane", "javax.swing.JFileChooser",
+                    "java.awt.print.PrinterJob", "javax.swing.JTextArea" }) {
+                try {
+                    Class.forName(name);
+                } catch (ClassNotFoundException ignored) {}
+            }
+            new SimpleDateFormat("dd-MM-yyyy HH:mm").format(new Date());
+        }), "InvoiceGenerator-preload");
+        preload.setDaemon(true);
+        preload.start();
     }
     // ═══════════════════════════════════════════════════════
     //  TOP BAR — Title + Invoice Number
@@ -99,7 +266,7 @@ public class InvoiceGenerator extends JFrame {
         invLabel.setFont(FONT_HEAD);
         invLabel.setForeground(TEXT_MUTED);
 
-        invoiceNoField = styledTextField(String.valueOf(invoiceCounter), 80);
+        invoiceNoField = styledTextField("…", 80);      // numbered once the data folder is open
         invoiceNoField.setFont(FONT_MONO);
         invoiceNoField.setForeground(ACCENT);
         invoiceNoField.setEditable(false);
@@ -178,6 +345,10 @@ public class InvoiceGenerator extends JFrame {
         addFormRow(card, "Customer Name:", custNameField);
         addFormRow(card, "Phone:",         custPhoneField);
 
+        // Repeat customers — the phone digits fill in the name, a name prefix suggests matches
+        custPhoneField.getDocument().addDocumentListener(onEdit(this::autoFillFromPhone));
+        custNameField .getDocument().addDocumentListener(onEdit(this::suggestCustomers));
+
         return card;
     }
     // ── Card: Add Item ─────────────────────────────────────
@@ -189,10 +360,7 @@ public class InvoiceGenerator extends JFrame {
         addFormRow(card, "Item Name:", itemNameField);
 
         // Category ComboBox — Learn: JComboBox
-        categoryCombo = new JComboBox<>(new String[]{
-            "Grocery", "Bakery", "Electronics", "Clothing",
-            "Stationery", "Medicine", "Other"
-        });
+        categoryCombo = new JComboBox<>(Invoice.CATEGORIES);
         styleCombo(categoryCombo);
         addFormRow(card, "Category:", categoryCombo);
 
@@ -233,15 +401,45 @@ public class InvoiceGenerator extends JFrame {
         JPanel wrapper = card("🛒  Invoice Items");
         wrapper.setLayout(new BorderLayout());
 
-        // Table columns
-        String[] columns = {"#", "Item Name", "Category", "Qty", "Unit Price", "Total"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override public boolean isCellEditable(int row, int col) { return false; }
-        };
+        // Lines with an undo history — see InvoiceLinesModel
+        tableModel = new InvoiceLinesModel();
+        tableModel.addTableModelListener(e -> {       // every change, undo and redo included
+            updateSummary();
+            updateUndoButtons();
+        });
 
         itemsTable = new JTable(tableModel);
         styleTable(itemsTable);
 
+        // Click a header to sort by it (amounts compare as numbers); the
+        // field above the table narrows the rows to matching item names
+        itemsSorter = new LineSorter(tableModel);
+        itemsTable.setRowSorter(itemsSorter);
+        JTextField filterField = styledTextField("", 0);
+        filterField.setToolTipText("Show only items whose name contains this");
+        filterField.getDocument().addDocumentListener(onEdit(() -> {
+            String typed = filterField.getText();
+            itemsSorter.setRowFilter(typed.isBlank() ? null : LineSorter.nameContains(typed));
+        }));
+        JPanel filterRow = new JPanel(new BorderLayout(8, 0));
+        filterRow.setBackground(BG_CARD);
+        filterRow.setBorder(BorderFactory.createEmptyBorder(0, 0, 8, 0));
+        filterRow.add(muted("🔎  Filter:"), BorderLayout.WEST);
+        filterRow.add(filterField,        BorderLayout.CENTER);
+
+        // Category, qty and price are edited in place (double-click or type);
+        // the editors check the value themselves and report problems below
+        JComboBox<String> categoryEditor = new JComboBox<>(Invoice.CATEGORIES);
+        styleCombo(categoryEditor);
+        TableColumnModel cols = itemsTable.getColumnModel();
+        cols.getColumn(2).setCellEditor(new DefaultCellEditor(categoryEditor));
+        cols.getColumn(3).setCellEditor(new LineCellEditor(styledTextField("", 0), LineCellEditor.QUANTITY,
+            row -> tableModel.lines().get(row), tableModel::subtotalPaise, DELETE_RED, this::showProblem));
+        cols.getColumn(4).setCellEditor(new LineCellEditor(styledTextField("", 0), LineCellEditor.PRICE,
+            row -> tableModel.lines().get(row), tableModel::subtotalPaise, DELETE_RED, this::showProblem));
+        itemsTable.setSurrendersFocusOnKeystroke(true);
+        itemsTable.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+
         // Column widths
         int[] widths = {30, 180, 90, 40, 90, 90};
         for (int i = 0; i < widths.length; i++) {
@@ -253,7 +451,8 @@ public class InvoiceGenerator extends JFrame {
         scroll.getViewport().setBackground(BG_CARD);
         scroll.setBorder(BorderFactory.createEmptyBorder());
 
-        wrapper.add(scroll, BorderLayout.CENTER);
+        wrapper.add(filterRow, BorderLayout.NORTH);
+        wrapper.add(scroll,    BorderLayout.CENTER);
 
         // Delete row button
         JButton deleteBtn = new JButton("🗑  Remove Selected Row");
@@ -267,14 +466,74 @@ public class InvoiceGenerator extends JFrame {
         deleteBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         deleteBtn.addActionListener(e -> deleteSelectedRow());
 
-        JPanel btnRow = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 6));
+        // Undo / redo — Ctrl+Z and Ctrl+Y anywhere in the window
+        undoBtn = new JButton("↶  Undo");
+        redoBtn = new JButton("↷  Redo");
+        for (JButton b : new JButton[] { undoBtn, redoBtn }) {
+            b.setFont(FONT_SMALL);
+            b.setForeground(TEXT_MUTED);
+            b.setBackground(BG_CARD);
+            b.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(BORDER_COLOR, 1, true),
+                BorderFactory.createEmptyBorder(5, 12, 5, 12)
+            ));
+            b.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            b.setFocusPainted(false);
+        }
+        undoBtn.addActionListener(e -> undo());
+        redoBtn.addActionListener(e -> redo());
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo", this::undo);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo", this::redo);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK),
+                "redo", this::redo);
+        updateUndoButtons();
+
+        JPanel btnRow = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 6));
         btnRow.setBackground(BG_CARD);
+        btnRow.add(undoBtn);
+        btnRow.add(redoBtn);
         btnRow.add(deleteBtn);
         wrapper.add(btnRow, BorderLayout.SOUTH);
 
         return wrapper;
     }
 
+    private void bindKey(KeyStroke key, String name, Runnable action) {
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(key, name);
+        getRootPane().getActionMap().put(name, new AbstractAction() {
+            public void actionPerformed(ActionEvent e) { action.run(); }
+        });
+    }
+
+    private void undo() {
+        cancelCellEdit();
+        tableModel.undo();
+    }
+
+    private void redo() {
+        cancelCellEdit();
+        tableModel.redo();
+    }
+
+    /** Drops an edit in progress; the row it was on may be about to change under it. */
+    private void cancelCellEdit() {
+        if (itemsTable.isEditing()) itemsTable.getCellEditor().cancelCellEditing();
+    }
+
+    /** Shows a cell editor's complaint in the status bar, or the usual tip again for null. */
+    private void showProblem(String problem) {
+        hintLabel.setText(problem == null ? HINT : "⚠  " + problem);
+        hintLabel.setForeground(problem == null ? TEXT_MUTED : DELETE_RED);
+    }
+
+    private void updateUndoButtons() {
+        if (undoBtn == null) return;
+        undoBtn.setEnabled(tableModel.canUndo());
+        redoBtn.setEnabled(tableModel.canRedo());
+        undoBtn.setToolTipText(tableModel.undoName() + "  (Ctrl+Z)");
+        redoBtn.setToolTipText(tableModel.redoName() + "  (Ctrl+Y)");
+    }
+
     // ── Bottom Section — Summary + Action Buttons ──────────
     private JPanel buildBottomSection() {
         JPanel section = new JPanel(new BorderLayout(12, 0));
@@ -310,16 +569,24 @@ private JPanel buildSummaryCard() {
         JButton printBtn   = accentButton("🖨  Print Invoice");
         JButton clearBtn   = ghostButton("🗑  Clear All");
         JButton newInvBtn  = ghostButton("📄  New Invoice");
+        JButton findBtn    = ghostButton("🔍  Find Invoice");
+        JButton exportBtn  = ghostButton("📤  Export");
 
-        printBtn .addActionListener(e -> printInvoice());
+        printBtn .addActionListener(e -> whenDataReady(this::printInvoice));
         clearBtn .addActionListener(e -> clearAll());
-        newInvBtn.addActionListener(e -> newInvoice());
+        newInvBtn.addActionListener(e -> whenDataReady(this::newInvoice));
+        findBtn  .addActionListener(e -> whenDataReady(this::showSearchDialog));
+        exportBtn.addActionListener(e -> whenDataReady(this::showExportDialog));
 
         panel.add(printBtn);
         panel.add(Box.createVerticalStrut(8));
         panel.add(clearBtn);
         panel.add(Box.createVerticalStrut(8));
         panel.add(newInvBtn);
+        panel.add(Box.createVerticalStrut(8));
+        panel.add(findBtn);
+        panel.add(Box.createVerticalStrut(8));
+        panel.add(exportBtn);
 
         return panel;
     }
@@ -331,10 +598,10 @@ private JPanel buildSummaryCard() {
         bar.setBackground(BG_CARD);
         bar.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, BORDER_COLOR));
 
-        JLabel hint = new JLabel("💡 Tip: Select a row and click Remove to delete. Press Print to preview your invoice.");
-        hint.setFont(FONT_SMALL);
-        hint.setForeground(TEXT_MUTED);
-        bar.add(hint);
+        hintLabel = new JLabel(HINT);
+        hintLabel.setFont(FONT_SMALL);
+        hintLabel.setForeground(TEXT_MUTED);
+        bar.add(hintLabel);
 
         return bar;
     }
@@ -343,6 +610,7 @@ private JPanel buildSummaryCard() {
     //  LOGIC — Add Item
     // ═══════════════════════════════════════════════════════
     private void addItemToTable() {
+        long start = System.nanoTime();
         String name     = itemNameField.getText().trim();
         String category = (String) categoryCombo.getSelectedItem();
         int    qty      = (int) quantitySpinner.getValue();
@@ -358,35 +626,31 @@ private JPanel buildSummaryCard() {
             return;
         }
 
-        double price;
+        // Same rules as the API and the in-place editors: finite, capped, and the bill still adds up
+        long unitPaise;
         try {
-            price = Double.parseDouble(priceStr);
-            if (price < 0) throw new NumberFormatException();
+            double price = Double.parseDouble(priceStr);
+            unitPaise = Double.isFinite(price) ? Invoice.toPaise(price) : -1;
         } catch (NumberFormatException ex) {
+            unitPaise = -1;
+        }
+        String problem = Invoice.checkLine(name, category, qty, unitPaise);
+        if (problem == null) problem = Invoice.checkTotal(tableModel.subtotalPaise(), qty, unitPaise);
+        if (problem != null) {
             JOptionPane.showMessageDialog(this,
-                "Please enter a valid price (e.g. 49.99).",
+                problem,
                 "Invalid Price",
                 JOptionPane.ERROR_MESSAGE);
             priceField.requestFocus();
             return;
         }
 
-        double lineTotal = qty * price;
-        int rowNum       = tableModel.getRowCount() + 1;
-
-        // Add row to JTable via DefaultTableModel
-        tableModel.addRow(new Object[]{
-            rowNum,
-            name,
-            category,
-            qty,
-            String.format("₹ %.2f", price),
-            String.format("₹ %.2f", lineTotal)
-        });
+        // The model numbers and totals the row itself
+        tableModel.add(new Invoice.Line(name, category, qty, unitPaise));
 
-        updateSummary();
         clearItemFields();
         itemNameField.requestFocus();
+        addLatency.since(start);             // validation prompts aren't timed: they wait on the user
     }
     // ═══════════════════════════════════════════════════════
     //  LOGIC — Delete Selected Row
@@ -400,29 +664,23 @@ private JPanel buildSummaryCard() {
                 JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        tableModel.removeRow(selected);
-        // Re-number rows
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            tableModel.setValueAt(i + 1, i, 0);
-        }
-        updateSummary();
+        cancelCellEdit();
+        tableModel.remove(itemsTable.convertRowIndexToModel(selected));   // Ctrl+Z brings it back
     }
 
     // ═══════════════════════════════════════════════════════
     //  LOGIC — Update Summary Totals
     // ═══════════════════════════════════════════════════════
     private void updateSummary() {
-        double subtotal = 0;
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            String val = tableModel.getValueAt(i, 5).toString().replace("₹ ", "");
-            subtotal += Double.parseDouble(val);
-        }
-        double tax   = subtotal * 0.18;
-        double total = subtotal + tax;
-
-        subtotalLabel.setText(String.format("₹ %.2f", subtotal));
-        taxLabel.setText(String.format("₹ %.2f", tax));
-        totalLabel.setText(String.format("₹ %.2f", total));
+        long start = System.nanoTime();
+        long subtotal = tableModel.subtotalPaise();   // kept at the root of the line tree
+        long tax   = Invoice.taxOn(subtotal);     // same GST rule as the API
+        long total = subtotal + tax;
+
+        subtotalLabel.setText(Rupees.format(subtotal));
+        taxLabel.setText(Rupees.format(tax));
+        totalLabel.setText(Rupees.format(total));
+        summaryLatency.since(start);
     }
 
  // ═══════════════════════════════════════════════════════
@@ -435,48 +693,63 @@ private JPanel buildSummaryCard() {
                 "Empty Invoice", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        previewAndPrint(snapshotInvoice(), false);
+    }
 
-        // Build text invoice in JTextArea
-        StringBuilder sb = new StringBuilder();
-        sb.append("╔══════════════════════════════════════╗\n");
-        sb.append("       " + shopNameField.getText() + "\n");
-        sb.append("  " + shopAddressField.getText() + "\n");
-        sb.append("  Ph: " + shopPhoneField.getText() + "\n");
-        sb.append("╠══════════════════════════════════════╣\n");
-        sb.append("  Invoice #: " + invoiceNoField.getText() + "\n");
-        sb.append("  Date:      " + new SimpleDateFormat("dd-MMM-yyyy HH:mm").format(new Date()) + "\n");
-        sb.append("  Customer:  " + custNameField.getText() + "\n");
-        sb.append("╠══════════════════════════════════════╣\n");
-        sb.append(String.format("  %-20s %4s %10s\n", "Item", "Qty", "Total"));
-        sb.append("  ──────────────────────────────────\n");
-
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            String name  = tableModel.getValueAt(i, 1).toString();
-            String qty   = tableModel.getValueAt(i, 3).toString();
-            String total = tableModel.getValueAt(i, 5).toString();
-            sb.append(String.format("  %-20s %4s %10s\n",
-                name.length() > 20 ? name.substring(0, 18) + ".." : name, qty, total));
+    /**
+     * Preview dialog + print — shared by new bills and reprints from search.
+     * The receipt comes from the cache when this exact content was rendered
+     * before, and the same text area is re-filled each time; what is printed
+     * is that preview, so printing never renders either. Only a saved
+     * invoice ({@code finalized}) is cached on disk; its lookup runs on a
+     * worker, so the EDT never waits on the file.
+     */
+    private void previewAndPrint(Invoice inv, boolean finalized) {
+        long start = System.nanoTime();
+        String[] shop = {shopNameField.getText(), shopAddressField.getText(), shopPhoneField.getText()};
+        String date = receiptDate.format(new Date(inv.createdAt));
+        String key  = ReceiptCache.key(RECEIPT_TEMPLATE, "text", receiptInputs(inv, shop, date));
+
+        String text = receipts.cached(key);
+        if (text != null || !finalized) {
+            if (text == null) text = receipts.get(key, false, () -> renderReceipt(inv, shop, date));
+            showReceipt(inv, text, start);
+            return;
         }
+        new SwingWorker<String, Void>() {
+            @Override protected String doInBackground() {
+                return receipts.get(key, true, () -> renderReceipt(inv, shop, date));
+            }
 
-        sb.append("  ──────────────────────────────────\n");
-        sb.append("  Subtotal: " + subtotalLabel.getText() + "\n");
-        sb.append("  GST(18%): " + taxLabel.getText() + "\n");
-        sb.append("  TOTAL:    " + totalLabel.getText() + "\n");
-        sb.append("╚══════════════════════════════════════╝\n");
-        sb.append("     Thank you for shopping with us!\n");
+            @Override protected void done() {
+                try {
+                    showReceipt(inv, get(), start);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(InvoiceGenerator.this, "Could not prepare the receipt: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
 
-        // Show in a dialog with JTextArea
-        JTextArea preview = new JTextArea(sb.toString());
-        preview.setFont(new Font("Courier New", Font.PLAIN, 13));
-        preview.setEditable(false);
-        preview.setBackground(Color.WHITE);
-        preview.setForeground(Color.BLACK);
+    private void showReceipt(Invoice inv, String text, long start) {
+        if (receiptPreview == null) {
+            receiptPreview = new JTextArea();
+            receiptPreview.setFont(new Font("Courier New", Font.PLAIN, 13));
+            receiptPreview.setEditable(false);
+            receiptPreview.setBackground(Color.WHITE);
+            receiptPreview.setForeground(Color.BLACK);
+        }
+        JTextArea preview = receiptPreview;
+        preview.setText(text);
+        preview.setCaretPosition(0);
 
         JScrollPane sp = new JScrollPane(preview);
         sp.setPreferredSize(new Dimension(420, 420));
+        printLatency.since(start);           // up to the preview; the dialog waits on the user
 
         int choice = JOptionPane.showConfirmDialog(this, sp,
-            "Invoice Preview — Invoice #" + invoiceNoField.getText(),
+            "Invoice Preview — Invoice #" + inv.number,
             JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
 
         if (choice == JOptionPane.OK_OPTION) {
@@ -488,6 +761,242 @@ private JPanel buildSummaryCard() {
         }
     }
 
+    /**
+     * Everything renderReceipt prints, one field per line: the cache key is
+     * its hash. Category and phone aren't printed, so they aren't here.
+     */
+    private static String receiptInputs(Invoice inv, String[] shop, String date) {
+        StringBuilder sb = new StringBuilder(64 + 32 * inv.lines.size());
+        sb.append(shop[0]).append('\n')
+          .append(shop[1]).append('\n')
+          .append(shop[2]).append('\n')
+          .append(inv.number).append('\n')
+          .append(date).append('\n')
+          .append(inv.customerName).append('\n');
+        for (Invoice.Line l : inv.lines) {
+            sb.append(l.name).append('\t').append(l.qty).append('\t').append(l.unitPaise).append('\n');
+        }
+        long subtotal = inv.subtotalPaise();
+        return sb.append(subtotal).append('\t').append(Invoice.taxOn(subtotal)).toString();
+    }
+
+    /**
+     * Builds the text receipt for an invoice; {@code shop} is the name,
+     * address and phone, and {@code date} the timestamp as printed. Reads
+     * no Swing state, so it can run on the cache's worker.
+     */
+    private static String renderReceipt(Invoice inv, String[] shop, String date) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("╔══════════════════════════════════════╗\n");
+        sb.append("       " + shop[0] + "\n");
+        sb.append("  " + shop[1] + "\n");
+        sb.append("  Ph: " + shop[2] + "\n");
+        sb.append("╠══════════════════════════════════════╣\n");
+        sb.append("  Invoice #: " + inv.number + "\n");
+        sb.append("  Date:      " + date + "\n");
+        sb.append("  Customer:  " + inv.customerName + "\n");
+        sb.append("╠══════════════════════════════════════╣\n");
+        sb.append("  Item                Qty        Total\n");
+        sb.append("  ──────────────────────────────────\n");
+
+        // Item 18 · qty 4 · amount 12, lakh-grouped — no Formatter per line
+        for (Invoice.Line l : inv.lines) {
+            String name = l.name.length() > 18 ? l.name.substring(0, 16) + ".." : l.name;
+            sb.append("  ").append(name);
+            for (int pad = 18 - name.length(); pad > 0; pad--) sb.append(' ');
+            String qty = String.valueOf(l.qty);
+            for (int pad = 5 - qty.length(); pad > 0; pad--) sb.append(' ');
+            sb.append(qty).append(' ');
+            Rupees.appendPadded(sb, l.totalPaise(), 12).append('\n');
+        }
+
+        long subtotal = inv.subtotalPaise();
+        long tax      = Invoice.taxOn(subtotal);
+        sb.append("  ──────────────────────────────────\n");
+        Rupees.append(sb.append("  Subtotal: "), subtotal).append('\n');
+        Rupees.append(sb.append("  GST(18%): "), tax).append('\n');
+        Rupees.append(sb.append("  TOTAL:    "), subtotal + tax).append('\n');
+        sb.append("╚══════════════════════════════════════╝\n");
+        sb.append("     Thank you for shopping with us!\n");
+        return sb.toString();
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  LOGIC — Search Past Invoices + Reprint
+    // ═══════════════════════════════════════════════════════
+    private void showSearchDialog() {
+        if (searchDialog != null) {
+            searchDialog.setVisible(true);
+            return;
+        }
+        if (invoiceIndex == null) invoiceIndex = new InvoiceIndex(store);
+
+        searchDialog = new JDialog(this, "🔍  Find Invoice", false);
+        searchDialog.getContentPane().setBackground(BG_DARK);
+        searchDialog.setLayout(new BorderLayout(0, 8));
+
+        // Query row — words match customer, phone, items or invoice number
+        JTextField queryField = styledTextField("", 18);
+        JTextField fromField  = styledTextField("", 8);
+        JTextField toField    = styledTextField("", 8);
+        fromField.setToolTipText("From date (dd-MM-yyyy), blank for any");
+        toField  .setToolTipText("To date (dd-MM-yyyy), blank for any");
+        JButton searchBtn  = accentButton("Search");
+        JButton reprintBtn = ghostButton("🖨  Reprint");
+
+        JPanel queryRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        queryRow.setBackground(BG_CARD);
+        queryRow.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        queryRow.add(muted("Find:"));  queryRow.add(queryField);
+        queryRow.add(muted("From:"));  queryRow.add(fromField);
+        queryRow.add(muted("To:"));    queryRow.add(toField);
+        queryRow.add(searchBtn);
+
+        // Results — rows are read from the archive only when painted
+        InvoiceSearchModel results = new InvoiceSearchModel(store);
+        JTable table = new JTable(results);
+        styleTable(table);
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.getViewport().setBackground(BG_CARD);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+
+        JLabel status = muted(" ");
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.setBackground(BG_CARD);
+        footer.setBorder(BorderFactory.createEmptyBorder(6, 10, 6, 10));
+        footer.add(status,     BorderLayout.WEST);
+        footer.add(reprintBtn, BorderLayout.EAST);
+
+        Runnable reprint = () -> {
+            int row = table.getSelectedRow();
+            Invoice inv = row < 0 ? null : results.invoiceAt(table.convertRowIndexToModel(row));
+            if (inv != null) previewAndPrint(inv, true);
+        };
+        Runnable search = () -> {
+            long from, to;
+            try {
+                from = parseDay(fromField.getText(), false);
+                to   = parseDay(toField.getText(), true);
+            } catch (ParseException ex) {
+                JOptionPane.showMessageDialog(searchDialog,
+                    "Please enter dates as dd-MM-yyyy.", "Invalid Date", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            String query = queryField.getText();
+            status.setText("Searching…");
+            new SwingWorker<long[], Void>() {
+                long micros;
+                @Override protected long[] doInBackground() throws IOException {
+                    invoiceIndex.refresh();             // only reads invoices saved since last time
+                    long t0 = System.nanoTime();
+                    long[] hits = invoiceIndex.search(query, from, to);
+                    micros = (System.nanoTime() - t0) / 1000;
+                    return hits;
+                }
+                @Override protected void done() {
+                    try {
+                        long[] hits = get();
+                        results.setResults(hits);
+                        status.setText(String.format("%,d of %,d invoices  ·  %.1f ms",
+                            hits.length, invoiceIndex.size(), micros / 1000.0));
+                    } catch (Exception ex) {
+                        status.setText("Search failed: " + ex.getMessage());
+                    }
+                }
+            }.execute();
+        };
+
+        searchBtn .addActionListener(e -> search.run());
+        queryField.addActionListener(e -> search.run());
+        reprintBtn.addActionListener(e -> reprint.run());
+        table.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) reprint.run();
+            }
+        });
+
+        searchDialog.add(queryRow, BorderLayout.NORTH);
+        searchDialog.add(scroll,   BorderLayout.CENTER);
+        searchDialog.add(footer,   BorderLayout.SOUTH);
+        searchDialog.setSize(760, 480);
+        searchDialog.setLocationRelativeTo(this);
+        searchDialog.setVisible(true);
+        search.run();
+    }
+
+    // ═══════════════════════════════════════════════════════
+    //  LOGIC — Export for the Accountant
+    // ═══════════════════════════════════════════════════════
+    private void showExportDialog() {
+        JComboBox<String> formatCombo = new JComboBox<>(new String[]{
+            "CSV (one row per item)", "JSONL (one invoice per line)", "Tally XML (sales vouchers)"
+        });
+        JTextField monthField = new JTextField(new SimpleDateFormat("yyyy-MM").format(new Date()));
+        JPanel form = new JPanel(new GridLayout(2, 2, 6, 6));
+        form.add(new JLabel("Format:"));                     form.add(formatCombo);
+        form.add(new JLabel("Month (yyyy-MM, blank = all):")); form.add(monthField);
+
+        if (JOptionPane.showConfirmDialog(this, form, "📤  Export Invoices",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) return;
+
+        InvoiceExporter.Format format = InvoiceExporter.Format.values()[formatCombo.getSelectedIndex()];
+        long[] range;
+        try {
+            range = monthRange(monthField.getText());
+        } catch (ParseException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter the month as yyyy-MM.",
+                "Invalid Month", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String month = monthField.getText().isBlank() ? "all" : monthField.getText().trim();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("invoices-" + month + "." + format.extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path target = chooser.getSelectedFile().toPath();
+
+        new SwingWorker<Long, Void>() {
+            long millis;
+            @Override protected Long doInBackground() throws IOException {
+                long t0 = System.currentTimeMillis();
+                long n = new InvoiceExporter(store).export(format, range[0], range[1], target);
+                millis = System.currentTimeMillis() - t0;
+                return n;
+            }
+            @Override protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(InvoiceGenerator.this,
+                        String.format("Exported %,d invoices to %s in %.1f s.", get(), target.getFileName(), millis / 1000.0),
+                        "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(InvoiceGenerator.this,
+                        "Export failed: " + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /** yyyy-MM to {first millis, last millis} of that month; blank means everything. */
+    private static long[] monthRange(String text) throws ParseException {
+        if (text.isBlank()) return new long[]{0, 0};
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM");
+        f.setLenient(false);
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(f.parse(text.trim()));
+        long from = cal.getTimeInMillis();
+        cal.add(Calendar.MONTH, 1);
+        return new long[]{from, cal.getTimeInMillis() - 1};
+    }
+
+    /** dd-MM-yyyy to epoch millis (start or end of that day); blank means open-ended. */
+    private static long parseDay(String text, boolean endOfDay) throws ParseException {
+        if (text.isBlank()) return 0;
+        SimpleDateFormat f = new SimpleDateFormat("dd-MM-yyyy");
+        f.setLenient(false);
+        long start = f.parse(text.trim()).getTime();
+        return endOfDay ? start + 24L * 60 * 60 * 1000 - 1 : start;
+    }
+
     // ═══════════════════════════════════════════════════════
     //  LOGIC — New Invoice / Clear All
     // ═══════════════════════════════════════════════════════
@@ -496,17 +1005,140 @@ private JPanel buildSummaryCard() {
             "Start a new invoice? Current data will be saved.",
             "New Invoice", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            invoiceCounter++;
+            try {
+                if (tableModel.getRowCount() > 0) {     // an empty bill keeps its number
+                    store.append(snapshotInvoice());
+                    rememberCustomer();
+                    invoiceCounter = sequence.next();
+                }
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this,
+                    "Could not save invoice: " + ex.getMessage(),
+                    "Storage Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             invoiceNoField.setText(String.valueOf(invoiceCounter));
-            clearAll();
+            cancelCellEdit();
+            tableModel.reset();
+            clearItemFields();
+            fillingCustomer = true;
             custNameField.setText("Walk-in Customer");
             custPhoneField.setText("");
+            fillingCustomer = false;
         }
     }
 
+    // ═══════════════════════════════════════════════════════
+    //  LOGIC — Customer Directory
+    // ═══════════════════════════════════════════════════════
+    // Lookups read the mapped files, so they run on a worker; a result
+    // is dropped if the field has changed since, as a newer one follows
+    private void autoFillFromPhone() {
+        if (customers == null || fillingCustomer) return;
+        String typed = custPhoneField.getText();
+        new SwingWorker<CustomerDirectory.Customer, Void>() {
+            @Override protected CustomerDirectory.Customer doInBackground() throws IOException {
+                return customers.findUniqueByPhonePrefix(typed);
+            }
+
+            @Override protected void done() {
+                if (!typed.equals(custPhoneField.getText())) return;
+                try {
+                    CustomerDirectory.Customer c = get();
+                    custPhoneField.setToolTipText(c == null ? null : c.name + "  ·  " + c.phone);
+                    if (c != null && !c.name.equals(custNameField.getText())) {
+                        fillingCustomer = true;
+                        custNameField.setText(c.name);
+                        fillingCustomer = false;
+                    }
+                } catch (Exception ignored) {
+                    // no auto-fill this time; the number can still be typed in full
+                }
+            }
+        }.execute();
+    }
+
+    private void suggestCustomers() {
+        if (customers == null || fillingCustomer || !custNameField.isFocusOwner()) return;
+        customerPopup.setVisible(false);
+        String typed = custNameField.getText();
+        if (typed.trim().length() < 2) return;
+        new SwingWorker<java.util.List<CustomerDirectory.Customer>, Void>() {
+            @Override protected java.util.List<CustomerDirectory.Customer> doInBackground() throws IOException {
+                return customers.findByNamePrefix(typed, 6);
+            }
+
+            @Override protected void done() {
+                if (!typed.equals(custNameField.getText()) || !custNameField.isFocusOwner()) return;
+                try {
+                    showCustomerSuggestions(get());
+                } catch (Exception ignored) {
+                    // no suggestions this time
+                }
+            }
+        }.execute();
+    }
+
+    private void showCustomerSuggestions(java.util.List<CustomerDirectory.Customer> matches) {
+        if (matches.isEmpty()) return;
+
+        customerPopup.removeAll();
+        customerPopup.setFocusable(false);
+        for (CustomerDirectory.Customer c : matches) {
+            JMenuItem item = new JMenuItem(c.name + "  ·  " + c.phone);
+            item.setFont(FONT_BODY);
+            item.addActionListener(e -> {
+                fillingCustomer = true;
+                custNameField.setText(c.name);
+                custPhoneField.setText(c.phone);
+                fillingCustomer = false;
+            });
+            customerPopup.add(item);
+        }
+        customerPopup.show(custNameField, 0, custNameField.getHeight());
+    }
+
+    /** Adds or renames the customer once their invoice is saved. */
+    private void rememberCustomer() {
+        String name = custNameField.getText().trim();
+        if (customers == null || name.equals("Walk-in Customer")) return;
+        String phone = custPhoneField.getText();
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() throws IOException {
+                customers.put(name, phone);
+                return null;
+            }
+
+            @Override protected void done() {
+                try {
+                    get();
+                } catch (Exception ignored) {
+                    // the invoice is saved; only the repeat-customer lookup misses them
+                }
+            }
+        }.execute();
+    }
+
+    private static DocumentListener onEdit(Runnable action) {
+        return new DocumentListener() {
+            public void insertUpdate(DocumentEvent e)  { action.run(); }
+            public void removeUpdate(DocumentEvent e)  { action.run(); }
+            public void changedUpdate(DocumentEvent e) {}
+        };
+    }
+
+    /** Captures the invoice currently on screen. */
+    private Invoice snapshotInvoice() {
+        Invoice inv = new Invoice(invoiceCounter);
+        inv.customerName  = custNameField.getText().trim();
+        inv.customerPhone = custPhoneField.getText().trim();
+        for (Invoice.Line line : tableModel.lines()) inv.lines.add(line);
+        return inv;
+    }
+
     private void clearAll() {
-        tableModel.setRowCount(0);
-        updateSummary();
+        cancelCellEdit();
+        tableModel.clear();                         // one undo step, however many lines
         clearItemFields();
     }
 
@@ -678,15 +1310,79 @@ private JPanel buildSummaryCard() {
     //  MAIN ENTRY POINT
     // ═══════════════════════════════════════════════════════
     public static void main(String[] args) {
+        StartupTrace startup = StartupTrace.begin("InvoiceGenerator");
+        // Optional local API:  --api[=port]   (add --headless to skip the window)
+        // Month-end export:  --export=csv|jsonl|tally [--month=yyyy-MM] --out=FILE
+        boolean headless = false;
+        String exportFormat = null, exportMonth = "", exportOut = null;
+        for (String arg : args) {
+            if (arg.equals("--headless")) headless = true;
+            else if (arg.equals("--api")) startApi(InvoiceApiServer.DEFAULT_PORT);
+            else if (arg.startsWith("--api=")) startApi(apiPort(arg.substring(6)));
+            else if (arg.startsWith("--export=")) exportFormat = arg.substring(9);
+            else if (arg.startsWith("--month="))  exportMonth  = arg.substring(8);
+            else if (arg.startsWith("--out="))    exportOut    = arg.substring(6);
+        }
+        if (exportFormat != null) {
+            runExport(exportFormat, exportMonth, exportOut);
+            return;
+        }
+        if (headless) return;
+
         // Run on Event Dispatch Thread (EDT) — best practice for Swing
         SwingUtilities.invokeLater(() -> {
-            try {
-                // Set system look-and-feel (optional)
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-            } catch (Exception ignored) {}
-            new InvoiceGenerator();
+            startup.span("look and feel", () -> {
+                try {
+                    // Set system look-and-feel (optional)
+                    UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+                } catch (Exception ignored) {}
+            });
+            startup.span("frame", () -> { new InvoiceGenerator(startup); });
         });
     }
+
+    private static void runExport(String format, String month, String out) {
+        try {
+            if (out == null) throw new IllegalArgumentException("--out=FILE is required");
+            InvoiceExporter.Format f = InvoiceExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            long[] range = monthRange(month);
+            InvoiceStore store = InvoiceStore.open(InvoiceStore.dataDir().resolve("invoices.jsonl"));
+            long t0 = System.currentTimeMillis();
+            long n = new InvoiceExporter(store).export(f, range[0], range[1], Path.of(out));
+            System.out.printf("Exported %,d invoices to %s in %d ms%n", n, out, System.currentTimeMillis() - t0);
+        } catch (IOException | ParseException | IllegalArgumentException ex) {
+            System.err.println("Export failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** The port given to --api=, or usage and exit. */
+    private static int apiPort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            if (port >= 0 && port <= 65535) return port;
+        } catch (NumberFormatException ignored) {}
+        System.err.println("Bad port for --api: " + text);
+        System.err.println("Usage: InvoiceGenerator [--api[=port]] [--headless]"
+            + " [--export=csv|jsonl|tally [--month=yyyy-MM] --out=FILE]");
+        System.exit(1);
+        return -1;                                // not reached
+    }
+
+    /** Starts the local HTTP API on the same sequence and store as the form. */
+    private static void startApi(int port) {
+        try {
+            Path dir = InvoiceStore.dataDir();
+            InvoiceService service = new InvoiceService(
+                InvoiceSequence.open(dir.resolve("invoice.seq")),
+                InvoiceStore.open(dir.resolve("invoices.jsonl")));
+            InvoiceApiServer api = new InvoiceApiServer(service, port);
+            api.start();
+            System.out.println("Invoice API listening on http://localhost:" + api.port() + "/api/invoices");
+        } catch (IOException ex) {
+            System.err.println("Could not start the invoice API: " + ex.getMessage());
+        }
+    }
 }
 
 
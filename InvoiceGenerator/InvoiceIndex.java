@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * In-memory inverted index over the invoice archive for the search panel.
+ *
+ * Every invoice gets a document id in store order. Terms are lower-cased
+ * words from the customer name and item names, the phone digits and the
+ * invoice number; each term maps to an ascending int posting list. The
+ * last word of a query matches as a prefix, so "ric" finds "rice". The
+ * index follows the store incrementally: refresh() only reads lines
+ * appended since the previous call, by any till.
+ */
+final class InvoiceIndex {
+
+    private final InvoiceStore store;
+    private long indexedUpTo;
+
+    // per document, by id
+    private long[] offsets    = new long[1024];
+    private long[] timestamps = new long[1024];
+    private int    docs;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    /** Growable ascending list of document ids. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int   size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    InvoiceIndex(InvoiceStore store) { this.store = store; }
+
+    /** Indexes whatever has been appended to the store since the last call. */
+    synchronized void refresh() throws IOException {
+        indexedUpTo = store.scan(indexedUpTo, (offset, json) -> {
+            Invoice inv;
+            try {
+                inv = Invoice.fromJson(json);
+            } catch (IllegalArgumentException corrupt) {
+                return;
+            }
+            add(offset, inv);
+        });
+    }
+
+    synchronized int size() { return docs; }
+
+    /**
+     * Matching document offsets, newest first. Every query word must match;
+     * {@code from}/{@code to} are inclusive epoch-millis bounds (0 = open).
+     */
+    synchronized long[] search(String query, long from, long to) {
+        List<String> words = tokenize(query);
+        int[] hits = null;
+        for (int w = 0; w < words.size(); w++) {
+            boolean prefix = w == words.size() - 1;
+            int[] ids = lookup(words.get(w), prefix);
+            hits = hits == null ? ids : intersect(hits, ids);
+            if (hits.length == 0) break;
+        }
+
+        long hi = to > 0 ? to : Long.MAX_VALUE;
+        long[] out = new long[hits == null ? docs : hits.length];
+        int n = 0;
+        for (int i = out.length - 1; i >= 0; i--) {
+            int id = hits == null ? i : hits[i];
+            if (timestamps[id] >= from && timestamps[id] <= hi) out[n++] = offsets[id];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // ── Indexing ───────────────────────────────────────────
+    private void add(long offset, Invoice inv) {
+        if (docs == offsets.length) {
+            offsets    = Arrays.copyOf(offsets, docs * 2);
+            timestamps = Arrays.copyOf(timestamps, docs * 2);
+        }
+        int id = docs++;
+        offsets[id]    = offset;
+        timestamps[id] = inv.createdAt;
+
+        post(String.valueOf(inv.number), id);
+        for (String t : tokenize(inv.customerName)) post(t, id);
+        String phone = CustomerDirectory.normalizeDigits(inv.customerPhone);
+        if (!phone.isEmpty()) post(phone, id);
+        for (Invoice.Line l : inv.lines) {
+            for (String t : tokenize(l.name)) post(t, id);
+        }
+    }
+
+    private void post(String term, int id) {
+        terms.computeIfAbsent(term, k -> new Postings()).add(id);
+    }
+
+    // ── Querying ───────────────────────────────────────────
+    private int[] lookup(String word, boolean prefix) {
+        if (!prefix) {
+            Postings p = terms.get(word);
+            return p == null ? new int[0] : Arrays.copyOf(p.ids, p.size);
+        }
+        SortedMap<String, Postings> range = terms.subMap(word, word + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            Postings p = range.values().iterator().next();
+            return Arrays.copyOf(p.ids, p.size);
+        }
+        // Union of several posting lists: mark a bitmap, then read it back in order
+        BitSet union = new BitSet(docs);
+        for (Postings p : range.values()) {
+            for (int i = 0; i < p.size; i++) union.set(p.ids[i]);
+        }
+        return union.stream().toArray();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Lower-cased letter/digit runs; phone-style digit groups are joined. */
+    static List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        StringBuilder t = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                t.append(Character.toLowerCase(c));
+            } else if (t.length() > 0 && !(c == ' ' && isDigits(t) && i + 1 < text.length()
+                                                && Character.isDigit(text.charAt(i + 1)))) {
+                out.add(t.toString());
+                t.setLength(0);
+            }
+        }
+        return out;
+    }
+
+    private static boolean isDigits(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) if (!Character.isDigit(s.charAt(i))) return false;
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+import javax.swing.table.AbstractTableModel;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.UndoManager;
+
+/**
+ * The bill being entered, as a table. Lines live in a {@link LineList};
+ * every change swaps in a new version of it and records an edit holding
+ * the versions before and after, so undoing or redoing any step, even
+ * clearing the whole bill, is a pointer swap plus one table event, and
+ * the history costs O(log n) shared nodes per step however deep it gets.
+ * Row numbers are the row's position, so nothing is renumbered on delete.
+ * Category, quantity and unit price are edited in place; an edit replaces
+ * one line, repaints one row and moves the subtotal by that line's change.
+ */
+final class InvoiceLinesModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"#", "Item Name", "Category", "Qty", "Unit Price", "Total"};
+
+    private enum Kind { INSERT, REMOVE, UPDATE, RESET }
+
+    /** One step: both versions of the list, and which row it touched. */
+    private final class LineEdit extends AbstractUndoableEdit {
+        final String name;
+        final LineList before, after;
+        final Kind kind;
+        final int row;
+
+        LineEdit(String name, LineList before, LineList after, Kind kind, int row) {
+            this.name   = name;
+            this.before = before;
+            this.after  = after;
+            this.kind   = kind;
+            this.row    = row;
+        }
+
+        @Override public String getPresentationName() { return name; }
+
+        @Override public void undo() {
+            super.undo();
+            Kind inverse = kind == Kind.INSERT ? Kind.REMOVE : kind == Kind.REMOVE ? Kind.INSERT : kind;
+            show(before, inverse, row);
+        }
+
+        @Override public void redo() {
+            super.redo();
+            show(after, kind, row);
+        }
+    }
+
+    private LineList lines = LineList.EMPTY;
+    private final UndoManager history = new UndoManager();
+
+    InvoiceLinesModel() {
+        history.setLimit(-1);                    // unlimited: old versions share almost everything
+    }
+
+    LineList lines()     { return lines; }
+    long subtotalPaise() { return lines.subtotalPaise(); }
+
+    // ── Edits ──────────────────────────────────────────────
+    void add(Invoice.Line line) {
+        record("Add " + line.name, lines.add(line), Kind.INSERT, lines.size());
+    }
+
+    void remove(int row) {
+        record("Remove " + lines.get(row).name, lines.remove(row), Kind.REMOVE, row);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int col) { return col >= 2 && col <= 4; }
+
+    /** Takes a category String, a quantity Integer or unit paise as a Long, already validated by the editor. */
+    @Override
+    public void setValueAt(Object value, int row, int col) {
+        Invoice.Line l = lines.get(row);
+        Invoice.Line edited;
+        String what;
+        switch (col) {
+            case 2:
+                edited = new Invoice.Line(l.name, (String) value, l.qty, l.unitPaise);
+                what = "category";
+                break;
+            case 3:
+                edited = new Invoice.Line(l.name, l.category, (Integer) value, l.unitPaise);
+                what = "quantity";
+                break;
+            case 4:
+                edited = new Invoice.Line(l.name, l.category, l.qty, (Long) value);
+                what = "price";
+                break;
+            default:
+                return;
+        }
+        if (edited.category.equals(l.category) && edited.qty == l.qty && edited.unitPaise == l.unitPaise) return;
+        record("Change " + l.name + " " + what, lines.set(row, edited), Kind.UPDATE, row);
+    }
+
+    void clear() {
+        if (lines.isEmpty()) return;
+        record(String.format("Clear %,d items", lines.size()), LineList.EMPTY, Kind.RESET, 0);
+    }
+
+    /** Empties the bill and forgets its history: a saved invoice can't be undone into the next one. */
+    void reset() {
+        history.discardAllEdits();
+        show(LineList.EMPTY, Kind.RESET, 0);
+    }
+
+    private void record(String name, LineList next, Kind kind, int row) {
+        LineEdit edit = new LineEdit(name, lines, next, kind, row);
+        show(next, kind, row);
+        history.addEdit(edit);
+    }
+
+    private void show(LineList next, Kind kind, int row) {
+        lines = next;
+        switch (kind) {
+            case INSERT: fireTableRowsInserted(row, row); break;
+            case REMOVE: fireTableRowsDeleted(row, row);  break;
+            case UPDATE: fireTableRowsUpdated(row, row);  break;
+            default:     fireTableDataChanged();
+        }
+    }
+
+    // ── Undo / redo ────────────────────────────────────────
+    boolean canUndo() { return history.canUndo(); }
+    boolean canRedo() { return history.canRedo(); }
+    String undoName() { return history.getUndoPresentationName(); }
+    String redoName() { return history.getRedoPresentationName(); }
+
+    void undo() { if (history.canUndo()) history.undo(); }
+    void redo() { if (history.canRedo()) history.redo(); }
+
+    // ── Table ──────────────────────────────────────────────
+    @Override public int getRowCount()              { return lines.size(); }
+    @Override public int getColumnCount()           { return COLUMNS.length; }
+    @Override public String getColumnName(int col)  { return COLUMNS[col]; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Invoice.Line l = lines.get(row);
+        switch (col) {
+            case 0:  return row + 1;
+            case 1:  return l.name;
+            case 2:  return l.category;
+            case 3:  return l.qty;
+            case 4:  return Rupees.format(l.unitPaise);
+            default: return Rupees.format(l.totalPaise());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Search results table. Only the record offsets are held; invoices are
+ * read and decoded from the store a window of rows at a time, on a
+ * worker, when a row in it is first painted. Until its window arrives a
+ * row shows a placeholder, so painting never waits on the archive, which
+ * may sit on a network share. Decoded rows stay in a small LRU so
+ * scrolling back is free.
+ */
+final class InvoiceSearchModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Invoice #", "Date", "Customer", "Phone", "Items", "Total"};
+    private static final int CACHE_SIZE = 256;
+    private static final int WINDOW = 64;                  // rows read per trip to the store
+    private static final Invoice UNREADABLE = new Invoice(-1);
+
+    private final InvoiceStore store;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MMM-yyyy HH:mm");
+    private long[] offsets = new long[0];
+    private int generation;                                // bumped by setResults; older loads are dropped
+    private final Set<Long> loading = new HashSet<>();     // offsets a worker is reading
+
+    // EDT only, like everything else here
+    private final Map<Long, Invoice> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, Invoice> e) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    InvoiceSearchModel(InvoiceStore store) { this.store = store; }
+
+    void setResults(long[] offsets) {
+        this.offsets = offsets;
+        generation++;
+        loading.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * The invoice shown on a row, or null if it can no longer be read or
+     * hasn't been loaded yet; a miss starts loading the row's window.
+     */
+    Invoice invoiceAt(int row) {
+        Invoice inv = cache.get(offsets[row]);
+        if (inv == null) load(row);
+        return inv == UNREADABLE ? null : inv;
+    }
+
+    /** Reads the uncached rows from {@code first} on, up to a window, in the background. */
+    private void load(int first) {
+        int last = Math.min(offsets.length, first + WINDOW) - 1;
+        long[] want = new long[last - first + 1];
+        int n = 0;
+        for (int r = first; r <= last; r++) {
+            long off = offsets[r];
+            if (!cache.containsKey(off) && loading.add(off)) want[n++] = off;
+        }
+        if (n == 0) return;
+        long[] batch = Arrays.copyOf(want, n);
+        int gen = generation;
+        new SwingWorker<Invoice[], Void>() {
+            @Override protected Invoice[] doInBackground() throws IOException {
+                String[] lines = store.readAt(batch);
+                Invoice[] read = new Invoice[lines.length];
+                for (int i = 0; i < lines.length; i++) {
+                    try {
+                        read[i] = Invoice.fromJson(lines[i]);
+                    } catch (IllegalArgumentException | ClassCastException ex) {
+                        read[i] = UNREADABLE;
+                    }
+                }
+                return read;
+            }
+
+            @Override protected void done() {
+                if (gen != generation) return;             // a newer search replaced these rows
+                Invoice[] read;
+                try {
+                    read = get();
+                } catch (Exception ex) {
+                    read = new Invoice[batch.length];
+                    Arrays.fill(read, UNREADABLE);
+                }
+                for (int i = 0; i < batch.length; i++) {
+                    loading.remove(batch[i]);
+                    cache.put(batch[i], read[i]);
+                }
+                fireTableRowsUpdated(first, last);
+            }
+        }.execute();
+    }
+
+    @Override public int getRowCount()              { return offsets.length; }
+    @Override public int getColumnCount()           { return COLUMNS.length; }
+    @Override public String getColumnName(int col)  { return COLUMNS[col]; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Invoice inv = cache.get(offsets[row]);
+        if (inv == null) {
+            load(row);
+            return col == 0 ? "…" : "";
+        }
+        if (inv == UNREADABLE) return col == 0 ? "?" : "";
+        switch (col) {
+            case 0:  return inv.number;
+            case 1:  return dateFormat.format(new Date(inv.createdAt));
+            case 2:  return inv.customerName;
+            case 3:  return inv.customerPhone;
+            case 4:  return inv.lines.size();
+            default: return Rupees.format(inv.totalPaise());
+        }
+    }
+}
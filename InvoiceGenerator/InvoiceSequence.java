@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Invoice numbers shared by every till on the machine.
+ *
+ * The file holds a single long: the next number nobody has reserved yet.
+ * Each till takes a whole block of numbers under a file lock and then hands
+ * them out from memory, so the lock is only touched once per BLOCK invoices.
+ * On shutdown the unused tail of our block is given back if no other till
+ * has reserved after us; otherwise those numbers are simply skipped.
+ */
+final class InvoiceSequence implements Closeable {
+
+    static final long FIRST_NUMBER = 1001;
+    static final int  DEFAULT_BLOCK = 20;
+
+    private static final Map<Path, InvoiceSequence> OPEN = new HashMap<>();
+
+    private final FileChannel channel;
+    private final ByteBuffer  buf = ByteBuffer.allocate(Long.BYTES);
+    private final int blockSize;
+    private long next;      // next number to hand out
+    private long limit;     // end of our reserved block (exclusive)
+
+    private InvoiceSequence(Path file, int blockSize) throws IOException {
+        this.channel   = FileChannel.open(file, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.blockSize = blockSize;
+    }
+
+    /** One instance per file per JVM — file locks are per process, not per window. */
+    static synchronized InvoiceSequence open(Path file) throws IOException {
+        InvoiceSequence seq = OPEN.get(file.toAbsolutePath());
+        if (seq == null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            seq = new InvoiceSequence(file, Integer.getInteger("invoice.seqBlock", DEFAULT_BLOCK));
+            OPEN.put(file.toAbsolutePath(), seq);
+            InvoiceSequence s = seq;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try { s.close(); } catch (IOException ignored) {}
+            }, "invoice-seq-release"));
+        }
+        return seq;
+    }
+
+    /** Next invoice number; only touches the file when the local block runs out. */
+    synchronized long next() throws IOException {
+        if (next == limit) reserveBlock();
+        return next++;
+    }
+
+    private void reserveBlock() throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            long start = readShared();
+            writeShared(start + blockSize);
+            next  = start;
+            limit = start + blockSize;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /** Gives the unused part of our block back when nobody reserved after us. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        if (next < limit) {
+            FileLock lock = channel.lock();
+            try {
+                if (readShared() == limit) writeShared(next);
+            } finally {
+                lock.release();
+            }
+            limit = next;
+        }
+        channel.close();
+    }
+
+    private long readShared() throws IOException {
+        buf.clear();
+        while (buf.hasRemaining() && channel.read(buf, buf.position()) > 0) {}
+        if (buf.position() < Long.BYTES) return FIRST_NUMBER;      // fresh file
+        return buf.getLong(0);
+    }
+
+    private void writeShared(long value) throws IOException {
+        buf.clear();
+        buf.putLong(0, value);
+        while (buf.hasRemaining()) channel.write(buf, buf.position());
+        channel.force(false);
+    }
+}
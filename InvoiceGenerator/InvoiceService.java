@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The invoice engine behind the local API: open drafts, line validation,
+ * numbering and archiving. Uses the same Invoice rules, InvoiceSequence and
+ * InvoiceStore as the Swing form, so numbers never collide with the tills.
+ */
+final class InvoiceService {
+
+    /** Maps to an HTTP status in the API; the message is shown to the caller. */
+    static final class ServiceException extends Exception {
+        final int status;
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final InvoiceSequence sequence;
+    private final InvoiceStore    store;
+    private final ConcurrentHashMap<Long, Invoice> drafts = new ConcurrentHashMap<>();
+
+    InvoiceService(InvoiceSequence sequence, InvoiceStore store) {
+        this.sequence = sequence;
+        this.store    = store;
+    }
+
+    Invoice create(String customerName, String customerPhone) throws IOException {
+        Invoice inv = new Invoice(sequence.next());
+        if (customerName != null && !customerName.isBlank()) inv.customerName = customerName.trim();
+        if (customerPhone != null) inv.customerPhone = customerPhone.trim();
+        drafts.put(inv.number, inv);
+        return inv;
+    }
+
+    Invoice addLine(long number, String name, String category, int qty, long unitPaise)
+            throws ServiceException, IOException {
+        String problem = Invoice.checkLine(name, category, qty, unitPaise);
+        if (problem != null) throw new ServiceException(400, problem);
+        Invoice inv = draft(number);
+        synchronized (inv) {
+            // finalize may have archived it since the lookup; a line added now would be lost
+            if (drafts.get(number) != inv) throw new ServiceException(409, "Invoice already finalized.");
+            problem = Invoice.checkTotal(inv.subtotalPaise(), qty, unitPaise);
+            if (problem != null) throw new ServiceException(400, problem);
+            inv.lines.add(new Invoice.Line(name.trim(), category, qty, unitPaise));
+        }
+        return inv;
+    }
+
+    /**
+     * Archives the draft; after this it can only be fetched, not edited.
+     * It stays a draft until the append succeeds, so a storage error can be retried.
+     */
+    Invoice finalizeInvoice(long number) throws ServiceException, IOException {
+        Invoice inv = draft(number);
+        synchronized (inv) {
+            if (inv.lines.isEmpty()) throw new ServiceException(409, "Invoice has no items.");
+            if (drafts.get(number) != inv) throw new ServiceException(409, "Invoice already finalized.");
+            store.append(inv);
+            drafts.remove(number);
+        }
+        return inv;
+    }
+
+    /** A draft or an archived invoice (from any till), or null. */
+    Invoice fetch(long number) throws IOException {
+        Invoice inv = drafts.get(number);
+        return inv != null ? inv : store.find(number);
+    }
+
+    boolean isDraft(long number) { return drafts.containsKey(number); }
+
+    private Invoice draft(long number) throws ServiceException, IOException {
+        Invoice inv = drafts.get(number);
+        if (inv != null) return inv;
+        if (store.find(number) != null) throw new ServiceException(409, "Invoice already finalized.");
+        throw new ServiceException(404, "No such invoice: " + number);
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Append-only invoice archive shared by every till on the machine.
+ *
+ * Each finalized invoice is one JSON line in invoices.jsonl. Writers take an
+ * exclusive file lock for the duration of a single append, so lines from
+ * different processes never interleave. Readers only trust complete lines
+ * (ending in '\n'), so they never see a half-written record.
+ */
+final class InvoiceStore implements Closeable {
+
+    private static final Map<Path, InvoiceStore> OPEN = new HashMap<>();
+
+    private final Path        file;
+    private final FileChannel channel;
+
+    // number -> byte offset of its line; extended lazily from the file tail
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private long indexedUpTo;
+
+    private InvoiceStore(Path file) throws IOException {
+        this.file    = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /** Folder holding the sequence, store and indexes (override with -Dinvoice.home). */
+    static Path dataDir() {
+        return Paths.get(System.getProperty("invoice.home", "invoice-data"));
+    }
+
+    /** One instance per file per JVM — file locks are per process, not per window. */
+    static synchronized InvoiceStore open(Path file) throws IOException {
+        InvoiceStore store = OPEN.get(file.toAbsolutePath());
+        if (store == null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            store = new InvoiceStore(file);
+            OPEN.put(file.toAbsolutePath(), store);
+        }
+        return store;
+    }
+
+    Path file() { return file; }
+
+    /** Appends one invoice as a single locked write. */
+    synchronized void append(Invoice invoice) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((invoice.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+        FileLock lock = channel.lock();
+        try {
+            while (line.hasRemaining()) channel.write(line);
+            channel.force(false);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Looks an invoice up by number. Lines appended since the last call (by
+     * any till) are indexed first, so each byte of the file is scanned once.
+     */
+    synchronized Invoice find(long number) throws IOException {
+        Long at = offsets.get(number);
+        if (at == null) {
+            indexTail();
+            at = offsets.get(number);
+            if (at == null) return null;
+        }
+        return Invoice.fromJson(readAt(at));
+    }
+
+    private void indexTail() throws IOException {
+        indexedUpTo = scan(indexedUpTo, (offset, json) -> {
+            long no = numberOf(json);
+            if (no > 0) offsets.put(no, offset);
+        });
+    }
+
+    /** Receives each complete record line with its byte offset. */
+    interface LineVisitor {
+        void line(long offset, String json) throws IOException;
+    }
+
+    /**
+     * Streams complete lines starting at {@code from}; returns the offset just
+     * past the last complete line, where the next incremental scan resumes.
+     */
+    long scan(long from, LineVisitor visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long pos = from, lineStart = from;
+            while (in.read(chunk, pos) > 0) {
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    byte b = chunk.get();
+                    pos++;
+                    if (b != '\n') { line.write(b); continue; }
+                    if (line.size() > 0) visitor.line(lineStart, line.toString(StandardCharsets.UTF_8));
+                    line.reset();
+                    lineStart = pos;
+                }
+                chunk.clear();
+            }
+            return lineStart;        // a partial last line is re-read next time
+        }
+    }
+
+    /** The record line starting at {@code offset}. */
+    String readAt(long offset) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readLine(in, offset);
+        }
+    }
+
+    /** The record lines starting at each of {@code offsets}, read through one channel. */
+    String[] readAt(long[] offsets) throws IOException {
+        String[] lines = new String[offsets.length];
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < offsets.length; i++) lines[i] = readLine(in, offsets[i]);
+        }
+        return lines;
+    }
+
+    /** Reads the "no" field without decoding the rest of the record. */
+    private static long numberOf(String json) {
+        int i = json.indexOf("\"no\":");
+        if (i < 0) return -1;
+        long no = 0;
+        for (i += 5; i < json.length() && Character.isDigit(json.charAt(i)); i++) {
+            no = no * 10 + (json.charAt(i) - '0');
+        }
+        return no;
+    }
+
+    private static String readLine(FileChannel in, long offset) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+        long pos = offset;
+        while (in.read(chunk, pos) > 0) {
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                byte b = chunk.get();
+                if (b == '\n') return line.toString(StandardCharsets.UTF_8);
+                line.write(b);
+            }
+            pos += chunk.limit();
+            chunk.clear();
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Streams every complete invoice in the store, oldest first. */
+    void forEach(Consumer<Invoice> action) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Invoice inv;
+                try {
+                    inv = Invoice.fromJson(line);
+                } catch (IllegalArgumentException partial) {
+                    continue;       // another till is mid-append
+                }
+                action.accept(inv);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
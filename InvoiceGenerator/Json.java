@@ -0,0 +1,217 @@
+import java.util.*;
+
+/**
+ * Minimal JSON reader/writer for the invoice store and the local API.
+ * Objects become LinkedHashMap, arrays ArrayList, numbers Double or Long.
+ */
+final class Json {
+
+    private final CharSequence src;
+    private int pos;
+
+    private Json(CharSequence src) { this.src = src; }
+
+    static Object parse(CharSequence text) {
+        Json p = new Json(text);
+        p.skipWs();
+        Object value = p.readValue();
+        p.skipWs();
+        if (p.pos != text.length()) throw p.error("Trailing characters");
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(CharSequence text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) throw new IllegalArgumentException("Expected a JSON object");
+        return (Map<String, Object>) value;
+    }
+
+    // ── Writing ────────────────────────────────────────────
+    static StringBuilder quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    // ── Typed accessors ────────────────────────────────────
+    static String str(Map<String, Object> obj, String key, String def) {
+        Object v = obj.get(key);
+        return v == null ? def : v.toString();
+    }
+
+    static long num(Map<String, Object> obj, String key, long def) {
+        Object v = obj.get(key);
+        if (v instanceof Number n) return n instanceof Double ? Math.round(n.doubleValue()) : n.longValue();
+        return def;
+    }
+
+    static double dbl(Map<String, Object> obj, String key, double def) {
+        Object v = obj.get(key);
+        return v instanceof Number n ? n.doubleValue() : def;
+    }
+
+    // ── Reading ────────────────────────────────────────────
+    private Object readValue() {
+        if (pos >= src.length()) throw error("Unexpected end of input");
+        char c = src.charAt(pos);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': expect("true");  return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null");  return null;
+            default:  return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> obj = new LinkedHashMap<>();
+        pos++;
+        skipWs();
+        if (peek() == '}') { pos++; return obj; }
+        while (true) {
+            skipWs();
+            if (peek() != '"') throw error("Expected a key");
+            String key = readString();
+            skipWs();
+            if (peek() != ':') throw error("Expected ':'");
+            pos++;
+            skipWs();
+            obj.put(key, readValue());
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == '}') return obj;
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipWs();
+        if (peek() == ']') { pos++; return list; }
+        while (true) {
+            skipWs();
+            list.add(readValue());
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == ']') return list;
+            if (c != ',') throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String readString() {
+        pos++;
+        // Fast path: no escapes, copy the run in one go
+        for (int i = pos; i < src.length(); i++) {
+            char c = src.charAt(i);
+            if (c == '"') {
+                String s = src.subSequence(pos, i).toString();
+                pos = i + 1;
+                return s;
+            }
+            if (c == '\\') break;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= src.length()) throw error("Unterminated string");
+            char c = src.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            if (pos >= src.length()) throw error("Unterminated string");
+            char e = src.charAt(pos++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > src.length()) throw error("Unterminated string");
+                    int u = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int h = Character.digit(src.charAt(pos + k), 16);
+                        if (h < 0) throw error("Bad \\u escape");
+                        u = u << 4 | h;
+                    }
+                    sb.append((char) u);
+                    pos += 4;
+                    break;
+                default: sb.append(e);
+            }
+        }
+    }
+
+    private Number readNumber() {
+        // Fast path: plain integers (every field the store writes) without a substring
+        int i = pos;
+        boolean neg = i < src.length() && src.charAt(i) == '-';
+        if (neg) i++;
+        long v = 0;
+        int digits = 0;
+        while (i < src.length() && digits < 18) {
+            char c = src.charAt(i);
+            if (c < '0' || c > '9') break;
+            v = v * 10 + (c - '0');
+            i++;
+            digits++;
+        }
+        if (digits > 0 && (i == src.length() || ",}] \n\r\t".indexOf(src.charAt(i)) >= 0)) {
+            pos = i;
+            return neg ? -v : v;
+        }
+
+        int start = pos;
+        boolean fraction = false;
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') fraction = true;
+            else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) break;
+            pos++;
+        }
+        if (start == pos) throw error("Unexpected character '" + src.charAt(pos) + "'");
+        String num = src.subSequence(start, pos).toString();
+        try {
+            return fraction ? (Number) Double.parseDouble(num) : (Number) Long.parseLong(num);
+        } catch (NumberFormatException ex) {
+            throw error("Bad number " + num);
+        }
+    }
+
+    private void expect(String word) {
+        if (pos + word.length() > src.length()
+                || !src.subSequence(pos, pos + word.length()).toString().equals(word)) {
+            throw error("Expected " + word);
+        }
+        pos += word.length();
+    }
+
+    private char peek() {
+        if (pos >= src.length()) throw error("Unexpected end of input");
+        return src.charAt(pos);
+    }
+
+    private void skipWs() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at offset " + pos);
+    }
+}
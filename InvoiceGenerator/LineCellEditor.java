@@ -0,0 +1,128 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultCellEditor;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+
+/**
+ * In-place editor for a line's quantity or unit price. The typed text is
+ * parsed and checked with the entry form's rules when editing stops; if
+ * it fails, editing carries on with the field outlined in red and the
+ * problem passed to {@code problems}, so a bad value never reaches the
+ * model and no dialog interrupts the cashier.
+ */
+final class LineCellEditor extends DefaultCellEditor {
+
+    /** Which part of a line is edited: how it is shown for editing, and how typed text becomes its new value. */
+    interface Field {
+        String text(Invoice.Line line);
+        /**
+         * The new value, given what the bill's other lines come to; throws
+         * IllegalArgumentException with the message to show.
+         */
+        Object parse(String text, Invoice.Line line, long otherPaise);
+    }
+
+    static final Field QUANTITY = new Field() {
+        public String text(Invoice.Line line) { return String.valueOf(line.qty); }
+
+        public Object parse(String text, Invoice.Line line, long otherPaise) {
+            int qty;
+            try {
+                qty = Integer.parseInt(text);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Quantity must be a whole number.");
+            }
+            check(Invoice.checkLine(line.name, line.category, qty, line.unitPaise));
+            check(Invoice.checkTotal(otherPaise, qty, line.unitPaise));
+            return qty;
+        }
+    };
+
+    static final Field PRICE = new Field() {
+        public String text(Invoice.Line line) { return String.format("%d.%02d", line.unitPaise / 100, line.unitPaise % 100); }
+
+        public Object parse(String text, Invoice.Line line, long otherPaise) {
+            double rupees;
+            try {
+                rupees = Double.parseDouble(text.replace("₹", "").replace(",", "").trim());
+            } catch (NumberFormatException ex) {
+                rupees = Double.NaN;
+            }
+            if (!Double.isFinite(rupees) || rupees < 0) check("Please enter a valid price (e.g. 49.99).");
+            long paise = Invoice.toPaise(rupees);
+            check(Invoice.checkLine(line.name, line.category, line.qty, paise));
+            check(Invoice.checkTotal(otherPaise, line.qty, paise));
+            return paise;
+        }
+    };
+
+    private static void check(String problem) {
+        if (problem != null) throw new IllegalArgumentException(problem);
+    }
+
+    private final JTextField text;
+    private final Field field;
+    private final IntFunction<Invoice.Line> lineAt;       // by model row
+    private final LongSupplier subtotal;                  // the whole bill, this line included
+    private final Consumer<String> problems;              // null clears the last one
+    private final Border normal, invalid;
+    private Invoice.Line line;
+    private Object value;
+
+    LineCellEditor(JTextField text, Field field, IntFunction<Invoice.Line> lineAt, LongSupplier subtotal,
+                   Color errorColor, Consumer<String> problems) {
+        super(text);
+        this.text     = text;
+        this.field    = field;
+        this.lineAt   = lineAt;
+        this.subtotal = subtotal;
+        this.problems = problems;
+        normal  = text.getBorder();
+        invalid = BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(errorColor, 1, true),
+            BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        setClickCountToStart(2);
+    }
+
+    @Override
+    public Component getTableCellEditorComponent(JTable table, Object shown, boolean selected, int row, int col) {
+        super.getTableCellEditorComponent(table, shown, selected, row, col);
+        line = lineAt.apply(table.convertRowIndexToModel(row));
+        text.setText(field.text(line));                   // the raw value, not the formatted cell
+        text.setBorder(normal);
+        text.setToolTipText(null);
+        text.selectAll();
+        return text;
+    }
+
+    @Override
+    public boolean stopCellEditing() {
+        try {
+            value = field.parse(text.getText().trim(), line, subtotal.getAsLong() - line.totalPaise());
+        } catch (IllegalArgumentException ex) {
+            text.setBorder(invalid);
+            text.setToolTipText(ex.getMessage());
+            problems.accept(ex.getMessage());
+            UIManager.getLookAndFeel().provideErrorFeedback(text);
+            return false;                                 // keep editing until it's fixed or cancelled
+        }
+        problems.accept(null);
+        return super.stopCellEditing();
+    }
+
+    @Override
+    public void cancelCellEditing() {
+        problems.accept(null);
+        super.cancelCellEditing();
+    }
+
+    @Override
+    public Object getCellEditorValue() { return value; }
+}
@@ -0,0 +1,152 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable list of invoice lines with structural sharing: a height-
+ * balanced tree indexed by position, where every change copies only the
+ * O(log n) nodes on the path it touches and shares the rest with the list
+ * it came from. Old versions stay valid and cheap to keep, which is what
+ * the undo history holds on to. Each node also carries its subtree's
+ * count and paise, so the subtotal is read off the root.
+ */
+final class LineList implements Iterable<Invoice.Line> {
+
+    static final LineList EMPTY = new LineList(null);
+
+    private static final class Node {
+        final Node left, right;
+        final Invoice.Line line;
+        final int  size, height;
+        final long paise;                        // total of every line in this subtree
+
+        Node(Node left, Invoice.Line line, Node right) {
+            this.left   = left;
+            this.line   = line;
+            this.right  = right;
+            this.size   = size(left) + 1 + size(right);
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.paise  = Math.addExact(Math.addExact(paise(left), line.totalPaise()), paise(right));
+        }
+    }
+
+    private final Node root;
+
+    private LineList(Node root) { this.root = root; }
+
+    int  size()          { return size(root); }
+    boolean isEmpty()    { return root == null; }
+    long subtotalPaise() { return paise(root); }
+
+    Invoice.Line get(int index) {
+        check(index, size());
+        Node n = root;
+        while (true) {
+            int ls = size(n.left);
+            if (index < ls) {
+                n = n.left;
+            } else if (index > ls) {
+                index -= ls + 1;
+                n = n.right;
+            } else {
+                return n.line;
+            }
+        }
+    }
+
+    LineList add(Invoice.Line line) { return insert(size(), line); }
+
+    /** A list with {@code line} at {@code index}; later lines move down one. */
+    LineList insert(int index, Invoice.Line line) {
+        check(index, size() + 1);
+        return new LineList(insert(root, index, line));
+    }
+
+    LineList remove(int index) {
+        check(index, size());
+        return new LineList(remove(root, index));
+    }
+
+    LineList set(int index, Invoice.Line line) {
+        check(index, size());
+        return new LineList(set(root, index, line));
+    }
+
+    // ── Tree ───────────────────────────────────────────────
+    private static int  size(Node n)   { return n == null ? 0 : n.size; }
+    private static int  height(Node n) { return n == null ? 0 : n.height; }
+    private static long paise(Node n)  { return n == null ? 0 : n.paise; }
+
+    private static Node insert(Node n, int index, Invoice.Line line) {
+        if (n == null) return new Node(null, line, null);
+        int ls = size(n.left);
+        if (index <= ls) return balance(insert(n.left, index, line), n.line, n.right);
+        return balance(n.left, n.line, insert(n.right, index - ls - 1, line));
+    }
+
+    private static Node remove(Node n, int index) {
+        int ls = size(n.left);
+        if (index < ls) return balance(remove(n.left, index), n.line, n.right);
+        if (index > ls) return balance(n.left, n.line, remove(n.right, index - ls - 1));
+        if (n.left == null)  return n.right;
+        if (n.right == null) return n.left;
+        Node first = n.right;                    // the successor takes this node's place
+        while (first.left != null) first = first.left;
+        return balance(n.left, first.line, remove(n.right, 0));
+    }
+
+    private static Node set(Node n, int index, Invoice.Line line) {
+        int ls = size(n.left);
+        if (index < ls) return new Node(set(n.left, index, line), n.line, n.right);
+        if (index > ls) return new Node(n.left, n.line, set(n.right, index - ls - 1, line));
+        return new Node(n.left, line, n.right);
+    }
+
+    /** Joins two subtrees whose heights differ by at most two, rotating once or twice if needed. */
+    private static Node balance(Node l, Invoice.Line line, Node r) {
+        int hl = height(l), hr = height(r);
+        if (hl > hr + 1) {
+            if (height(l.left) >= height(l.right)) {
+                return new Node(l.left, l.line, new Node(l.right, line, r));
+            }
+            return new Node(new Node(l.left, l.line, l.right.left), l.right.line,
+                            new Node(l.right.right, line, r));
+        }
+        if (hr > hl + 1) {
+            if (height(r.right) >= height(r.left)) {
+                return new Node(new Node(l, line, r.left), r.line, r.right);
+            }
+            return new Node(new Node(l, line, r.left.left), r.left.line,
+                            new Node(r.left.right, r.line, r.right));
+        }
+        return new Node(l, line, r);
+    }
+
+    private static void check(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + bound);
+        }
+    }
+
+    /** In order, without copying: the iterator keeps the path to the next line. */
+    @Override
+    public Iterator<Invoice.Line> iterator() {
+        return new Iterator<Invoice.Line>() {
+            private final ArrayDeque<Node> path = new ArrayDeque<>();
+            { descend(root); }
+
+            private void descend(Node n) {
+                for (; n != null; n = n.left) path.push(n);
+            }
+
+            public boolean hasNext() { return !path.isEmpty(); }
+
+            public Invoice.Line next() {
+                if (path.isEmpty()) throw new NoSuchElementException();
+                Node n = path.pop();
+                descend(n.right);
+                return n.line;
+            }
+        };
+    }
+}
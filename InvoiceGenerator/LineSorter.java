@@ -0,0 +1,358 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+/**
+ * Sorting and filtering for the items table. Each row's key for the
+ * sorted column is precomputed as a primitive: amounts in paise and
+ * quantities as numbers, names and categories as their first three
+ * letters packed into a long, with the full text compared only on ties.
+ * The visible rows are kept in order in a treap whose nodes are the model
+ * rows themselves, held in int arrays, with subtree sizes for converting
+ * between view and model indices in O(log n).
+ *
+ * Adding a line (always appended to the model) is one O(log n) insert.
+ * An edit moves one row. Removing a line, or undoing a removal, also
+ * shifts the arrays above it down or up in one pass without comparing
+ * anything. Only changing the sort column or the filter re-sorts.
+ * Ties keep the order lines were entered, as DefaultRowSorter does.
+ */
+final class LineSorter extends RowSorter<InvoiceLinesModel> {
+
+    private static final int NONE = -1;
+
+    private final InvoiceLinesModel model;
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private int rows;                                    // model rows known to the sorter
+
+    // Treap over model rows; NONE for no child
+    private int[] left = new int[0], right = new int[0], size = new int[0], priority = new int[0];
+    private boolean[] shown = new boolean[0];            // passed the filter, so in the treap
+    private int root = NONE;
+    private int splitLeft, splitRight;                   // results of split()
+
+    // Sort state: column NONE for entry order
+    private int column = NONE;
+    private boolean descending;
+    private long[] key = new long[0];
+    private String[] text;                               // ties for name and category only
+
+    private RowFilter<? super InvoiceLinesModel, ? super Integer> filter;
+    private final Entry entry = new Entry();
+
+    LineSorter(InvoiceLinesModel model) {
+        this.model = model;
+        rebuild();
+    }
+
+    /** Case-insensitive match anywhere in the item name; no lowercase copies are made. */
+    static RowFilter<InvoiceLinesModel, Integer> nameContains(String typed) {
+        String wanted = typed.trim();
+        return new RowFilter<InvoiceLinesModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends InvoiceLinesModel, ? extends Integer> e) {
+                String name = e.getModel().lines().get(e.getIdentifier()).name;
+                for (int i = 0; i + wanted.length() <= name.length(); i++) {
+                    if (name.regionMatches(true, i, wanted, 0, wanted.length())) return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    void setRowFilter(RowFilter<? super InvoiceLinesModel, ? super Integer> filter) {
+        int[] before = viewToModel();
+        this.filter = filter;
+        rebuild();
+        fireRowSorterChanged(before);
+    }
+
+    // ── RowSorter ──────────────────────────────────────────
+    @Override public InvoiceLinesModel getModel() { return model; }
+
+    @Override
+    public void toggleSortOrder(int col) {
+        SortOrder order = col == column && !descending ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        setSortKeys(Collections.singletonList(new SortKey(col, order)));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        int col = NONE;
+        boolean desc = false;
+        if (keys != null && !keys.isEmpty() && keys.get(0).getSortOrder() != SortOrder.UNSORTED) {
+            col  = keys.get(0).getColumn();
+            desc = keys.get(0).getSortOrder() == SortOrder.DESCENDING;
+            if (col < 0 || col >= model.getColumnCount()) throw new IllegalArgumentException("No column " + col);
+        }
+        if (col == column && desc == descending) return;
+        int[] before = viewToModel();
+        column = col;
+        descending = desc;
+        rebuild();
+        fireSortOrderChanged();
+        fireRowSorterChanged(before);
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        if (column == NONE) return Collections.emptyList();
+        return Collections.singletonList(new SortKey(column, descending ? SortOrder.DESCENDING : SortOrder.ASCENDING));
+    }
+
+    @Override public int getViewRowCount()  { return size(root); }
+    @Override public int getModelRowCount() { return rows; }
+
+    @Override
+    public int convertRowIndexToModel(int view) {
+        if (view < 0 || view >= size(root)) throw new IndexOutOfBoundsException("Row " + view + " of " + size(root));
+        int t = root;
+        while (true) {
+            int ls = size(left[t]);
+            if (view < ls) {
+                t = left[t];
+            } else if (view > ls) {
+                view -= ls + 1;
+                t = right[t];
+            } else {
+                return t;
+            }
+        }
+    }
+
+    @Override
+    public int convertRowIndexToView(int row) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        if (!shown[row]) return -1;
+        int rank = 0, t = root;
+        while (t != row) {
+            if (compare(row, t) < 0) {
+                t = left[t];
+            } else {
+                rank += size(left[t]) + 1;
+                t = right[t];
+            }
+        }
+        return rank + size(left[row]);
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        column = NONE;
+        descending = false;
+        rebuild();
+        fireSortOrderChanged();
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void allRowsChanged() {
+        rebuild();
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsInserted(int first, int last) {
+        for (int row = first; row <= last; row++) {
+            if (row < rows) shift(row, +1);
+            else grow(row + 1);
+            rows++;
+            priority[row] = random.nextInt();
+            place(row);
+        }
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsDeleted(int first, int last) {
+        for (int row = last; row >= first; row--) {
+            if (shown[row]) root = remove(root, row);   // navigates by the old keys
+            if (row < rows - 1) shift(row + 1, -1);
+            rows--;
+        }
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsUpdated(int first, int last) {
+        for (int row = first; row <= last; row++) {
+            if (shown[row]) root = remove(root, row);
+            place(row);
+        }
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsUpdated(int first, int last, int col) {
+        if (col == column || filter != null) rowsUpdated(first, last);
+    }
+
+    // ── Keys ───────────────────────────────────────────────
+    /** Computes a row's key, runs the filter and inserts the row if it passes. */
+    private void place(int row) {
+        keyRow(row, model.lines().get(row));
+        shown[row] = included(row);
+        if (shown[row]) root = insert(root, row);
+    }
+
+    private void keyRow(int row, Invoice.Line line) {
+        switch (column) {
+            case 1:  key[row] = prefix(line.name);     text[row] = line.name;     break;
+            case 2:  key[row] = prefix(line.category); text[row] = line.category; break;
+            case 3:  key[row] = line.qty;              break;
+            case 4:  key[row] = line.unitPaise;        break;
+            case 5:  key[row] = line.totalPaise();     break;
+            default: break;                              // entry order needs no key
+        }
+    }
+
+    /** The first three letters, case-folded, in the top 48 bits' order; shorter names sort first. */
+    private static long prefix(String s) {
+        long k = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = i < s.length() ? Character.toLowerCase(Character.toUpperCase(s.charAt(i))) : 0;
+            k = k << 16 | c;
+        }
+        return k;
+    }
+
+    private int compare(int a, int b) {
+        int c;
+        if (column <= 0) {
+            c = column == 0 ? Integer.compare(a, b) : 0;
+        } else {
+            c = Long.compare(key[a], key[b]);
+            if (c == 0 && (column == 1 || column == 2)) c = text[a].compareToIgnoreCase(text[b]);
+        }
+        if (descending) c = -c;
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    private boolean included(int row) {
+        if (filter == null) return true;
+        entry.row = row;
+        return filter.include(entry);
+    }
+
+    /** Re-keys and re-sorts every row: for a new sort column or filter. */
+    private void rebuild() {
+        rows = model.getRowCount();
+        grow(rows);
+        text = column == 1 || column == 2 ? new String[key.length] : null;
+        root = NONE;
+        int row = 0;
+        for (Invoice.Line line : model.lines()) {
+            priority[row] = random.nextInt();
+            keyRow(row, line);
+            shown[row] = included(row);
+            if (shown[row]) root = insert(root, row);
+            row++;
+        }
+    }
+
+    private int[] viewToModel() {
+        int[] map = new int[size(root)];
+        for (int v = 0; v < map.length; v++) map[v] = convertRowIndexToModel(v);
+        return map;
+    }
+
+    // ── Treap ──────────────────────────────────────────────
+    private int size(int t) { return t == NONE ? 0 : size[t]; }
+
+    private void update(int t) { size[t] = size(left[t]) + 1 + size(right[t]); }
+
+    private int insert(int t, int row) {
+        left[row] = right[row] = NONE;
+        size[row] = 1;
+        split(t, row);
+        return merge(merge(splitLeft, row), splitRight);
+    }
+
+    /** Splits {@code t} into the rows ordered before {@code row} and those after it. */
+    private void split(int t, int row) {
+        if (t == NONE) {
+            splitLeft = splitRight = NONE;
+        } else if (compare(t, row) < 0) {
+            split(right[t], row);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], row);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    /** Joins two treaps where everything in {@code a} comes before everything in {@code b}. */
+    private int merge(int a, int b) {
+        if (a == NONE) return b;
+        if (b == NONE) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int remove(int t, int row) {
+        if (t == row) return merge(left[t], right[t]);
+        if (compare(row, t) < 0) left[t] = remove(left[t], row);
+        else right[t] = remove(right[t], row);
+        update(t);
+        return t;
+    }
+
+    /**
+     * Moves rows {@code from..} up or down one place in the model: the
+     * arrays slide and every link past {@code from} follows. The order is
+     * unchanged, since ties go by model row and all of them move together.
+     */
+    private void shift(int from, int by) {
+        grow(rows + 1);
+        int count = rows - from;
+        int to = from + by;
+        System.arraycopy(left,     from, left,     to, count);
+        System.arraycopy(right,    from, right,    to, count);
+        System.arraycopy(size,     from, size,     to, count);
+        System.arraycopy(priority, from, priority, to, count);
+        System.arraycopy(shown,    from, shown,    to, count);
+        System.arraycopy(key,      from, key,      to, count);
+        if (text != null) System.arraycopy(text, from, text, to, count);
+        int end = rows + by;
+        for (int i = 0; i < end; i++) {
+            if (left[i]  >= from) left[i]  += by;
+            if (right[i] >= from) right[i] += by;
+        }
+        if (root >= from) root += by;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= left.length) return;
+        int n = Math.max(capacity, left.length * 2 + 16);
+        left     = Arrays.copyOf(left, n);
+        right    = Arrays.copyOf(right, n);
+        size     = Arrays.copyOf(size, n);
+        priority = Arrays.copyOf(priority, n);
+        shown    = Arrays.copyOf(shown, n);
+        key      = Arrays.copyOf(key, n);
+        if (text != null) text = Arrays.copyOf(text, n);
+    }
+
+    /** The row a filter is looking at; one instance, re-aimed per row. */
+    private final class Entry extends RowFilter.Entry<InvoiceLinesModel, Integer> {
+        int row;
+        @Override public InvoiceLinesModel getModel()  { return model; }
+        @Override public int getValueCount()            { return model.getColumnCount(); }
+        @Override public Object getValue(int col)       { return model.getValueAt(row, col); }
+        @Override public Integer getIdentifier()        { return row; }
+    }
+}
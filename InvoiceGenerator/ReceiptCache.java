@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rendered receipts, addressed by content. A key is the SHA-256 of the
+ * template version, the variant and everything the template prints, so a
+ * reprint or a second preview of an unchanged bill is served as is, and
+ * anything that would print differently simply has another key. Recent
+ * receipts stay in a small LRU in memory. Receipts of finalized invoices
+ * are also written to {@code <hash>.txt} under the cache folder, so
+ * reprints after a restart, or from another till on the shared folder,
+ * skip rendering too; a draft's receipt changes with every edit and is
+ * never written. Every 64 writes the folder is trimmed back to its
+ * {@code diskEntries} most recently used files, which also clears out
+ * renderings of older templates. All file writes happen on a background
+ * thread; reads happen on the caller's thread, so callers keep
+ * {@link #get} off the EDT.
+ */
+final class ReceiptCache {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int TRIM_EVERY = 64;             // writes between checks of the folder size
+
+    private final Path dir;
+    private final int memoryEntries, diskEntries;
+    private final Map<String, String> memory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "receipt-cache-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private int writesSinceTrim = TRIM_EVERY;              // writer thread only; trims on the first write
+
+    private final AtomicLong memoryHits = new AtomicLong(), diskHits = new AtomicLong(), misses = new AtomicLong();
+
+    ReceiptCache(Path dir, int memoryEntries, int diskEntries) {
+        this.dir = dir;
+        this.memoryEntries = memoryEntries;
+        this.diskEntries = diskEntries;
+        memory = new LinkedHashMap<>(memoryEntries, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, String> e) {
+                return size() > ReceiptCache.this.memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * The key for one rendering: {@code inputs} must hold everything the
+     * template reads, and {@code template} must change whenever its code does.
+     */
+    static String key(int template, String variant, CharSequence inputs) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);           // every JRE has SHA-256
+        }
+        sha.update((template + "\0" + variant + "\0" + inputs).getBytes(StandardCharsets.UTF_8));
+        byte[] digest = sha.digest();
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i]     = HEX[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /** The receipt if it is in memory, counted as a hit; null otherwise. Touches no file. */
+    String cached(String key) {
+        String text;
+        synchronized (memory) {
+            text = memory.get(key);
+        }
+        if (text != null) memoryHits.incrementAndGet();
+        return text;
+    }
+
+    /**
+     * The receipt for {@code key}: from memory, then (if {@code persist})
+     * from disk, and only then from {@code render}. Only a persistent
+     * receipt, a finalized invoice's, is read from or written to disk.
+     */
+    String get(String key, boolean persist, Supplier<String> render) {
+        String text = cached(key);
+        if (text != null) return text;
+        text = persist ? read(key) : null;
+        if (text != null) {
+            diskHits.incrementAndGet();
+            touch(key);
+        } else {
+            misses.incrementAndGet();
+            text = render.get();
+            if (persist) write(key, text);
+        }
+        synchronized (memory) {
+            memory.put(key, text);
+        }
+        return text;
+    }
+
+    // ── Counters ───────────────────────────────────────────
+    long memoryHits() { return memoryHits.get(); }
+    long diskHits()   { return diskHits.get(); }
+    long misses()     { return misses.get(); }
+
+    /** Share of requests served without rendering, 0 before the first. */
+    double hitRate() {
+        long hits = memoryHits.get() + diskHits.get();
+        long all = hits + misses.get();
+        return all == 0 ? 0 : (double) hits / all;
+    }
+
+    int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    // ── Disk ───────────────────────────────────────────────
+    private Path file(String key) { return dir.resolve(key + ".txt"); }
+
+    private String read(String key) {
+        try {
+            return new String(Files.readAllBytes(file(key)), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            return null;                                  // missing or unreadable: render again
+        }
+    }
+
+    /** Marks a file as just used, so trimming keeps it. */
+    private void touch(String key) {
+        writer.execute(() -> {
+            try {
+                Files.setLastModifiedTime(file(key), FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignored) {
+                // trimmed or unwritable: at worst it is evicted early
+            }
+        });
+    }
+
+    /** Writes to a temp file and moves it into place, so a reader never sees half a receipt. */
+    private void write(String key, String text) {
+        writer.execute(() -> {
+            Path target = file(key);
+            try {
+                Files.createDirectories(dir);
+                Path tmp = Files.createTempFile(dir, key, ".tmp");
+                try {
+                    Files.write(tmp, text.getBytes(StandardCharsets.UTF_8));
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                if (++writesSinceTrim >= TRIM_EVERY) {
+                    writesSinceTrim = 0;
+                    trim();
+                }
+            } catch (IOException ignored) {
+                // only the disk tier is lost; the receipt is still in memory
+            }
+        });
+    }
+
+    /** Deletes the least recently used files beyond {@code diskEntries}. */
+    private void trim() throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> all = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path f : all) files.add(f);
+        }
+        if (files.size() <= diskEntries) return;
+        Map<Path, Long> used = new LinkedHashMap<>();
+        for (Path f : files) {
+            try {
+                used.put(f, Files.getLastModifiedTime(f).toMillis());
+            } catch (IOException gone) {
+                // another till trimmed it already
+            }
+        }
+        files.retainAll(used.keySet());
+        files.sort((a, b) -> Long.compare(used.get(a), used.get(b)));
+        for (int i = 0; i < files.size() - diskEntries; i++) Files.deleteIfExists(files.get(i));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Rupee amounts from whole paise, grouped the Indian way in thousands,
+ * lakhs and crores: 1234567890 paise is "₹ 1,23,45,678.90". Digits are
+ * written backwards into a char buffer with plain long arithmetic, so
+ * there is no Formatter, regex, double or boxing; each thread formats in
+ * its own buffer, so the window and batch work can run side by side.
+ * Machine formats (CSV, Tally) keep their ungrouped amounts.
+ */
+final class Rupees {
+
+    /** Longest output: "-₹ " plus 17 digits, 7 commas and ".00" for Long.MIN_VALUE paise. */
+    static final int MAX_LENGTH = 32;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private Rupees() {}
+
+    /**
+     * Writes the amount right-aligned at the end of {@code buf} (at least
+     * {@link #MAX_LENGTH} long) and returns where it starts.
+     */
+    static int write(long paise, char[] buf) {
+        int p = buf.length;
+        boolean negative = paise < 0;
+        long v = negative ? paise : -paise;      // negative throughout, so Long.MIN_VALUE fits
+        buf[--p] = (char) ('0' - v % 10);
+        v /= 10;
+        buf[--p] = (char) ('0' - v % 10);
+        v /= 10;
+        buf[--p] = '.';
+        int digits = 0;
+        do {
+            // 1,23,45,678: a comma after the first three digits, then every two
+            if (digits == 3 || digits > 3 && (digits & 1) == 1) buf[--p] = ',';
+            buf[--p] = (char) ('0' - v % 10);
+            v /= 10;
+            digits++;
+        } while (v != 0);
+        buf[--p] = ' ';
+        buf[--p] = '₹';
+        if (negative) buf[--p] = '-';
+        return p;
+    }
+
+    /** The amount as a String: the one allocation, for Swing's setText. */
+    static String format(long paise) {
+        char[] buf = BUFFER.get();
+        int start = write(paise, buf);
+        return new String(buf, start, buf.length - start);
+    }
+
+    static StringBuilder append(StringBuilder out, long paise) {
+        char[] buf = BUFFER.get();
+        int start = write(paise, buf);
+        return out.append(buf, start, buf.length - start);
+    }
+
+    /** Appends the amount right-aligned in {@code width} columns, as on a receipt. */
+    static StringBuilder appendPadded(StringBuilder out, long paise, int width) {
+        char[] buf = BUFFER.get();
+        int start = write(paise, buf);
+        for (int pad = width - (buf.length - start); pad > 0; pad--) out.append(' ');
+        return out.append(buf, start, buf.length - start);
+    }
+}
@@ -0,0 +1,159 @@
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * Startup timeline: named marks and timed spans, stamped in milliseconds
+ * since the JVM started, from whichever thread they happen on. The first
+ * painted frame, the moment the EDT has drained what that frame queued
+ * ("interactive") and the first real key or mouse press are recorded
+ * automatically. {@link #finish} appends the timeline to a log file, off
+ * the EDT, and echoes it to stderr with {@code -Dstartup.trace=true};
+ * anything recorded after that, usually the first input, is appended as
+ * it happens.
+ */
+final class StartupTrace {
+
+    private static final class Entry {
+        final double at, took;                   // ms since JVM start; took < 0 for a mark
+        final String thread, what;
+        Entry(double at, double took, String thread, String what) {
+            this.at = at; this.took = took; this.thread = thread; this.what = what;
+        }
+    }
+
+    private final String app;
+    private final long jvmStartMillis;
+    private final long originNanos;              // nanoTime at the JVM's start
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private boolean painted;
+    private AWTEventListener inputWatch;
+    private Path logFile;                        // set by finish; later entries are appended to it
+    private ExecutorService writer;              // one thread, so appends land in order
+
+    private StartupTrace(String app) {
+        this.app = app;
+        long nowNanos = System.nanoTime(), nowMillis = System.currentTimeMillis();
+        jvmStartMillis = ProcessHandle.current().info().startInstant()
+                                      .map(i -> i.toEpochMilli()).orElse(nowMillis);
+        originNanos = nowNanos - (nowMillis - jvmStartMillis) * 1_000_000;
+    }
+
+    /** Starts a trace; call first thing in main. */
+    static StartupTrace begin(String app) {
+        StartupTrace t = new StartupTrace(app);
+        t.mark("main");
+        return t;
+    }
+
+    private double now() { return (System.nanoTime() - originNanos) / 1e6; }
+
+    void mark(String what) {
+        add(new Entry(now(), -1, Thread.currentThread().getName(), what));
+    }
+
+    void span(String what, Runnable work) {
+        span(what, () -> { work.run(); return null; });
+    }
+
+    <T> T span(String what, Supplier<T> work) {
+        double start = now();
+        try {
+            return work.get();
+        } finally {
+            double end = now();
+            add(new Entry(start, end - start, Thread.currentThread().getName(), what));
+        }
+    }
+
+    private synchronized void add(Entry e) {
+        entries.add(e);
+        if (logFile != null) write(line(e));
+    }
+
+    /**
+     * Call from the frame's paint(); the first call marks the first frame,
+     * queues the "interactive" mark behind it, starts watching for input and
+     * returns true.
+     */
+    boolean painted() {
+        if (painted) return false;
+        painted = true;
+        mark("first frame painted");
+        SwingUtilities.invokeLater(() -> mark("interactive"));
+        inputWatch = e -> {
+            if (e.getID() == KeyEvent.KEY_PRESSED || e.getID() == MouseEvent.MOUSE_PRESSED) {
+                mark("first input");
+                Toolkit.getDefaultToolkit().removeAWTEventListener(inputWatch);
+            }
+        };
+        Toolkit.getDefaultToolkit().addAWTEventListener(inputWatch,
+            AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK);
+        return true;
+    }
+
+    /**
+     * Marks startup complete and writes the timeline to {@code logFile} in
+     * the background; entries recorded later follow it into the same file.
+     */
+    void finish(Path logFile) {
+        String text;
+        synchronized (this) {
+            if (this.logFile != null) return;
+            mark("startup complete");
+            text = timeline();
+            this.logFile = logFile;
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, app + "-startup-trace");
+                t.setDaemon(true);
+                return t;
+            });
+            write(text);
+        }
+    }
+
+    private void write(String text) {
+        Path file = logFile;
+        writer.execute(() -> {
+            if (Boolean.getBoolean("startup.trace")) System.err.print(text);
+            try {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, text, StandardCharsets.UTF_8,
+                                  StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ignored) {
+                // the trace is a diagnostic; startup doesn't depend on it
+            }
+        });
+    }
+
+    /** The timeline so far, one line per entry in time order. */
+    synchronized String timeline() {
+        ArrayList<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Double.compare(a.at, b.at));
+        StringBuilder sb = new StringBuilder();
+        sb.append(app).append(" startup ")
+          .append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(jvmStartMillis))).append('\n');
+        for (Entry e : sorted) sb.append(line(e));
+        return sb.toString();
+    }
+
+    private static String line(Entry e) {
+        return String.format("  %8.1f ms  %-8s %-24s %s%n", e.at,
+                             e.took < 0 ? "" : String.format("%.1f", e.took),
+                             e.thread.length() > 24 ? e.thread.substring(0, 24) : e.thread, e.what);
+    }
+}